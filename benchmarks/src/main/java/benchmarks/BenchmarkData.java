@@ -0,0 +1,115 @@
+package benchmarks;
+
+import dto.DepartmentDTO;
+import dto.UserDTO;
+import mappers.DepartmentMapper;
+import mappers.TaskMapper;
+import mappers.UserMapper;
+import models.Department;
+import models.Task;
+import models.User;
+import services.impl.DepartmentService;
+import services.impl.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The BenchmarkData class builds entity graphs shaped like the results of the DAOs: the nested entities
+ * reference a copy of their department without lists, as DepartmentDAO, UserDAO and TaskDAO do.
+ */
+public final class BenchmarkData {
+    /**
+     * The number of users and of tasks of every department, and of tasks of every user.
+     */
+    public static final int CHILDREN = 3;
+
+    private BenchmarkData() {
+    }
+    /**
+     * Builds size departments, each with CHILDREN users and CHILDREN tasks.
+     *
+     * @param size The number of departments.
+     * @return The Department entities ordered by their identifier.
+     */
+    public static List<Department> departments(int size) {
+        List<Department> departments = new ArrayList<>(size);
+
+        for (long id = 1; id <= size; id++) {
+            Department department = new Department(id, "Department " + id);
+            Department copy = new Department(id, department.getDepartment_name());
+
+            for (long child = 1; child <= CHILDREN; child++) {
+                long childId = (id - 1) * CHILDREN + child;
+                department.getUserList().add(new User(childId, "Firstname " + childId, "Lastname " + childId, copy));
+                department.getTaskList().add(new Task(childId, "Task " + childId, copy));
+            }
+
+            departments.add(department);
+        }
+
+        return departments;
+    }
+    /**
+     * Builds size users, each with CHILDREN tasks of its department.
+     *
+     * @param size The number of users.
+     * @return The User entities ordered by their identifier.
+     */
+    public static List<User> users(int size) {
+        List<User> users = new ArrayList<>(size);
+
+        for (long id = 1; id <= size; id++) {
+            long departmentId = (id - 1) / CHILDREN + 1;
+            Department department = new Department(departmentId, "Department " + departmentId);
+            User user = new User(id, "Firstname " + id, "Lastname " + id, department);
+
+            for (long child = 1; child <= CHILDREN; child++) {
+                long taskId = (id - 1) * CHILDREN + child;
+                user.getTaskList().add(new Task(taskId, "Task " + taskId, department));
+            }
+
+            users.add(user);
+        }
+
+        return users;
+    }
+    /**
+     * Creates a UserService reading the users from memory.
+     *
+     * @param users The User entities returned by the DAO.
+     * @return The UserService.
+     */
+    public static UserService userService(List<User> users) {
+        return new UserService(new InMemoryDAO<>(users, User::getUser_id),
+                DepartmentMapper.INSTANCE, UserMapper.INSTANCE, TaskMapper.INSTANCE);
+    }
+    /**
+     * Creates a DepartmentService reading the departments from memory.
+     *
+     * @param departments The Department entities returned by the DAO.
+     * @return The DepartmentService.
+     */
+    public static DepartmentService departmentService(List<Department> departments) {
+        return new DepartmentService(new InMemoryDAO<>(departments, Department::getDepartment_id),
+                DepartmentMapper.INSTANCE, UserMapper.INSTANCE, TaskMapper.INSTANCE);
+    }
+    /**
+     * Builds the UserDTO graphs of size users the same way the UserServlet receives them.
+     *
+     * @param size The number of users.
+     * @return The UserDTO objects.
+     */
+    public static List<UserDTO> userDTOs(int size) {
+        return userService(users(size)).getAll();
+    }
+    /**
+     * Builds the DepartmentDTO graphs of size departments the same way the DepartmenServlet receives them.
+     *
+     * @param size The number of departments.
+     * @return The DepartmentDTO objects.
+     */
+    public static List<DepartmentDTO> departmentDTOs(int size) {
+        return departmentService(departments(size)).getAll();
+    }
+}
@@ -0,0 +1,26 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The entry point of benchmarks.jar. It runs JMH with the given command line and always adds
+ * the gc profiler, so every suite reports its allocation rate next to its throughput.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+
+        if (!String.join(" ", args).matches(".*-prof\\s+gc\\b.*")) {
+            jmhArgs.add("-prof");
+            jmhArgs.add("gc");
+        }
+
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
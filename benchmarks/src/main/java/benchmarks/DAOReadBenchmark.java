@@ -0,0 +1,81 @@
+package benchmarks;
+
+import dao.FetchMode;
+import dao.impl.BatchLoader;
+import dao.impl.DepartmentDAO;
+import dao.impl.TaskDAO;
+import dao.impl.UserDAO;
+import models.Department;
+import models.Task;
+import models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency distribution of get and getAll of the DAOs against the SeededDatabase.
+ * getAll runs in both fetch modes, so a PER_ROW (N+1) listing shows up next to the BATCH one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DAOReadBenchmark {
+    @Param({"BATCH", "PER_ROW"})
+    private FetchMode fetchMode;
+
+    private UserDAO userDAO;
+    private TaskDAO taskDAO;
+    private DepartmentDAO departmentDAO;
+
+    @Setup
+    public void setUp(SeededDatabase database) {
+        userDAO = new UserDAO(database.getDataSource(), fetchMode, BatchLoader.DEFAULT_CHUNK_SIZE);
+        taskDAO = new TaskDAO(database.getDataSource(), fetchMode, BatchLoader.DEFAULT_CHUNK_SIZE);
+        departmentDAO = new DepartmentDAO(database.getDataSource(), fetchMode, BatchLoader.DEFAULT_CHUNK_SIZE);
+    }
+
+    @Benchmark
+    public Optional<User> userGet(SeededDatabase database) {
+        return userDAO.get(database.randomId());
+    }
+
+    @Benchmark
+    public Optional<Task> taskGet(SeededDatabase database) {
+        return taskDAO.get(database.randomId());
+    }
+
+    @Benchmark
+    public Optional<Department> departmentGet(SeededDatabase database) {
+        return departmentDAO.get(database.randomDepartment().getDepartment_id());
+    }
+
+    @Benchmark
+    public List<User> userGetAll() {
+        return userDAO.getAll();
+    }
+
+    @Benchmark
+    public List<Task> taskGetAll() {
+        return taskDAO.getAll();
+    }
+
+    @Benchmark
+    public List<Department> departmentGetAll() {
+        return departmentDAO.getAll();
+    }
+}
@@ -0,0 +1,147 @@
+package benchmarks;
+
+import models.Department;
+import models.Task;
+import models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the latency distribution of create, update and delete of the DAOs against the SeededDatabase.
+ * The rows created during an iteration are deleted after it, so every iteration sees the seeded volume.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DAOWriteBenchmark {
+    /**
+     * Makes the names written by the benchmarks unique, as department_name and task_name are.
+     */
+    private static final AtomicLong NAME_NUMBER = new AtomicLong();
+
+    /**
+     * A user created before every invocation of userDelete.
+     */
+    @State(Scope.Thread)
+    public static class NewUser {
+        private Long id;
+
+        @Setup(Level.Invocation)
+        public void create(SeededDatabase database) {
+            User user = new User(null, "Firstname", "Lastname", database.randomDepartment());
+            database.getUserDAO().create(user);
+            id = user.getUser_id();
+        }
+    }
+    /**
+     * A task linked to one user, created before every invocation of taskDelete.
+     * TaskDAO.delete fails for a task without links, so the task gets one.
+     */
+    @State(Scope.Thread)
+    public static class NewTask {
+        private Long id;
+
+        @Setup(Level.Invocation)
+        public void create(SeededDatabase database) {
+            long userId = database.randomId();
+            Department department = database.departmentOf(userId);
+            Task task = new Task(null, "Task new " + NAME_NUMBER.incrementAndGet(), department);
+            task.getUserList().add(new User(userId, null, null, department));
+            database.getTaskDAO().create(task);
+            id = task.getTask_id();
+        }
+    }
+    /**
+     * A department without users and tasks, created before every invocation of departmentDelete.
+     */
+    @State(Scope.Thread)
+    public static class NewDepartment {
+        private Long id;
+
+        @Setup(Level.Invocation)
+        public void create(SeededDatabase database) {
+            Department department = new Department(null, "Department new " + NAME_NUMBER.incrementAndGet());
+            database.getDepartmentDAO().create(department);
+            id = department.getDepartment_id();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteCreatedRows(SeededDatabase database) throws SQLException {
+        database.deleteCreatedRows();
+    }
+
+    @Benchmark
+    public User userCreate(SeededDatabase database) {
+        User user = new User(null, "Firstname", "Lastname", database.randomDepartment());
+        database.getUserDAO().create(user);
+        return user;
+    }
+
+    @Benchmark
+    public Task taskCreate(SeededDatabase database) {
+        long userId = database.randomId();
+        Department department = database.departmentOf(userId);
+        Task task = new Task(null, "Task new " + NAME_NUMBER.incrementAndGet(), department);
+        task.getUserList().add(new User(userId, null, null, department));
+        database.getTaskDAO().create(task);
+        return task;
+    }
+
+    @Benchmark
+    public Department departmentCreate(SeededDatabase database) {
+        Department department = new Department(null, "Department new " + NAME_NUMBER.incrementAndGet());
+        database.getDepartmentDAO().create(department);
+        return department;
+    }
+
+    @Benchmark
+    public void userUpdate(SeededDatabase database) {
+        long id = database.randomId();
+        database.getUserDAO().update(new User(id, "Firstname " + id, "Lastname " + id, database.departmentOf(id)));
+    }
+
+    @Benchmark
+    public void taskUpdate(SeededDatabase database) {
+        long id = database.randomId();
+        database.getTaskDAO().update(new Task(id, "Task " + id, database.departmentOf(id)));
+    }
+
+    @Benchmark
+    public void departmentUpdate(SeededDatabase database) {
+        Department department = database.randomDepartment();
+        database.getDepartmentDAO().update(department);
+    }
+
+    @Benchmark
+    public void userDelete(SeededDatabase database, NewUser user) {
+        database.getUserDAO().delete(user.id);
+    }
+
+    @Benchmark
+    public void taskDelete(SeededDatabase database, NewTask task) {
+        database.getTaskDAO().delete(task.id);
+    }
+
+    @Benchmark
+    public void departmentDelete(SeededDatabase database, NewDepartment department) {
+        database.getDepartmentDAO().delete(department.id);
+    }
+}
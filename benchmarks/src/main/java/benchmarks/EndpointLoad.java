@@ -0,0 +1,115 @@
+package benchmarks;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * The EndpointLoad class sends requests to one endpoint at a constant arrival rate (an open workload model).
+ * Every request is scheduled at its intended start time and sent without waiting for the previous responses,
+ * and its latency is measured from the intended start time, so a stalled server is not hidden by
+ * coordinated omission: requests that could not be sent on time are charged with the delay.
+ */
+public class EndpointLoad {
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String name;
+    private final Supplier<String> pathSupplier;
+    private final Recorder recorder = new Recorder(TimeUnit.MINUTES.toMicros(1), 3);
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLong inFlight = new AtomicLong();
+
+    /**
+     * Constructs a new EndpointLoad.
+     *
+     * @param name The name of the endpoint in the report.
+     * @param pathSupplier Returns the path and query of the next request, for example "/users/42".
+     */
+    public EndpointLoad(String name, Supplier<String> pathSupplier) {
+        this.name = name;
+        this.pathSupplier = pathSupplier;
+    }
+
+    public String getName() {
+        return name;
+    }
+    /**
+     * Sends GET requests at the given rate from now until the end of the measurement and waits for the
+     * outstanding responses. Only the requests scheduled after the warmup are recorded.
+     *
+     * @param client The HttpClient used to send the requests.
+     * @param baseUri The URI of the application, without a trailing slash.
+     * @param rate The number of requests per second.
+     * @param warmup The duration of the unrecorded warmup.
+     * @param duration The duration of the measurement.
+     */
+    public void run(HttpClient client, String baseUri, int rate, Duration warmup, Duration duration) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureStart = start + warmup.toNanos();
+        long end = measureStart + duration.toNanos();
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+
+            long delay;
+            while ((delay = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(delay);
+            }
+
+            boolean recorded = intended >= measureStart;
+
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUri + pathSupplier.get()))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+
+            inFlight.incrementAndGet();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (recorded) {
+                            recorder.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended)));
+                            completed.increment();
+                            if (error != null || response.statusCode() >= 400) {
+                                errors.increment();
+                            }
+                        }
+                        inFlight.decrementAndGet();
+                    });
+        }
+
+        while (inFlight.get() > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+    /**
+     * Returns the latency histogram of the recorded requests in microseconds.
+     *
+     * @return The histogram recorded since the end of the warmup.
+     */
+    public Histogram getHistogram() {
+        return recorder.getIntervalHistogram();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+}
@@ -0,0 +1,148 @@
+package benchmarks;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The H2Database class creates in-memory H2 databases in the PostgreSQL mode with the schema of sql.txt
+ * and seeds them with scale users, scale tasks and scale / USERS_PER_DEPARTMENT departments.
+ * User and task i belong to department (i - 1) % departments + 1, and every user is linked to two tasks
+ * of its department.
+ */
+public final class H2Database {
+    /**
+     * The number of users of every department.
+     */
+    public static final int USERS_PER_DEPARTMENT = 10;
+    /**
+     * The credentials of the in-memory databases.
+     */
+    public static final String USER = "sa";
+    public static final String PASSWORD = "";
+
+    private H2Database() {
+    }
+    /**
+     * Returns the URL of the named in-memory database. The database lives until the JVM exits or it is dropped.
+     *
+     * @param name The name of the database.
+     * @return The JDBC URL.
+     */
+    public static String url(String name) {
+        return "jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+    }
+    /**
+     * Opens a connection pool to the database, creates the schema and seeds it.
+     *
+     * @param url The JDBC URL of the database.
+     * @param scale The number of users and of tasks, a multiple of USERS_PER_DEPARTMENT.
+     * @return The pooled DataSource of the seeded database.
+     * @throws SQLException If the schema could not be created or seeded.
+     */
+    public static HikariDataSource create(String url, int scale) throws SQLException {
+        if (scale <= 0 || scale % USERS_PER_DEPARTMENT != 0) {
+            throw new IllegalArgumentException("scale must be a positive multiple of " + USERS_PER_DEPARTMENT);
+        }
+
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setUsername(USER);
+        config.setPassword(PASSWORD);
+        config.setMaximumPoolSize(Runtime.getRuntime().availableProcessors());
+        HikariDataSource dataSource = new HikariDataSource(config);
+
+        try (Connection connection = dataSource.getConnection();
+            Statement statement = connection.createStatement()) {
+            statement.execute("RUNSCRIPT FROM 'classpath:/h2-schema.sql'");
+        }
+        seed(dataSource, scale);
+
+        return dataSource;
+    }
+    /**
+     * Drops the tables of the database and closes the pool.
+     *
+     * @param dataSource The DataSource returned by create.
+     * @throws SQLException If the tables could not be dropped.
+     */
+    public static void drop(HikariDataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+            Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        dataSource.close();
+    }
+    /**
+     * Returns the number of seeded departments.
+     *
+     * @param scale The number of seeded users and tasks.
+     * @return scale / USERS_PER_DEPARTMENT.
+     */
+    public static int departments(int scale) {
+        return scale / USERS_PER_DEPARTMENT;
+    }
+    /**
+     * Returns the department of the seeded user or task with the given identifier.
+     *
+     * @param id The identifier of a seeded user or task.
+     * @param scale The number of seeded users and tasks.
+     * @return The identifier of the department.
+     */
+    public static long departmentOf(long id, int scale) {
+        return (id - 1) % departments(scale) + 1;
+    }
+
+    private static void seed(DataSource dataSource, int scale) throws SQLException {
+        int departments = departments(scale);
+
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement depts = connection.prepareStatement("INSERT INTO departments (department_name) VALUES (?)");
+            PreparedStatement users = connection.prepareStatement(
+                    "INSERT INTO users (user_firstName, user_lastName, department_id) VALUES (?, ?, ?)");
+            PreparedStatement tasks = connection.prepareStatement("INSERT INTO tasks (task_name, departments_id) VALUES (?, ?)");
+            PreparedStatement links = connection.prepareStatement("INSERT INTO users_tasks (user_id, task_id) VALUES (?, ?)")) {
+
+            connection.setAutoCommit(false);
+
+            for (long id = 1; id <= departments; id++) {
+                depts.setString(1, "Department " + id);
+                depts.addBatch();
+            }
+            depts.executeBatch();
+
+            for (long id = 1; id <= scale; id++) {
+                long departmentId = departmentOf(id, scale);
+
+                users.setString(1, "Firstname " + id);
+                users.setString(2, "Lastname " + id);
+                users.setLong(3, departmentId);
+                users.addBatch();
+
+                tasks.setString(1, "Task " + id);
+                tasks.setLong(2, departmentId);
+                tasks.addBatch();
+            }
+            users.executeBatch();
+            tasks.executeBatch();
+
+            for (long id = 1; id <= scale; id++) {
+                links.setLong(1, id);
+                links.setLong(2, id);
+                links.addBatch();
+                links.setLong(1, id);
+                links.setLong(2, (id - 1 + departments) % scale + 1);
+                links.addBatch();
+            }
+            links.executeBatch();
+
+            connection.commit();
+            connection.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package benchmarks;
+
+import dao.DAO;
+import dao.FieldSet;
+import dao.RowVersions;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The InMemoryDAO class is a read-only implementation of the DAO interface over a prepared list of entities.
+ * It lets the benchmarks measure the services without a database. The FieldSet of a read is ignored
+ * and, since the entities never change, every entity has version 0.
+ */
+public class InMemoryDAO<T> implements DAO<T, Long> {
+    private final List<T> entities;
+    private final Function<T, Long> idOf;
+
+    /**
+     * Constructs a new InMemoryDAO over the specified entities.
+     *
+     * @param entities The entities returned by the read methods, ordered by their identifier.
+     * @param idOf Returns the identifier of an entity.
+     */
+    public InMemoryDAO(List<T> entities, Function<T, Long> idOf) {
+        this.entities = entities;
+        this.idOf = idOf;
+    }
+
+    @Override
+    public Optional<T> get(Long id, FieldSet fields) {
+        return entities.stream().filter(entity -> idOf.apply(entity).equals(id)).findFirst();
+    }
+
+    @Override
+    public Optional<RowVersions> getVersions(Long id, FieldSet fields) {
+        return get(id, fields).map(entity -> new RowVersions(0L));
+    }
+
+    @Override
+    public List<T> getAll(FieldSet fields) {
+        return entities;
+    }
+
+    @Override
+    public List<T> getPage(Long afterId, int limit, FieldSet fields) {
+        return entities.stream()
+                .filter(entity -> afterId == null || idOf.apply(entity) > afterId)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void streamAll(FieldSet fields, Consumer<? super T> consumer) {
+        entities.forEach(consumer);
+    }
+
+    @Override
+    public void create(T obj) {
+        throw new UnsupportedOperationException("InMemoryDAO is read-only");
+    }
+
+    @Override
+    public void createAll(List<T> objs) {
+        throw new UnsupportedOperationException("InMemoryDAO is read-only");
+    }
+
+    @Override
+    public void update(T obj) {
+        throw new UnsupportedOperationException("InMemoryDAO is read-only");
+    }
+
+    @Override
+    public void delete(Long id) {
+        throw new UnsupportedOperationException("InMemoryDAO is read-only");
+    }
+}
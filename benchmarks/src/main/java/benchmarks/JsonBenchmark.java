@@ -0,0 +1,91 @@
+package benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.DepartmentDTO;
+import dto.UserDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import servlets.JsonCodec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Jackson serialization of UserDTO and DepartmentDTO lists into a String, into an output stream
+ * through a plain ObjectMapper, and into an output stream through the pre-resolved writers of the JsonCodec
+ * the servlets use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class JsonBenchmark {
+    @Param({"10", "100", "1000", "10000", "100000"})
+    private int size;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonCodec jsonCodec = JsonCodec.getDefault();
+    /**
+     * Discards the bytes and ignores close, as ObjectWriter.writeValue closes its target after every value.
+     */
+    private final OutputStream outputStream = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+    private List<UserDTO> users;
+    private List<DepartmentDTO> departments;
+
+    @Setup
+    public void setUp() {
+        users = BenchmarkData.userDTOs(size);
+        departments = BenchmarkData.departmentDTOs(size);
+    }
+
+    @Benchmark
+    public String usersAsString() throws IOException {
+        return objectMapper.writeValueAsString(users);
+    }
+
+    @Benchmark
+    public void usersToStream() throws IOException {
+        objectMapper.writeValue(outputStream, users);
+    }
+
+    @Benchmark
+    public void usersWithCodec() throws IOException {
+        jsonCodec.listWriterFor(UserDTO.class).writeValue(outputStream, users);
+    }
+
+    @Benchmark
+    public String departmentsAsString() throws IOException {
+        return objectMapper.writeValueAsString(departments);
+    }
+
+    @Benchmark
+    public void departmentsToStream() throws IOException {
+        objectMapper.writeValue(outputStream, departments);
+    }
+
+    @Benchmark
+    public void departmentsWithCodec() throws IOException {
+        jsonCodec.listWriterFor(DepartmentDTO.class).writeValue(outputStream, departments);
+    }
+}
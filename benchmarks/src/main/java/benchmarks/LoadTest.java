@@ -0,0 +1,178 @@
+package benchmarks;
+
+import com.zaxxer.hikari.HikariDataSource;
+import config.AppProperties;
+import config.ServiceFactory;
+import org.HdrHistogram.Histogram;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+import servlets.AsyncDispatcher;
+import servlets.CompressionFilter;
+import servlets.DepartmenServlet;
+import servlets.MetricsServlet;
+import servlets.TaskServlet;
+import servlets.UserServlet;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * The LoadTest class is a self-contained HTTP load harness. It seeds an H2Database, boots UserServlet,
+ * TaskServlet and DepartmenServlet in an embedded Tomcat against it and drives every selected endpoint
+ * with its own EndpointLoad at a constant arrival rate. The latency distribution of every endpoint is
+ * printed and written as an HdrHistogram .hgrm file.
+ * <p>
+ * The settings are JVM system properties:
+ * load.scale (users and tasks, default 10000), load.rate (requests per second for every endpoint, default 100),
+ * load.warmup-seconds (default 10), load.duration-seconds (default 60), load.endpoints (comma separated names,
+ * default all by-id and page endpoints), load.output-dir (default target/loadtest) and load.port (default 0, any free port).
+ */
+public final class LoadTest {
+    private static final String DEFAULT_ENDPOINTS =
+            "users-by-id,users-page,tasks-by-id,tasks-page,departments-by-id,departments-page";
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int scale = AppProperties.getInt("load.scale", 10000);
+        int rate = AppProperties.getInt("load.rate", 100);
+        Duration warmup = Duration.ofSeconds(AppProperties.getInt("load.warmup-seconds", 10));
+        Duration duration = Duration.ofSeconds(AppProperties.getInt("load.duration-seconds", 60));
+        Path outputDir = Path.of(AppProperties.getString("load.output-dir", "target/loadtest"));
+
+        List<EndpointLoad> loads = new ArrayList<>();
+        Map<String, Supplier<String>> endpoints = endpoints(scale);
+        for (String name : AppProperties.getString("load.endpoints", DEFAULT_ENDPOINTS).split(",")) {
+            Supplier<String> path = endpoints.get(name.trim());
+            if (path == null) {
+                throw new IllegalArgumentException("Unknown endpoint " + name + ", expected one of " + endpoints.keySet());
+            }
+            loads.add(new EndpointLoad(name.trim(), path));
+        }
+
+        String url = H2Database.url("load");
+        HikariDataSource database = H2Database.create(url, scale);
+
+        // DBConnection and ServiceFactory read these when the first servlet is constructed
+        System.setProperty("db.url", url);
+        System.setProperty("db.user", H2Database.USER);
+        System.setProperty("db.password", H2Database.PASSWORD);
+        System.setProperty("cache.invalidation.listen", "false");
+
+        Tomcat tomcat = startTomcat(AppProperties.getInt("load.port", 0));
+        String baseUri = "http://localhost:" + tomcat.getConnector().getLocalPort();
+
+        try {
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            List<Thread> threads = new ArrayList<>();
+            for (EndpointLoad load : loads) {
+                threads.add(Thread.ofPlatform().name("load-" + load.getName())
+                        .start(() -> load.run(client, baseUri, rate, warmup, duration)));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            report(loads, duration, outputDir);
+        }
+        finally {
+            tomcat.stop();
+            tomcat.destroy();
+            AsyncDispatcher.shutdown();
+            ServiceFactory.shutdown();
+            H2Database.drop(database);
+        }
+    }
+
+    private static Map<String, Supplier<String>> endpoints(int scale) {
+        int departments = H2Database.departments(scale);
+        Map<String, Supplier<String>> endpoints = new LinkedHashMap<>();
+
+        endpoints.put("users-by-id", () -> "/users/" + randomId(scale));
+        endpoints.put("users-page", () -> "/users?after_id=" + (randomId(scale) - 1) + "&limit=50");
+        endpoints.put("users-all", () -> "/users");
+        endpoints.put("tasks-by-id", () -> "/tasks/" + randomId(scale));
+        endpoints.put("tasks-page", () -> "/tasks?after_id=" + (randomId(scale) - 1) + "&limit=50");
+        endpoints.put("tasks-all", () -> "/tasks");
+        endpoints.put("departments-by-id", () -> "/departments/" + randomId(departments));
+        endpoints.put("departments-page", () -> "/departments?after_id=" + (randomId(departments) - 1) + "&limit=50");
+        endpoints.put("departments-all", () -> "/departments");
+
+        return endpoints;
+    }
+
+    private static long randomId(int max) {
+        return ThreadLocalRandom.current().nextLong(1, max + 1);
+    }
+
+    private static Tomcat startTomcat(int port) throws IOException, LifecycleException {
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(Files.createTempDirectory("loadtest-tomcat").toString());
+        tomcat.setPort(port);
+        tomcat.getConnector();
+
+        Context context = tomcat.addContext("", null);
+        FilterDef compressionFilter = new FilterDef();
+        compressionFilter.setFilterName("CompressionFilter");
+        compressionFilter.setFilterClass(CompressionFilter.class.getName());
+        compressionFilter.setAsyncSupported("true");
+        context.addFilterDef(compressionFilter);
+        FilterMap compressionMapping = new FilterMap();
+        compressionMapping.setFilterName("CompressionFilter");
+        compressionMapping.addURLPattern("/*");
+        context.addFilterMap(compressionMapping);
+        Tomcat.addServlet(context, "UserServlet", new UserServlet()).setAsyncSupported(true);
+        Tomcat.addServlet(context, "TaskServlet", new TaskServlet()).setAsyncSupported(true);
+        Tomcat.addServlet(context, "DepartmenServlet", new DepartmenServlet()).setAsyncSupported(true);
+        Tomcat.addServlet(context, "MetricsServlet", new MetricsServlet());
+        context.addServletMappingDecoded("/users/*", "UserServlet");
+        context.addServletMappingDecoded("/tasks/*", "TaskServlet");
+        context.addServletMappingDecoded("/departments/*", "DepartmenServlet");
+        context.addServletMappingDecoded("/metrics", "MetricsServlet");
+
+        tomcat.start();
+        return tomcat;
+    }
+
+    private static void report(List<EndpointLoad> loads, Duration duration, Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+
+        System.out.printf("%-20s %10s %8s %12s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+
+        for (EndpointLoad load : loads) {
+            Histogram histogram = load.getHistogram();
+
+            System.out.printf("%-20s %10d %8d %12.1f %10.3f %10.3f %10.3f %10.3f%n",
+                    load.getName(),
+                    load.getCompleted(),
+                    load.getErrors(),
+                    load.getCompleted() / (double) duration.toSeconds(),
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0);
+
+            try (PrintStream out = new PrintStream(Files.newOutputStream(outputDir.resolve(load.getName() + ".hgrm")))) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+
+        System.out.println("Percentile distributions (ms) written to " + outputDir.toAbsolutePath());
+    }
+}
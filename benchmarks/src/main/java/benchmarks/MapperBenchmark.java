@@ -0,0 +1,84 @@
+package benchmarks;
+
+import dto.DepartmentDTO;
+import dto.TaskDTO;
+import dto.UserDTO;
+import mappers.DepartmentMapper;
+import mappers.TaskMapper;
+import mappers.UserMapper;
+import models.Department;
+import models.Task;
+import models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the single-entity conversions of the MapStruct mappers in both directions.
+ * The entities carry BenchmarkData.CHILDREN nested entities, as the results of the DAOs do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+    private User user;
+    private Task task;
+    private Department department;
+    private UserDTO userDTO;
+    private TaskDTO taskDTO;
+    private DepartmentDTO departmentDTO;
+
+    @Setup
+    public void setUp() {
+        department = BenchmarkData.departments(1).get(0);
+        user = BenchmarkData.users(1).get(0);
+        task = user.getTaskList().get(0);
+        task.getUserList().addAll(department.getUserList());
+
+        userDTO = UserMapper.INSTANCE.toUserDTO(user);
+        taskDTO = TaskMapper.INSTANCE.toTaskDTO(task);
+        departmentDTO = DepartmentMapper.INSTANCE.toDepartmentDTO(department);
+    }
+
+    @Benchmark
+    public UserDTO userToDTO() {
+        return UserMapper.INSTANCE.toUserDTO(user);
+    }
+
+    @Benchmark
+    public User userFromDTO() {
+        return UserMapper.INSTANCE.toUser(userDTO);
+    }
+
+    @Benchmark
+    public TaskDTO taskToDTO() {
+        return TaskMapper.INSTANCE.toTaskDTO(task);
+    }
+
+    @Benchmark
+    public Task taskFromDTO() {
+        return TaskMapper.INSTANCE.toTask(taskDTO);
+    }
+
+    @Benchmark
+    public DepartmentDTO departmentToDTO() {
+        return DepartmentMapper.INSTANCE.toDepartmentDTO(department);
+    }
+
+    @Benchmark
+    public Department departmentFromDTO() {
+        return DepartmentMapper.INSTANCE.toDepartment(departmentDTO);
+    }
+}
@@ -0,0 +1,111 @@
+package benchmarks;
+
+import com.zaxxer.hikari.HikariDataSource;
+import dao.impl.UserRows;
+import models.Department;
+import models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a row of the users joined with their departments, as read by UserDAO. allByName
+ * selects * and reads every cell by its column name, as the DAOs did before the RowMapper; columnsByName
+ * selects the column list of UserDAO and still reads by name; columnsByIndex selects the column list and
+ * reads the cells by the indexes of the RowMapper. allByName against columnsByName is the cost of the
+ * select list, columnsByName against columnsByIndex the cost of the name lookups. Every invocation reads
+ * the whole result set of ROWS rows, so the score is the time of one row, execution of the statement included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(RowMappingBenchmark.ROWS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMappingBenchmark {
+    static final int ROWS = 1000;
+
+    private static final String SELECT_ALL_SQL = """
+            SELECT *
+            FROM users u JOIN departments d ON u.department_id = d.department_id
+            """;
+
+    private HikariDataSource dataSource;
+    private Connection connection;
+    private PreparedStatement allColumns;
+    private PreparedStatement userColumns;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = H2Database.create(H2Database.url("rowmapping"), ROWS);
+        connection = dataSource.getConnection();
+        allColumns = connection.prepareStatement(SELECT_ALL_SQL);
+        userColumns = connection.prepareStatement(UserRows.SELECT_COLUMNS_SQL);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        allColumns.close();
+        userColumns.close();
+        connection.close();
+        H2Database.drop(dataSource);
+    }
+
+    @Benchmark
+    public void allByName(Blackhole blackhole) throws SQLException {
+        readByName(allColumns, blackhole);
+    }
+
+    @Benchmark
+    public void columnsByName(Blackhole blackhole) throws SQLException {
+        readByName(userColumns, blackhole);
+    }
+
+    @Benchmark
+    public void columnsByIndex(Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = userColumns.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(UserRows.map(resultSet));
+            }
+        }
+    }
+
+    private static void readByName(PreparedStatement statement, Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                Department department = new Department(
+                        resultSet.getLong("department_id"),
+                        resultSet.getString("department_name")
+                );
+                department.setDepartment_version(resultSet.getLong("department_version"));
+
+                User user = new User(
+                        resultSet.getLong("user_id"),
+                        resultSet.getString("user_firstName"),
+                        resultSet.getString("user_lastName"),
+                        department
+                );
+                user.setUser_version(resultSet.getLong("user_version"));
+
+                blackhole.consume(user);
+            }
+        }
+    }
+}
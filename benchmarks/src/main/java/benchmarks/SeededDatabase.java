@@ -0,0 +1,119 @@
+package benchmarks;
+
+import com.zaxxer.hikari.HikariDataSource;
+import dao.impl.DepartmentDAO;
+import dao.impl.TaskDAO;
+import dao.impl.UserDAO;
+import models.Department;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The SeededDatabase state is an H2Database seeded with scale users and tasks for the DAO benchmarks.
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+    private static final AtomicInteger DATABASE_NUMBER = new AtomicInteger();
+
+    /**
+     * The number of users and of tasks, a multiple of H2Database.USERS_PER_DEPARTMENT.
+     */
+    @Param({"1000", "10000"})
+    public int scale;
+
+    private HikariDataSource dataSource;
+    private UserDAO userDAO;
+    private TaskDAO taskDAO;
+    private DepartmentDAO departmentDAO;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        dataSource = H2Database.create(H2Database.url("bench" + DATABASE_NUMBER.incrementAndGet()), scale);
+
+        userDAO = new UserDAO(dataSource);
+        taskDAO = new TaskDAO(dataSource);
+        departmentDAO = new DepartmentDAO(dataSource);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        H2Database.drop(dataSource);
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public UserDAO getUserDAO() {
+        return userDAO;
+    }
+
+    public TaskDAO getTaskDAO() {
+        return taskDAO;
+    }
+
+    public DepartmentDAO getDepartmentDAO() {
+        return departmentDAO;
+    }
+    /**
+     * Returns the identifier of a random seeded user; the same range holds the seeded tasks.
+     *
+     * @return An identifier between 1 and scale.
+     */
+    public long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, scale + 1);
+    }
+    /**
+     * Returns a random seeded department without lists, as the DAOs expect it in the created entities.
+     *
+     * @return A Department with the identifier and the name of a seeded row.
+     */
+    public Department randomDepartment() {
+        long id = ThreadLocalRandom.current().nextLong(1, H2Database.departments(scale) + 1);
+        return new Department(id, "Department " + id);
+    }
+    /**
+     * Returns the department of the seeded user or task with the given identifier.
+     *
+     * @param id The identifier of a seeded user or task.
+     * @return The Department without lists.
+     */
+    public Department departmentOf(long id) {
+        long departmentId = H2Database.departmentOf(id, scale);
+        return new Department(departmentId, "Department " + departmentId);
+    }
+    /**
+     * Deletes the rows created by the benchmarks, so every iteration starts from the seeded data.
+     *
+     * @throws SQLException If one of the statements could not be executed.
+     */
+    public void deleteCreatedRows() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement links = connection.prepareStatement("DELETE FROM users_tasks WHERE user_id > ? OR task_id > ?");
+            PreparedStatement users = connection.prepareStatement("DELETE FROM users WHERE user_id > ?");
+            PreparedStatement tasks = connection.prepareStatement("DELETE FROM tasks WHERE task_id > ?");
+            PreparedStatement depts = connection.prepareStatement("DELETE FROM departments WHERE department_id > ?")) {
+
+            links.setLong(1, scale);
+            links.setLong(2, scale);
+            links.executeUpdate();
+            users.setLong(1, scale);
+            users.executeUpdate();
+            tasks.setLong(1, scale);
+            tasks.executeUpdate();
+            depts.setLong(1, H2Database.departments(scale));
+            depts.executeUpdate();
+        }
+    }
+}
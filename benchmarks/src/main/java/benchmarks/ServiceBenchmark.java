@@ -0,0 +1,54 @@
+package benchmarks;
+
+import dto.DepartmentDTO;
+import dto.UserDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import services.impl.DepartmentService;
+import services.impl.UserService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the DTO list assembly of UserService.getAll and DepartmentService.getAll over entities held in memory,
+ * so only the mapping of the service layer is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ServiceBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private UserService userService;
+    private DepartmentService departmentService;
+
+    @Setup
+    public void setUp() {
+        userService = BenchmarkData.userService(BenchmarkData.users(size));
+        departmentService = BenchmarkData.departmentService(BenchmarkData.departments(size));
+    }
+
+    @Benchmark
+    public List<UserDTO> userServiceGetAll() {
+        return userService.getAll();
+    }
+
+    @Benchmark
+    public List<DepartmentDTO> departmentServiceGetAll() {
+        return departmentService.getAll();
+    }
+}
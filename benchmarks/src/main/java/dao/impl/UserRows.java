@@ -0,0 +1,41 @@
+package dao.impl;
+
+import models.Department;
+import models.User;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The UserRows class opens the package-private Columns and RowMapper to the RowMappingBenchmark: it holds
+ * the shape of the users joined with their departments, as read by UserDAO, and maps its rows by index.
+ */
+public final class UserRows {
+    private static final Columns USER_ROW = new Columns("u.user_id", "u.user_firstname", "u.user_lastname",
+            "u.user_version", "d.department_id", "d.department_name", "d.department_version");
+    private static final RowMapper<User> USERS = RowMapper.users(USER_ROW);
+    private static final RowMapper<Department> DEPARTMENTS = RowMapper.departments(USER_ROW);
+
+    /**
+     * The statement selecting the columns of the shape for every user.
+     */
+    public static final String SELECT_COLUMNS_SQL = """
+            SELECT %s
+            FROM users u JOIN departments d ON u.department_id = d.department_id
+            """.formatted(USER_ROW);
+
+    private UserRows() {
+    }
+    /**
+     * Maps the current row of a result set of SELECT_COLUMNS_SQL by the indexes of the RowMappers.
+     *
+     * @param resultSet The result set, positioned on a row.
+     * @return a new User with its Department.
+     * @throws SQLException If a column of the row could not be read.
+     */
+    public static User map(ResultSet resultSet) throws SQLException {
+        User user = USERS.map(resultSet);
+        user.setDepartment(DEPARTMENTS.map(resultSet));
+        return user;
+    }
+}
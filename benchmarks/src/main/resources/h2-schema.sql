@@ -0,0 +1,34 @@
+-- The schema of src/main/resources/sql.txt for H2 in the PostgreSQL mode.
+DROP ALL OBJECTS;
+
+CREATE TABLE departments
+(
+    department_id   BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    department_name    VARCHAR(255) NOT NULL UNIQUE,
+    department_version BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE users
+(
+    user_id        BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    user_firstName VARCHAR(255) NOT NULL,
+    user_lastName  VARCHAR(255) NOT NULL,
+    department_id  BIGINT REFERENCES departments (department_id),
+    user_version   BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE tasks
+(
+    task_id        BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    task_name      VARCHAR(255) NOT NULL UNIQUE,
+    departments_id BIGINT REFERENCES departments (department_id),
+    task_version   BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE users_tasks
+(
+    users_tasks_id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    user_id        BIGINT REFERENCES users (user_id),
+    task_id        BIGINT REFERENCES tasks (task_id),
+    CONSTRAINT unique_link UNIQUE (user_id, task_id)
+);
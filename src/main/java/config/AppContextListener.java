@@ -0,0 +1,28 @@
+package config;
+
+import servlets.AsyncDispatcher;
+import servlets.MetricsServlet;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * The AppContextListener class registers the MetricsServlet on /metrics if metrics.enabled is set, and
+ * releases the application resources when the web application is stopped, so no background thread
+ * outlives a redeploy.
+ */
+public class AppContextListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        if (AppProperties.getBoolean("metrics.enabled", true)) {
+            sce.getServletContext().addServlet("MetricsServlet", MetricsServlet.class).addMapping("/metrics");
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        AsyncDispatcher.shutdown();
+        ServiceFactory.shutdown();
+    }
+}
@@ -0,0 +1,77 @@
+package config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Configuration class for the tunable settings of the application.
+ * The settings are loaded from the application.properties file, every key can be
+ * overridden with a JVM system property of the same name (for example -Ddao.fetch-mode=PER_ROW).
+ */
+public class AppProperties {
+    /**
+     * The settings loaded from the application.properties file.
+     */
+    private static final Properties properties = new Properties();
+
+    static {
+        try (InputStream inputStream = AppProperties.class.getClassLoader().getResourceAsStream("application.properties"))
+        {
+            if (inputStream != null) {
+                properties.load(inputStream);
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException("AppProperties is failed", e);
+        }
+    }
+
+    private AppProperties() {
+    }
+    /**
+     * Returns the value of the setting as a String.
+     *
+     * @param key The name of the setting.
+     * @param defaultValue The value returned when the setting is absent.
+     * @return the configured value, or defaultValue if the setting is absent.
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key, properties.getProperty(key));
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+    /**
+     * Returns the value of the setting as an int.
+     *
+     * @param key The name of the setting.
+     * @param defaultValue The value returned when the setting is absent.
+     * @return the configured value, or defaultValue if the setting is absent.
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+    /**
+     * Returns the value of the setting as a boolean.
+     *
+     * @param key The name of the setting.
+     * @param defaultValue The value returned when the setting is absent.
+     * @return the configured value, or defaultValue if the setting is absent.
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+    /**
+     * Returns the value of the setting as an enum constant.
+     *
+     * @param key The name of the setting.
+     * @param type The enum class of the setting.
+     * @param defaultValue The value returned when the setting is absent.
+     * @return the configured value, or defaultValue if the setting is absent.
+     */
+    public static <E extends Enum<E>> E getEnum(String key, Class<E> type, E defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Enum.valueOf(type, value.toUpperCase());
+    }
+}
@@ -2,35 +2,65 @@ package config;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import dao.impl.SqlIds;
+import dao.jdbc.InstrumentedDataSource;
+import metrics.MetricsRegistry;
+import metrics.PoolMetricsTrackerFactory;
 
 import javax.sql.DataSource;
 import java.io.IOException;
 import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
 import java.util.Properties;
 
 /**
  * Configuration class for the DataSource of the application.
  * Uses HikariCP for managing the database connection pool.
- * The configuration is loaded from the db.properties file.
+ * The configuration is loaded from the db.properties file, every key can be overridden
+ * with a JVM system property of the same name (for example -Ddb.url=...).
+ * If jdbc.instrumentation.enabled is set, the pool is wrapped in an InstrumentedDataSource
+ * timing every statement. If metrics.enabled is set, the pool publishes its gauges and
+ * connection acquire times in the MetricsRegistry.
  */
 public class DBConnection {
     /**
      * The single instance of the DataSource created based on the configuration.
      */
     private static final HikariDataSource dataSource;
+    /**
+     * The InstrumentedDataSource around the pool, or null if the instrumentation is disabled.
+     */
+    private static final InstrumentedDataSource instrumentedDataSource;
+    /**
+     * The connection settings loaded from the db.properties file.
+     */
+    private static final Properties properties = new Properties();
 
     static {
         try (InputStream inputStream = DBConnection.class.getClassLoader().getResourceAsStream("db.properties"))
         {
-            Properties properties = new Properties();
             properties.load(inputStream);
+            for (String key : properties.stringPropertyNames()) {
+                properties.setProperty(key, System.getProperty(key, properties.getProperty(key)));
+            }
 
             HikariConfig config = new HikariConfig();
             config.setJdbcUrl(properties.getProperty("db.url"));
             config.setUsername(properties.getProperty("db.user"));
             config.setPassword(properties.getProperty("db.password"));
+            if (AppProperties.getBoolean("metrics.enabled", true)) {
+                config.setMetricsTrackerFactory(new PoolMetricsTrackerFactory(MetricsRegistry.getDefault()));
+            }
 
             dataSource = new HikariDataSource(config);
+            instrumentedDataSource = AppProperties.getBoolean("jdbc.instrumentation.enabled", true)
+                    ? new InstrumentedDataSource(dataSource,
+                            AppProperties.getInt("jdbc.slow-query-millis", 200),
+                            AppProperties.getInt("jdbc.repeated-statement-threshold", 10),
+                            SqlIds::of)
+                    : null;
         }
         catch (IOException e) {
             throw new RuntimeException("DBConnection is failed", e);
@@ -42,6 +72,36 @@ public class DBConnection {
      * @return the DataSource instance configured based on the properties.
      */
     public static DataSource getDataSource() {
-        return dataSource;
+        return instrumentedDataSource != null ? instrumentedDataSource : dataSource;
+    }
+    /**
+     * Returns the InstrumentedDataSource collecting the statistics of the statements.
+     *
+     * @return the InstrumentedDataSource, or null if jdbc.instrumentation.enabled is not set.
+     */
+    public static InstrumentedDataSource getInstrumentedDataSource() {
+        return instrumentedDataSource;
+    }
+    /**
+     * Returns the maximum number of connections of the pool.
+     *
+     * @return the maximum pool size of the DataSource.
+     */
+    public static int getMaximumPoolSize() {
+        return dataSource.getMaximumPoolSize();
+    }
+    /**
+     * Opens a new connection outside of the pool, for long-lived sessions such as LISTEN
+     * that must not hold a pooled connection. The caller is responsible for closing it.
+     *
+     * @return a new Connection configured based on the properties.
+     * @throws SQLException If the connection could not be established.
+     */
+    public static Connection openDedicatedConnection() throws SQLException {
+        return DriverManager.getConnection(
+                properties.getProperty("db.url"),
+                properties.getProperty("db.user"),
+                properties.getProperty("db.password")
+        );
     }
 }
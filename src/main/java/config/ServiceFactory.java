@@ -1,61 +1,202 @@
 package config;
 
 import dao.DAO;
+import dao.FetchMode;
+import dao.cache.CachingDAO;
+import dao.cache.EntityCache;
+import dao.cache.InvalidationListener;
+import dao.impl.BatchLoader;
 import dao.impl.DepartmentDAO;
 import dao.impl.TaskDAO;
 import dao.impl.UserDAO;
+import dto.DepartmentDTO;
+import dto.TaskDTO;
+import dto.UserDTO;
 import mappers.DepartmentMapper;
 import mappers.TaskMapper;
 import mappers.UserMapper;
+import metrics.MetricsRegistry;
+import metrics.TimedDAO;
+import metrics.TimedService;
 import models.Department;
+import models.LazyList;
 import models.Task;
 import models.User;
+import services.Service;
 import services.impl.DepartmentService;
 import services.impl.TaskService;
 import services.impl.UserService;
 
 import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The ServiceFactory class is a utility class that provides static methods to obtain
  * instances of service classes. Each service class is configured with its corresponding
  * DAO and Mapper instances, ensuring that the services have access to the necessary
- * data access and mapping functionalities.
+ * data access and mapping functionalities. The services and the DAOs below the cache are timed
+ * for the Server-Timing header, the access log and Flight Recorder; if metrics.enabled is set,
+ * the latency of their methods and the statistics of the entity caches are also published in the MetricsRegistry.
  */
 public class ServiceFactory {
     private static final DataSource dataSource = DBConnection.getDataSource();
-    private static final DAO<Department, Long> departmentDAO = new DepartmentDAO(dataSource);
-    private static final DAO<Task, Long> taskDAO = new TaskDAO(dataSource);
-    private static final DAO<User, Long> userDAO = new UserDAO(dataSource);
+    private static final FetchMode fetchMode = AppProperties.getEnum("dao.fetch-mode", FetchMode.class, FetchMode.BATCH);
+    private static final MetricsRegistry metrics = metricsRegistry();
+    private static final DAO<Department, Long> departmentDAO;
+    private static final DAO<Task, Long> taskDAO;
+    private static final DAO<User, Long> userDAO;
     private static final DepartmentMapper departMapper = DepartmentMapper.INSTANCE;
     private static final TaskMapper taskMapper = TaskMapper.INSTANCE;
     private static final UserMapper userMapper = UserMapper.INSTANCE;
+    private static InvalidationListener invalidationListener;
+
+    static {
+        DAO<Department, Long> departments = timed("DepartmentDAO", new DepartmentDAO(dataSource, fetchMode,
+                AppProperties.getInt("dao.departments.chunk-size", BatchLoader.DEFAULT_CHUNK_SIZE)));
+        DAO<Task, Long> tasks = timed("TaskDAO", new TaskDAO(dataSource, fetchMode,
+                AppProperties.getInt("dao.tasks.chunk-size", BatchLoader.DEFAULT_CHUNK_SIZE)));
+        DAO<User, Long> users = timed("UserDAO", new UserDAO(dataSource, fetchMode,
+                AppProperties.getInt("dao.users.chunk-size", BatchLoader.DEFAULT_CHUNK_SIZE)));
+
+        if (AppProperties.getBoolean("cache.enabled", true)) {
+            CachingDAO<Department, Long> cachedDepartments = new CachingDAO<>(departments, newCache(), Department::getDepartment_id);
+            CachingDAO<Task, Long> cachedTasks = new CachingDAO<>(tasks, newCache(), Task::getTask_id);
+            CachingDAO<User, Long> cachedUsers = new CachingDAO<>(users, newCache(), User::getUser_id);
+
+            // a cached entity embeds the names of its related entities, so a write invalidates them as well
+            cachedUsers.addDependent(cachedDepartments, user -> departmentIds(user.getDepartment()));
+            cachedUsers.addDependent(cachedTasks, user -> taskIds(user.getTaskList()));
+            cachedTasks.addDependent(cachedDepartments, task -> departmentIds(task.getDepartment()));
+            cachedTasks.addDependent(cachedUsers, task -> userIds(task.getUserList()));
+            cachedDepartments.addDependent(cachedUsers, department -> userIds(department.getUserList()));
+            cachedDepartments.addDependent(cachedTasks, department -> taskIds(department.getTaskList()));
+
+            publish("departments", cachedDepartments.getCache());
+            publish("tasks", cachedTasks.getCache());
+            publish("users", cachedUsers.getCache());
+
+            departments = cachedDepartments;
+            tasks = cachedTasks;
+            users = cachedUsers;
+
+            if (AppProperties.getBoolean("cache.invalidation.listen", true)) {
+                invalidationListener = new InvalidationListener(
+                        DBConnection::openDedicatedConnection,
+                        Map.of("departments", cachedDepartments, "tasks", cachedTasks, "users", cachedUsers),
+                        AppProperties.getInt("cache.invalidation.poll-millis", 1000),
+                        AppProperties.getInt("cache.invalidation.reconnect-millis", 5000)
+                );
+                invalidationListener.start();
+            }
+        }
+
+        departmentDAO = departments;
+        taskDAO = tasks;
+        userDAO = users;
+    }
 
     /**
      * Returns an instance of DepartmentService, configured with the appropriate departmentDAO, userMapper, taskMapper and departMapper.
      *
-     * @return An instance of DepartmentService.
+     * @return An instance of DepartmentService, with the latency of its methods recorded.
      */
-    public static DepartmentService getDepartmentService() {
-        return new DepartmentService(departmentDAO, departMapper, userMapper, taskMapper);
+    public static Service<DepartmentDTO, Long> getDepartmentService() {
+        return timed("DepartmentService", new DepartmentService(departmentDAO, departMapper, userMapper, taskMapper));
     }
 
     /**
      * Returns an instance of TaskService, configured with the appropriate taskDAO, taskMapper, userMapper and departMapper.
      *
-     * @return An instance of TaskService.
+     * @return An instance of TaskService, with the latency of its methods recorded.
      */
-    public static TaskService getTaskService() {
-        return new TaskService(taskDAO, taskMapper, userMapper, departMapper);
+    public static Service<TaskDTO, Long> getTaskService() {
+        return timed("TaskService", new TaskService(taskDAO, taskMapper, userMapper, departMapper));
     }
 
     /**
      * Returns an instance of UserService, configured with the appropriate userDAO, departMapper, userMapper and taskMapper.
      *
-     * @return An instance of UserService.
+     * @return An instance of UserService, with the latency of its methods recorded.
      */
-    public static UserService getUserService() {
-        return new UserService(userDAO, departMapper, userMapper, taskMapper);
+    public static Service<UserDTO, Long> getUserService() {
+        return timed("UserService", new UserService(userDAO, departMapper, userMapper, taskMapper));
     }
 
+    /**
+     * Stops the background tasks started by the factory, such as the cache invalidation listener.
+     */
+    public static void shutdown() {
+        if (invalidationListener != null) {
+            invalidationListener.close();
+        }
+    }
+
+    private static MetricsRegistry metricsRegistry() {
+        if (AppProperties.getBoolean("metrics.enabled", true)) {
+            return MetricsRegistry.getDefault();
+        }
+        // the timed decorators also feed the Server-Timing phases and the Flight Recorder events,
+        // their histograms are then kept out of /metrics
+        return new MetricsRegistry();
+    }
+
+    private static <T> DAO<T, Long> timed(String name, DAO<T, Long> dao) {
+        return new TimedDAO<>(dao, name, metrics);
+    }
+
+    private static <T> Service<T, Long> timed(String name, Service<T, Long> service) {
+        return new TimedService<>(service, name, metrics);
+    }
+
+    private static void publish(String name, EntityCache<?, ?> cache) {
+        metrics.counter("cache_hits_total", "Lookups served from the entity cache", cache::getHitCount, "cache", name);
+        metrics.counter("cache_misses_total", "Lookups not found in the entity cache", cache::getMissCount, "cache", name);
+        metrics.counter("cache_evictions_total", "Entries evicted by size or expired",
+                cache::getEvictionCount, "cache", name);
+        metrics.counter("cache_invalidations_total", "Entries invalidated by writes",
+                cache::getInvalidationCount, "cache", name);
+        metrics.gauge("cache_entries", "Entries in the entity cache", cache::size, "cache", name);
+    }
+
+    private static <V> EntityCache<Long, V> newCache() {
+        return new EntityCache<>(
+                AppProperties.getInt("cache.max-size", 10_000),
+                AppProperties.getInt("cache.ttl-seconds", 60),
+                TimeUnit.SECONDS
+        );
+    }
+
+    private static List<Long> departmentIds(Department department) {
+        return department == null || department.getDepartment_id() == null
+                ? List.of()
+                : List.of(department.getDepartment_id());
+    }
+
+    private static List<Long> userIds(List<User> userList) {
+        if (isNotLoaded(userList)) {
+            return null;
+        }
+        if (userList == null) {
+            return List.of();
+        }
+        return userList.stream().map(User::getUser_id).filter(Objects::nonNull).toList();
+    }
+
+    private static List<Long> taskIds(List<Task> taskList) {
+        if (isNotLoaded(taskList)) {
+            return null;
+        }
+        if (taskList == null) {
+            return List.of();
+        }
+        return taskList.stream().map(Task::getTask_id).filter(Objects::nonNull).toList();
+    }
+
+    // loading the list now would return the state after the write, not the related entities before it
+    private static boolean isNotLoaded(List<?> list) {
+        return list instanceof LazyList<?> lazyList && !lazyList.isLoaded();
+    }
 }
@@ -2,6 +2,7 @@ package dao;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * The Dao interface defines the contract for data access operations related to entities.
@@ -15,13 +16,78 @@ public interface DAO<T, K> {
      * @param id The unique identifier of the T object.
      * @return An Optional containing the T object if found, or an empty Optional if not found.
      */
-    Optional<T> get(K id);
+    default Optional<T> get(K id) {
+        return get(id, FieldSet.ALL);
+    }
+    /**
+     * Retrieves a T object by its unique identifier, querying only the child collections of the FieldSet.
+     *
+     * @param id The unique identifier of the T object.
+     * @param fields The requested fields; the child collections outside of it are left empty.
+     * @return An Optional containing the T object if found, or an empty Optional if not found.
+     */
+    Optional<T> get(K id, FieldSet fields);
+    /**
+     * Retrieves only the version of a T object and the versions of the rows embedded in it for the FieldSet,
+     * without loading the T object, so a client's copy can be validated cheaply.
+     *
+     * @param id The unique identifier of the T object.
+     * @param fields The requested fields; the versions of the child collections outside of it are not queried.
+     * @return An Optional containing the RowVersions if found, or an empty Optional if not found.
+     */
+    Optional<RowVersions> getVersions(K id, FieldSet fields);
     /**
      * Retrieves a list of all T objects available in the data store.
      *
      * @return A list of T objects, or an empty list if no T objects are found.
      */
-    List<T> getAll();
+    default List<T> getAll() {
+        return getAll(FieldSet.ALL);
+    }
+    /**
+     * Retrieves a list of all T objects, querying only the child collections of the FieldSet.
+     *
+     * @param fields The requested fields; the child collections outside of it are left empty.
+     * @return A list of T objects, or an empty list if no T objects are found.
+     */
+    List<T> getAll(FieldSet fields);
+    /**
+     * Retrieves the next page of T objects using keyset pagination on the unique identifier.
+     * The objects are ordered by their identifier, so the identifier of the last object of a page
+     * is the afterId of the following page.
+     *
+     * @param afterId The identifier after which the page starts, or null for the first page.
+     * @param limit The maximum number of T objects in the page.
+     * @return A list of at most limit T objects, or an empty list if there are no more T objects.
+     */
+    default List<T> getPage(K afterId, int limit) {
+        return getPage(afterId, limit, FieldSet.ALL);
+    }
+    /**
+     * Retrieves the next page of T objects, querying only the child collections of the FieldSet.
+     *
+     * @param afterId The identifier after which the page starts, or null for the first page.
+     * @param limit The maximum number of T objects in the page.
+     * @param fields The requested fields; the child collections outside of it are left empty.
+     * @return A list of at most limit T objects, or an empty list if there are no more T objects.
+     */
+    List<T> getPage(K afterId, int limit, FieldSet fields);
+    /**
+     * Passes all T objects available in the data store to the consumer one by one, without
+     * holding the whole result in memory.
+     *
+     * @param consumer The callback receiving every T object.
+     */
+    default void streamAll(Consumer<? super T> consumer) {
+        streamAll(FieldSet.ALL, consumer);
+    }
+    /**
+     * Passes all T objects to the consumer one by one, querying only the child collections of the FieldSet.
+     *
+     * @param fields The requested fields; the child collections outside of it are left empty.
+     * @param consumer The callback receiving every T object.
+     */
+    void streamAll(FieldSet fields, Consumer<? super T> consumer);
     /**
      * Creates a new T object in the data store.
      *
@@ -29,9 +95,18 @@ public interface DAO<T, K> {
      */
     void create(T obj);
     /**
-     * Updates an existing T object in the data store.
+     * Creates all T objects in the data store at once, in a single transaction.
+     * The generated identifiers are set on the T objects in the order of the list.
+     *
+     * @param objs The T object entities to be created.
+     */
+    void createAll(List<T> objs);
+    /**
+     * Updates an existing T object in the data store and increments its version.
+     * If the T object carries a version, the row is updated only if it still has that version.
      *
      * @param obj The T object entity to be updated.
+     * @throws OptimisticLockException If the T object carries a version the row no longer has.
      */
     void update(T obj);
     /**
@@ -0,0 +1,16 @@
+package dao;
+
+/**
+ * The FetchMode enum defines how a DAO loads the child collections of the entities it returns.
+ */
+public enum FetchMode {
+    /**
+     * The child collections are queried once for every parent row.
+     */
+    PER_ROW,
+    /**
+     * The child collections of all parents are queried with a fixed number of statements
+     * and attached to their parents in memory.
+     */
+    BATCH
+}
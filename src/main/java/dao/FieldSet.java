@@ -0,0 +1,128 @@
+package dao;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The FieldSet class holds the fields of the entities requested by a client (a sparse fieldset)
+ * and the child collections to be expanded. The field names are the JSON property names of the DTOs,
+ * for example user_id or taskList; the expansions are the names users and tasks.
+ * A DAO queries only the child collections included in the FieldSet; the other collections of the
+ * returned entities are LazyLists, queried on first access.
+ */
+public final class FieldSet {
+    public static final String USER_LIST = "userList";
+    public static final String TASK_LIST = "taskList";
+    private static final List<String> COLLECTIONS = List.of(USER_LIST, TASK_LIST);
+    private static final Map<String, String> EXPANSIONS = Map.of("users", USER_LIST, "tasks", TASK_LIST);
+    /**
+     * The FieldSet including every field and every child collection.
+     */
+    public static final FieldSet ALL = new FieldSet(null, null);
+    /**
+     * The FieldSet including every field except the child collections, used when the client
+     * neither restricts the fields nor expands a collection.
+     */
+    public static final FieldSet WITHOUT_COLLECTIONS = new FieldSet(null, Collections.emptySet());
+
+    private final Set<String> fields;
+    private final Set<String> collections;
+
+    private FieldSet(Set<String> fields, Set<String> collections) {
+        this.fields = fields;
+        this.collections = collections;
+    }
+    /**
+     * Creates a FieldSet of the specified fields. A child collection is included only if it is one of the fields.
+     *
+     * @param fields The names of the requested fields.
+     * @return the FieldSet including only the specified fields.
+     */
+    public static FieldSet of(String... fields) {
+        return new FieldSet(toSet(Arrays.asList(fields)), Collections.emptySet());
+    }
+    /**
+     * Parses the comma-separated lists of field names and expansions, for example the values of the
+     * fields and expand query parameters. Blank names are ignored.
+     *
+     * @param fields The comma-separated field names, or null to request every field.
+     * @param expand The comma-separated expansions (users, tasks), or null to expand no collection.
+     * @return the FieldSet of the names.
+     * @throws IllegalArgumentException If an expansion is unknown.
+     */
+    public static FieldSet parse(String fields, String expand) {
+        Set<String> collections = new LinkedHashSet<>();
+        for (String expansion : split(expand)) {
+            String collection = EXPANSIONS.get(expansion);
+            if (collection == null) {
+                throw new IllegalArgumentException("Unknown expansion: " + expansion);
+            }
+            collections.add(collection);
+        }
+
+        List<String> fieldNames = split(fields);
+        return new FieldSet(fieldNames.isEmpty() ? null : toSet(fieldNames), Collections.unmodifiableSet(collections));
+    }
+    /**
+     * Checks whether the FieldSet includes every field and every child collection.
+     *
+     * @return true if nothing is restricted.
+     */
+    public boolean isAll() {
+        return fields == null && collections == null;
+    }
+    /**
+     * Checks whether the field is requested. A child collection is requested if it is expanded
+     * or explicitly listed in the fields.
+     *
+     * @param field The name of the field.
+     * @return true if the FieldSet includes the field.
+     */
+    public boolean includes(String field) {
+        if (COLLECTIONS.contains(field)) {
+            return collections == null || collections.contains(field) || fields != null && fields.contains(field);
+        }
+        return fields == null || fields.contains(field);
+    }
+    /**
+     * Returns the names of the explicitly requested fields and expanded collections.
+     *
+     * @return the field names, or an empty set if nothing is requested explicitly.
+     */
+    public Set<String> getFields() {
+        Set<String> names = new LinkedHashSet<>();
+        if (fields != null) {
+            names.addAll(fields);
+        }
+        if (collections != null) {
+            names.addAll(collections);
+        }
+        return names;
+    }
+
+    @Override
+    public String toString() {
+        if (isAll()) {
+            return "*";
+        }
+        return (fields == null ? "*" : String.join(",", fields)) + ";expand=" + String.join(",", collections);
+    }
+
+    private static List<String> split(String value) {
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toList();
+    }
+
+    private static Set<String> toSet(List<String> names) {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(names));
+    }
+}
@@ -0,0 +1,13 @@
+package dao;
+
+/**
+ * The OptimisticLockException is thrown by a conditional update when the row no longer has the version
+ * the client has read, because it was updated or deleted in the meantime.
+ */
+public class OptimisticLockException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public OptimisticLockException(String message) {
+        super(message);
+    }
+}
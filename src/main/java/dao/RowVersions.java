@@ -0,0 +1,89 @@
+package dao;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The RowVersions class holds the version of an entity row together with the identifiers and versions of the
+ * rows embedded in its representation: the department of a user or a task and the rows of the expanded child
+ * collections with their departments. Every update of one of these rows, and every row added to or removed from an expanded collection,
+ * changes the canonical form returned by toString, so it identifies one state of the representation.
+ */
+public final class RowVersions {
+    public static final String DEPARTMENT = "department";
+    private static final long UNKNOWN = -1;
+
+    private final long version;
+    private final Map<String, SortedMap<Long, Long>> related = new TreeMap<>();
+
+    /**
+     * Constructs a new RowVersions of an entity row.
+     *
+     * @param version The version of the entity row, or null if it is not known.
+     */
+    public RowVersions(Long version) {
+        this.version = Objects.requireNonNullElse(version, UNKNOWN);
+    }
+    /**
+     * Adds an embedded row. The rows of a relation are kept in the order of their identifiers,
+     * whatever the order they are added in.
+     *
+     * @param relation The name of the relation, RowVersions.DEPARTMENT, FieldSet.USER_LIST or FieldSet.TASK_LIST,
+     *                 or a relation of their rows returned by departmentOf.
+     * @param id The unique identifier of the embedded row.
+     * @param version The version of the embedded row, or null if it is not known.
+     * @return this RowVersions.
+     */
+    public RowVersions add(String relation, Long id, Long version) {
+        related.computeIfAbsent(relation, name -> new TreeMap<>())
+                .put(id, Objects.requireNonNullElse(version, UNKNOWN));
+        return this;
+    }
+
+    /**
+     * Returns the name of the relation of the departments of the rows of an expanded collection.
+     *
+     * @param collection The name of the collection, FieldSet.USER_LIST or FieldSet.TASK_LIST.
+     * @return the name of the relation, for example taskList.department.
+     */
+    public static String departmentOf(String collection) {
+        return collection + '.' + DEPARTMENT;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(version, related);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || this.getClass() != obj.getClass()) return false;
+        RowVersions rowVersions = (RowVersions) obj;
+        return version == rowVersions.version && related.equals(rowVersions.related);
+    }
+    /**
+     * Returns the canonical form, for example 3;department=7:0;taskList=1:2,5:0.
+     *
+     * @return the version followed by the id:version pairs of every relation.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder().append(version);
+        related.forEach((relation, rows) -> {
+            builder.append(';').append(relation).append('=');
+            String separator = "";
+            for (Map.Entry<Long, Long> row : rows.entrySet()) {
+                builder.append(separator).append(row.getKey()).append(':').append(row.getValue());
+                separator = ",";
+            }
+        });
+        return builder.toString();
+    }
+}
@@ -0,0 +1,199 @@
+package dao.cache;
+
+import dao.DAO;
+import dao.FieldSet;
+import dao.RowVersions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The CachingDAO class is a read-through caching decorator of the DAO interface.
+ * get is served from an EntityCache and falls through to the decorated DAO on a miss.
+ * create, update and delete invalidate the entry of the written entity and the entries of
+ * the related entities in the dependent caches, for example the department whose user list
+ * changed because a user moved to another department.
+ */
+public class CachingDAO<T, K> implements DAO<T, K> {
+    private final DAO<T, K> delegate;
+    private final EntityCache<K, T> cache;
+    private final Function<T, K> idOf;
+    private final List<Dependent<T, ?>> dependents = new ArrayList<>();
+
+    /**
+     * A cache holding entities that embed data of the entities of this DAO.
+     *
+     * @param target The dependent CachingDAO.
+     * @param relatedIds Returns the identifiers of the dependent entities that embed the given entity,
+     *                   or null if they are not known, for example because a LazyList is not loaded.
+     */
+    private record Dependent<T, R>(CachingDAO<?, R> target, Function<T, Collection<R>> relatedIds) {
+
+        void invalidate(T before, T after, boolean beforeKnown) {
+            Collection<R> beforeIds = before == null ? List.of() : relatedIds.apply(before);
+            Collection<R> afterIds = after == null ? List.of() : relatedIds.apply(after);
+            if (!beforeKnown || beforeIds == null || afterIds == null) {
+                target.invalidateAll();
+                return;
+            }
+            beforeIds.forEach(target::invalidate);
+            afterIds.forEach(target::invalidate);
+        }
+    }
+    /**
+     * Constructs a new CachingDAO around the specified DAO.
+     *
+     * @param delegate The DAO the reads fall through to and the writes are passed to.
+     * @param cache The cache holding the entities by their identifier.
+     * @param idOf Returns the identifier of an entity.
+     */
+    public CachingDAO(DAO<T, K> delegate, EntityCache<K, T> cache, Function<T, K> idOf) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.idOf = idOf;
+    }
+    /**
+     * Registers a cache whose entries embed data of the entities of this DAO. After a write the entries of
+     * the related entities of both the previous and the new state are invalidated. If the previous state
+     * of an updated or deleted entity is not cached, or its related entities are not known, the dependent cache
+     * is cleared completely.
+     *
+     * @param target The dependent CachingDAO.
+     * @param relatedIds Returns the identifiers of the dependent entities that embed the given entity,
+     *                   or null if they are not known.
+     */
+    public <R> void addDependent(CachingDAO<?, R> target, Function<T, Collection<R>> relatedIds) {
+        dependents.add(new Dependent<>(target, relatedIds));
+    }
+
+    public EntityCache<K, T> getCache() {
+        return cache;
+    }
+    /**
+     * Retrieves a T object by its unique identifier, from the cache if present. The child collections
+     * not queried for the FieldSet of the first request are LazyLists, so a cached entity serves every FieldSet.
+     *
+     * @param id The unique identifier of the T object.
+     * @param fields The requested fields.
+     * @return An Optional containing the T object if found, or an empty Optional if not found.
+     */
+    @Override
+    public Optional<T> get(K id, FieldSet fields) {
+        T cached = cache.get(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long epoch = cache.currentEpoch();
+        Optional<T> loaded = delegate.get(id, fields);
+        loaded.ifPresent(obj -> cache.putIfEpoch(id, obj, epoch));
+        return loaded;
+    }
+    /**
+     * Retrieves the versions of a T object from the decorated DAO. They are never cached, since they
+     * validate the cached entities of the clients.
+     *
+     * @param id The unique identifier of the T object.
+     * @param fields The requested fields.
+     * @return An Optional containing the RowVersions if found, or an empty Optional if not found.
+     */
+    @Override
+    public Optional<RowVersions> getVersions(K id, FieldSet fields) {
+        return delegate.getVersions(id, fields);
+    }
+
+    @Override
+    public List<T> getAll(FieldSet fields) {
+        return delegate.getAll(fields);
+    }
+
+    @Override
+    public List<T> getPage(K afterId, int limit, FieldSet fields) {
+        return delegate.getPage(afterId, limit, fields);
+    }
+
+    @Override
+    public void streamAll(FieldSet fields, Consumer<? super T> consumer) {
+        delegate.streamAll(fields, consumer);
+    }
+    /**
+     * Creates a new T object and invalidates the dependent entities it is related to.
+     *
+     * @param obj The T object entity to be created.
+     */
+    @Override
+    public void create(T obj) {
+        delegate.create(obj);
+        invalidateCreated(obj);
+    }
+    /**
+     * Creates all T objects and invalidates the dependent entities they are related to.
+     *
+     * @param objs The T object entities to be created.
+     */
+    @Override
+    public void createAll(List<T> objs) {
+        delegate.createAll(objs);
+        objs.forEach(this::invalidateCreated);
+    }
+
+    private void invalidateCreated(T obj) {
+        K id = idOf.apply(obj);
+        if (id != null) {
+            cache.invalidate(id);
+        }
+        dependents.forEach(dependent -> dependent.invalidate(null, obj, true));
+    }
+    /**
+     * Updates an existing T object and invalidates its entry and the dependent entities
+     * related to its previous and new state.
+     *
+     * @param obj The T object entity to be updated.
+     */
+    @Override
+    public void update(T obj) {
+        K id = idOf.apply(obj);
+        T before = cache.peek(id);
+        try {
+            delegate.update(obj);
+        }
+        finally {
+            cache.invalidate(id);
+            dependents.forEach(dependent -> dependent.invalidate(before, obj, before != null));
+        }
+    }
+    /**
+     * Deletes a T object and invalidates its entry and the dependent entities related to it.
+     *
+     * @param id The unique identifier of the T object to be deleted.
+     */
+    @Override
+    public void delete(K id) {
+        T before = cache.peek(id);
+        try {
+            delegate.delete(id);
+        }
+        finally {
+            cache.invalidate(id);
+            dependents.forEach(dependent -> dependent.invalidate(before, null, before != null));
+        }
+    }
+    /**
+     * Removes the entry of the identifier from the cache.
+     *
+     * @param id The unique identifier of the entity to be invalidated.
+     */
+    public void invalidate(K id) {
+        cache.invalidate(id);
+    }
+    /**
+     * Removes all entries from the cache.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,190 @@
+package dao.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The EntityCache class is a bounded in-memory cache with LRU eviction and a time to live.
+ * When the cache is full the least recently used entry is evicted, entries older than the
+ * time to live are treated as absent. Hits, misses, evictions and invalidations are counted.
+ * Every invalidation advances the epoch of the cache, so a value loaded before a concurrent write
+ * can be rejected with putIfEpoch instead of overwriting the invalidation.
+ */
+public class EntityCache<K, V> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<K, Entry<V>> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final AtomicLong epoch = new AtomicLong();
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+    /**
+     * Constructs a new EntityCache with the specified bounds.
+     *
+     * @param maxSize The maximum number of entries kept in the cache.
+     * @param ttl The time an entry stays valid after it was put, 0 to keep entries until they are evicted.
+     * @param unit The unit of the ttl.
+     */
+    public EntityCache(int maxSize, long ttl, TimeUnit unit) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > EntityCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    /**
+     * Returns the cached value for the key and marks it as recently used.
+     *
+     * @param key The key of the value.
+     * @return the cached value, or null if the key is absent or its entry has expired.
+     */
+    public V get(K key) {
+        V value = lookup(key);
+        if (value == null) {
+            misses.increment();
+        }
+        else {
+            hits.increment();
+        }
+        return value;
+    }
+    /**
+     * Returns the cached value for the key without counting a hit or a miss.
+     *
+     * @param key The key of the value.
+     * @return the cached value, or null if the key is absent or its entry has expired.
+     */
+    public V peek(K key) {
+        return lookup(key);
+    }
+    /**
+     * Puts the value into the cache, evicting the least recently used entry if the cache is full.
+     *
+     * @param key The key of the value.
+     * @param value The value to be cached.
+     */
+    public void put(K key, V value) {
+        long expiresAt = System.nanoTime() + ttlNanos;
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, expiresAt));
+        }
+    }
+    /**
+     * Returns the current epoch, to be passed to putIfEpoch after the value has been loaded.
+     *
+     * @return the number of invalidations performed on this cache so far.
+     */
+    public long currentEpoch() {
+        return epoch.get();
+    }
+    /**
+     * Puts the value into the cache unless an invalidation happened since the epoch was read.
+     *
+     * @param key The key of the value.
+     * @param value The value to be cached.
+     * @param expectedEpoch The epoch read before the value was loaded.
+     * @return true if the value was cached.
+     */
+    public boolean putIfEpoch(K key, V value, long expectedEpoch) {
+        long expiresAt = System.nanoTime() + ttlNanos;
+        synchronized (entries) {
+            if (epoch.get() != expectedEpoch) {
+                return false;
+            }
+            entries.put(key, new Entry<>(value, expiresAt));
+            return true;
+        }
+    }
+    /**
+     * Removes the entry of the key from the cache.
+     *
+     * @param key The key to be invalidated.
+     */
+    public void invalidate(K key) {
+        synchronized (entries) {
+            epoch.incrementAndGet();
+            if (entries.remove(key) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+    /**
+     * Removes all entries from the cache.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            epoch.incrementAndGet();
+            invalidations.add(entries.size());
+            entries.clear();
+        }
+    }
+    /**
+     * Returns the current number of entries, including expired entries not removed yet.
+     *
+     * @return the number of entries in the cache.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    private V lookup(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (ttlNanos > 0 && entry.expiresAt() - System.nanoTime() < 0) {
+                entries.remove(key);
+                evictions.increment();
+                return null;
+            }
+            return entry.value();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EntityCache{" +
+                "size = " + size() +
+                ", hits = " + getHitCount() +
+                ", misses = " + getMissCount() +
+                ", evictions = " + getEvictionCount() +
+                ", invalidations = " + getInvalidationCount() +
+                '}';
+    }
+}
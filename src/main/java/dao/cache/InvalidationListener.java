@@ -0,0 +1,159 @@
+package dao.cache;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * The InvalidationListener class keeps the entity caches of this node consistent with writes made by
+ * other nodes. It runs a background thread that LISTENs on the cache_invalidation channel of PostgreSQL,
+ * where the triggers from cache_invalidation.sql publish "entity:id" payloads, and evicts the named keys.
+ * Notifications sent while the listener is disconnected are lost, so all caches are flushed whenever the
+ * connection is (re)established.
+ */
+public class InvalidationListener implements Runnable, AutoCloseable {
+    public static final String CHANNEL = "cache_invalidation";
+    private static final Logger log = LoggerFactory.getLogger(InvalidationListener.class.getName());
+
+    private final ConnectionFactory connectionFactory;
+    private final Map<String, CachingDAO<?, Long>> caches;
+    private final int pollMillis;
+    private final long reconnectDelayMillis;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    /**
+     * Opens the dedicated connection the listener keeps while it is running.
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        /**
+         * Opens a new connection.
+         *
+         * @return a new Connection to the database publishing the notifications.
+         * @throws SQLException If the connection could not be established.
+         */
+        Connection open() throws SQLException;
+    }
+    /**
+     * Constructs a new InvalidationListener.
+     *
+     * @param connectionFactory Opens the dedicated connection used for LISTEN.
+     * @param caches The caches by the entity name used in the payloads: users, tasks or departments.
+     * @param pollMillis The maximum time to wait for notifications before checking whether the listener was closed.
+     * @param reconnectDelayMillis The time to wait before reconnecting after the connection was lost.
+     */
+    public InvalidationListener(ConnectionFactory connectionFactory, Map<String, CachingDAO<?, Long>> caches,
+                                int pollMillis, long reconnectDelayMillis) {
+        this.connectionFactory = connectionFactory;
+        this.caches = caches;
+        this.pollMillis = pollMillis;
+        this.reconnectDelayMillis = reconnectDelayMillis;
+    }
+    /**
+     * Starts the listener on a daemon thread.
+     */
+    public synchronized void start() {
+        if (thread == null) {
+            thread = new Thread(this, "cache-invalidation-listener");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try (Connection connection = connectionFactory.open()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                invalidateAll();
+                log.info("Listening for cache invalidations on channel {}", CHANNEL);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollMillis);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                }
+            }
+            catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                log.warn("Cache invalidation listener lost its connection, flushing all caches", e);
+                invalidateAll();
+                sleep();
+            }
+        }
+    }
+    /**
+     * Evicts the key named by the payload of a notification.
+     *
+     * @param payload The payload in the "entity:id" format.
+     */
+    void handle(String payload) {
+        int separator = payload.indexOf(':');
+        if (separator < 0) {
+            log.warn("Malformed cache invalidation payload: {}", payload);
+            return;
+        }
+
+        CachingDAO<?, Long> cache = caches.get(payload.substring(0, separator));
+        if (cache == null) {
+            return;
+        }
+
+        try {
+            cache.invalidate(Long.valueOf(payload.substring(separator + 1)));
+        }
+        catch (NumberFormatException e) {
+            log.warn("Malformed cache invalidation payload: {}", payload);
+        }
+    }
+    /**
+     * Stops the listener and waits for its thread to finish.
+     */
+    @Override
+    public void close() {
+        running = false;
+        Thread current;
+        synchronized (this) {
+            current = thread;
+        }
+        if (current != null) {
+            current.interrupt();
+            try {
+                current.join(pollMillis + reconnectDelayMillis);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void invalidateAll() {
+        caches.values().forEach(CachingDAO::invalidateAll);
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(reconnectDelayMillis);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package dao.impl;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The BatchLoader class loads the child rows of many parent entities with chunked
+ * "parent_id = ANY(?)" statements instead of one statement for every parent.
+ * A listing of n parents costs n / chunkSize round trips for each child collection.
+ */
+public class BatchLoader {
+    /**
+     * The chunk size used when none is configured.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private final int chunkSize;
+
+    /**
+     * Callback invoked for every row of a child result set.
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        /**
+         * Handles the current row of the result set.
+         *
+         * @param resultSet The result set positioned on the row to be handled.
+         * @throws SQLException If a column of the row could not be read.
+         */
+        void handle(ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * Constructs a new BatchLoader with the specified chunk size.
+     *
+     * @param chunkSize The maximum number of parent ids bound to a single statement.
+     */
+    public BatchLoader(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+    /**
+     * Returns the maximum number of parent ids bound to a single statement.
+     *
+     * @return the chunk size of this loader.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+    /**
+     * Executes the statement once for every chunk of the parent ids and passes each returned row to the handler.
+     * The statement must have a single bigint[] parameter, for example "WHERE user_id = ANY(?)".
+     *
+     * @param connection The connection used to execute the statement.
+     * @param sql The SQL text of the child statement.
+     * @param ids The ids of the parent entities.
+     * @param handler The callback invoked for every child row.
+     * @throws SQLException If the statement could not be executed.
+     */
+    public void load(Connection connection, String sql, Collection<Long> ids, RowHandler handler) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        List<Long> idList = new ArrayList<>(ids);
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            for (int from = 0; from < idList.size(); from += chunkSize) {
+                List<Long> chunk = idList.subList(from, Math.min(from + chunkSize, idList.size()));
+                Array array = connection.createArrayOf("bigint", chunk.toArray());
+
+                try {
+                    preparedStatement.setArray(1, array);
+
+                    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                        while (resultSet.next()) {
+                            handler.handle(resultSet);
+                        }
+                    }
+                }
+                finally {
+                    array.free();
+                }
+            }
+        }
+    }
+}
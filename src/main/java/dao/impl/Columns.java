@@ -0,0 +1,68 @@
+package dao.impl;
+
+/**
+ * The Columns class is the select list of a statement shape, for example the users joined with their
+ * departments. The statements of a shape are written with its list, so the index of a column in their
+ * result sets is resolved once from its label and the rows are read by index, instead of looking the
+ * name up case-insensitively for every cell.
+ */
+final class Columns {
+    private final String[] columns;
+    private final String list;
+
+    /**
+     * Constructs a new Columns shape.
+     *
+     * @param columns The selected columns in order, for example "u.user_id" or "ut.user_id AS link_id".
+     */
+    Columns(String... columns) {
+        this.columns = columns.clone();
+        this.list = String.join(", ", columns);
+    }
+    /**
+     * Returns the index of the column in the result sets of the statements of this shape.
+     *
+     * @param label The label of the column, its name without the table alias or its alias, for example user_id.
+     * @return the 1-based index of the column.
+     * @throws IllegalArgumentException If the shape does not select the column.
+     */
+    int indexOf(String label) {
+        for (int i = 0; i < columns.length; i++) {
+            if (label(columns[i]).equalsIgnoreCase(label)) {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("Column " + label + " is not selected by " + list);
+    }
+    /**
+     * Returns the indexes of the columns in the result sets of the statements of this shape.
+     *
+     * @param labels The labels of the columns.
+     * @return the 1-based indexes of the columns, in the order of the labels.
+     * @throws IllegalArgumentException If the shape does not select one of the columns.
+     */
+    int[] indexesOf(String... labels) {
+        int[] indexes = new int[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            indexes[i] = indexOf(labels[i]);
+        }
+        return indexes;
+    }
+
+    private static String label(String column) {
+        int alias = column.toUpperCase().lastIndexOf(" AS ");
+        if (alias >= 0) {
+            return column.substring(alias + 4).trim();
+        }
+        return column.substring(column.lastIndexOf('.') + 1).trim();
+    }
+    /**
+     * Returns the select list of the shape, to be formatted into its statements.
+     *
+     * @return the columns separated by commas.
+     */
+    @Override
+    public String toString() {
+        return list;
+    }
+}
@@ -1,6 +1,10 @@
 package dao.impl;
 
 import dao.DAO;
+import dao.FetchMode;
+import dao.FieldSet;
+import dao.OptimisticLockException;
+import dao.RowVersions;
 import models.Department;
 import models.Task;
 import models.User;
@@ -10,8 +14,12 @@ import org.slf4j.LoggerFactory;
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * The DepartmentDAO class is an implementation of the Dao interface. It provides concrete
@@ -20,183 +28,449 @@ import java.util.Optional;
  */
 public class DepartmentDAO implements DAO<Department, Long> {
     private final DataSource dataSource;
+    private final FetchMode fetchMode;
+    private final BatchLoader batchLoader;
     private static final String INSERT_SQL = """
             INSERT INTO departments (department_name)
             VALUES (?)
             """;
     private static final String UPDATE_SQL = """
             UPDATE departments
-            SET department_name = ?
+            SET department_name = ?, department_version = department_version + 1
             WHERE department_id = ?
             """;
+    private static final String UPDATE_VERSION_SQL = UPDATE_SQL + """
+            AND department_version = ?
+            """;
     private static final String DELETE_SQL = """
             DELETE FROM departments
             WHERE department_id = ?
             """;
+    private static final Columns DEPARTMENT_ROW = new Columns("department_id", "department_name", "department_version");
+    private static final Columns TASK_ROW = new Columns("task_id", "task_name", "task_version", "departments_id");
+    private static final Columns USER_ROW = new Columns("user_id", "user_firstname", "user_lastname", "user_version", "department_id");
+    private static final Columns TASK_VERSION_ROW = new Columns("task_id", "task_version");
+    private static final Columns USER_VERSION_ROW = new Columns("user_id", "user_version");
     private static final String SELECT_ALL_SQL = """
-            SELECT department_id, department_name 
+            SELECT %s
             FROM departments
-            """;
+            """.formatted(DEPARTMENT_ROW);
+    private static final String SELECT_PAGE_SQL = """
+            SELECT %s
+            FROM departments
+            WHERE department_id > ?
+            ORDER BY department_id
+            LIMIT ?
+            """.formatted(DEPARTMENT_ROW);
     private static final String SELECT_ID_SQL = """
-            SELECT department_id, department_name
-            FROM departments 
+            SELECT %s
+            FROM departments
             WHERE department_id = ?
-            """;
+            """.formatted(DEPARTMENT_ROW);
     private static final String SELECT_LIST_TASKS = """
-            SELECT task_id, task_name, departments_id
+            SELECT %s
             FROM tasks
             WHERE departments_id = ?
-            """;
+            """.formatted(TASK_ROW);
     private static final String SELECT_LIST_USERS = """
-            SELECT user_id, user_firstname, user_lastname, department_id
+            SELECT %s
+            FROM users
+            WHERE department_id = ?
+            """.formatted(USER_ROW);
+    private static final String SELECT_LIST_TASKS_BATCH = """
+            SELECT %s
+            FROM tasks
+            WHERE departments_id = ANY(?)
+            """.formatted(TASK_ROW);
+    private static final String SELECT_LIST_USERS_BATCH = """
+            SELECT %s
             FROM users
+            WHERE department_id = ANY(?)
+            """.formatted(USER_ROW);
+    private static final String SELECT_VERSION_SQL = """
+            SELECT department_version
+            FROM departments
             WHERE department_id = ?
             """;
-
-    private static final String department_id = "department_id";
-    private static final String department_name = "department_name";
-    private static final String task_id = "task_id";
-    private static final String task_name = "task_name";
+    private static final String SELECT_LIST_TASKS_VERSION_SQL = """
+            SELECT %s
+            FROM tasks
+            WHERE departments_id = ?
+            """.formatted(TASK_VERSION_ROW);
+    private static final String SELECT_LIST_USERS_VERSION_SQL = """
+            SELECT %s
+            FROM users
+            WHERE department_id = ?
+            """.formatted(USER_VERSION_ROW);
+    /**
+     * The ids of the statements of this DAO in the Flight Recorder events, by their SQL text.
+     */
+    static final Map<String, String> SQL_IDS = Map.ofEntries(
+            Map.entry(INSERT_SQL, "DepartmentDAO.INSERT_SQL"),
+            Map.entry(UPDATE_SQL, "DepartmentDAO.UPDATE_SQL"),
+            Map.entry(UPDATE_VERSION_SQL, "DepartmentDAO.UPDATE_VERSION_SQL"),
+            Map.entry(DELETE_SQL, "DepartmentDAO.DELETE_SQL"),
+            Map.entry(SELECT_ALL_SQL, "DepartmentDAO.SELECT_ALL_SQL"),
+            Map.entry(SELECT_PAGE_SQL, "DepartmentDAO.SELECT_PAGE_SQL"),
+            Map.entry(SELECT_ID_SQL, "DepartmentDAO.SELECT_ID_SQL"),
+            Map.entry(SELECT_LIST_TASKS, "DepartmentDAO.SELECT_LIST_TASKS"),
+            Map.entry(SELECT_LIST_USERS, "DepartmentDAO.SELECT_LIST_USERS"),
+            Map.entry(SELECT_LIST_TASKS_BATCH, "DepartmentDAO.SELECT_LIST_TASKS_BATCH"),
+            Map.entry(SELECT_LIST_USERS_BATCH, "DepartmentDAO.SELECT_LIST_USERS_BATCH"),
+            Map.entry(SELECT_VERSION_SQL, "DepartmentDAO.SELECT_VERSION_SQL"),
+            Map.entry(SELECT_LIST_TASKS_VERSION_SQL, "DepartmentDAO.SELECT_LIST_TASKS_VERSION_SQL"),
+            Map.entry(SELECT_LIST_USERS_VERSION_SQL, "DepartmentDAO.SELECT_LIST_USERS_VERSION_SQL"));
+
+    private static final RowMapper<Department> DEPARTMENTS = RowMapper.departments(DEPARTMENT_ROW);
+    private static final RowMapper<Task> TASKS = RowMapper.tasks(TASK_ROW);
+    private static final RowMapper<User> USERS = RowMapper.users(USER_ROW);
+    private static final int TASK_DEPARTMENT_ID = TASK_ROW.indexOf("departments_id");
+    private static final int USER_DEPARTMENT_ID = USER_ROW.indexOf("department_id");
+    private static final int[] TASK_VERSION_COLUMNS = TASK_VERSION_ROW.indexesOf("task_id", "task_version");
+    private static final int[] USER_VERSION_COLUMNS = USER_VERSION_ROW.indexesOf("user_id", "user_version");
     public static final String departments_id = "departments_id";
     public static final String user_id = "user_id";
-    private static final String user_firstName = "user_firstname";
-    private static final String user_lastName = "user_lastname";
     private static final Logger log = LoggerFactory.getLogger(DepartmentDAO.class.getName());
 
     /**
      * Constructs a new DepartmentDAO with the specified DataSource.
+     * The child collections are loaded in the BATCH mode.
      *
      * @param dataSource The DataSource to be used for database connections.
      */
     public DepartmentDAO(DataSource dataSource) {
+        this(dataSource, FetchMode.BATCH);
+    }
+    /**
+     * Constructs a new DepartmentDAO with the specified DataSource and FetchMode.
+     *
+     * @param dataSource The DataSource to be used for database connections.
+     * @param fetchMode The strategy used by getAll to load the users and tasks of the departments.
+     */
+    public DepartmentDAO(DataSource dataSource, FetchMode fetchMode) {
+        this(dataSource, fetchMode, BatchLoader.DEFAULT_CHUNK_SIZE);
+    }
+    /**
+     * Constructs a new DepartmentDAO with the specified DataSource, FetchMode and chunk size.
+     *
+     * @param dataSource The DataSource to be used for database connections.
+     * @param fetchMode The strategy used by getAll to load the users and tasks of the departments.
+     * @param chunkSize The maximum number of department ids bound to a single child statement in the BATCH mode.
+     */
+    public DepartmentDAO(DataSource dataSource, FetchMode fetchMode, int chunkSize) {
         this.dataSource = dataSource;
+        this.fetchMode = fetchMode;
+        this.batchLoader = new BatchLoader(chunkSize);
     }
     /**
-     * Retrieves a Department by its unique identifier.
+     * Returns the maximum number of department ids bound to a single child statement in the BATCH mode.
+     *
+     * @return the chunk size of this DAO.
+     */
+    public int getChunkSize() {
+        return batchLoader.getChunkSize();
+    }
+    /**
+     * Retrieves a Department by its unique identifier. The tasks and the users are queried only
+     * if the FieldSet includes the taskList and the userList, otherwise the lists are LazyLists.
      *
      * @param id The unique identifier of the Department.
+     * @param fields The requested fields.
      * @return An Optional containing the Department entity if found, or an empty Optional if not found.
      */
     @Override
-    public Optional<Department> get(Long id) {
+    public Optional<Department> get(Long id, FieldSet fields) {
         try (Connection connection = dataSource.getConnection();
-             PreparedStatement statementForIdDep = connection.prepareStatement(SELECT_ID_SQL);
-             PreparedStatement statementListTasks = connection.prepareStatement(SELECT_LIST_TASKS);
-             PreparedStatement statementListUsers = connection.prepareStatement(SELECT_LIST_USERS)) {
+             PreparedStatement statementForIdDep = connection.prepareStatement(SELECT_ID_SQL)) {
 
             statementForIdDep.setLong(1, id);
-            statementListTasks.setLong(1, id);
-            statementListUsers.setLong(1, id);
-
-            Optional<Department> department;
-            try (ResultSet resultSet = statementForIdDep.executeQuery();
-                ResultSet resultSetListTasks = statementListTasks.executeQuery();
-                ResultSet resultSetListUsers = statementListUsers.executeQuery()) {
-
-                if (resultSet.next()) {
-                    Department temp = new Department(
-                            resultSet.getLong(department_id),
-                            resultSet.getString(department_name)
-                    );
-
-                    Department copy = new Department(
-                            resultSet.getLong(department_id),
-                            resultSet.getString(department_name)
-                    );
-
-                    while (resultSetListTasks.next()) {
-                        Task task = new Task(
-                                resultSetListTasks.getLong(task_id),
-                                resultSetListTasks.getString(task_name),
-                                copy
-                        );
-
-                        temp.getTaskList().add(task);
 
-                    }
+            Department temp;
+            try (ResultSet resultSet = statementForIdDep.executeQuery()) {
+                if (!resultSet.next()) {
+                    return Optional.empty();
+                }
 
-                    while (resultSetListUsers.next()) {
-                        User user = new User(
-                                resultSetListUsers.getLong(user_id),
-                                resultSetListUsers.getString(user_firstName),
-                                resultSetListUsers.getString(user_lastName),
-                                copy
-                        );
+                temp = DEPARTMENTS.map(resultSet);
+            }
 
-                        temp.getUserList().add(user);
+            readChildren(connection, temp, fields);
 
-                    }
-                    department = Optional.of(temp);
-                }
-                else {
-                    department = Optional.empty();
+            return Optional.of(temp);
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Retrieves the version of a Department, and the versions of its tasks and users if the FieldSet
+     * includes the taskList and the userList, without reading the names.
+     *
+     * @param id The unique identifier of the Department.
+     * @param fields The requested fields.
+     * @return An Optional containing the RowVersions if found, or an empty Optional if not found.
+     */
+    @Override
+    public Optional<RowVersions> getVersions(Long id, FieldSet fields) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statementForIdDep = connection.prepareStatement(SELECT_VERSION_SQL)) {
+
+            statementForIdDep.setLong(1, id);
+
+            RowVersions versions;
+            try (ResultSet resultSet = statementForIdDep.executeQuery()) {
+                if (!resultSet.next()) {
+                    return Optional.empty();
                 }
+
+                versions = new RowVersions(resultSet.getLong(1));
+            }
+
+            if (fields.includes(FieldSet.TASK_LIST)) {
+                readChildVersions(connection, SELECT_LIST_TASKS_VERSION_SQL, id, versions, FieldSet.TASK_LIST, TASK_VERSION_COLUMNS);
+            }
+            if (fields.includes(FieldSet.USER_LIST)) {
+                readChildVersions(connection, SELECT_LIST_USERS_VERSION_SQL, id, versions, FieldSet.USER_LIST, USER_VERSION_COLUMNS);
             }
-            return department;
 
+            return Optional.of(versions);
         }
         catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
+    /**
+     * Queries the identifiers and versions of the children of a single department and adds them to the RowVersions.
+     *
+     * @param connection The connection used for the child statement.
+     * @param sql The statement selecting the identifier and version columns of the children of a department.
+     * @param id The unique identifier of the Department.
+     * @param versions The RowVersions of the Department.
+     * @param relation The name of the child collection.
+     * @param columns The indexes of the identifier and the version columns of the children.
+     * @throws SQLException If the child statement could not be executed.
+     */
+    private void readChildVersions(Connection connection, String sql, Long id, RowVersions versions, String relation,
+                                   int[] columns) throws SQLException {
+        try (PreparedStatement statementListChildren = connection.prepareStatement(sql)) {
+            statementListChildren.setLong(1, id);
+
+            try (ResultSet resultSetListChildren = statementListChildren.executeQuery()) {
+                while (resultSetListChildren.next()) {
+                    versions.add(relation, resultSetListChildren.getLong(columns[0]), resultSetListChildren.getLong(columns[1]));
+                }
+            }
+        }
+    }
     /**
      * Retrieves a list of all Department available in the database.
+     * The users and tasks of the departments are loaded according to the FetchMode of this DAO,
+     * if the FieldSet includes the userList and the taskList. Otherwise the lists are LazyLists.
      *
+     * @param fields The requested fields.
      * @return A list of Department entities, or an empty list if no Departments are found.
      */
     @Override
-    public List<Department> getAll() {
+    public List<Department> getAll(FieldSet fields) {
+        if (fetchMode == FetchMode.BATCH) {
+            return getAllBatch(fields);
+        }
+        return getAllPerRow(fields);
+    }
+    /**
+     * Retrieves all Departments with the departments statement followed by the chunked task and user
+     * statements of the BatchLoader. The children are attached to their departments in memory.
+     *
+     * @param fields The requested fields.
+     * @return A list of Department entities, or an empty list if no Departments are found.
+     */
+    private List<Department> getAllBatch(FieldSet fields) {
         try (Connection connection = dataSource.getConnection();
-            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ALL_SQL)) {
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ALL_SQL)) {
 
-            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            return readWithChildren(connection, preparedStatement, fields);
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Retrieves the next page of Departments ordered by their unique identifier.
+     * The users and tasks of the page are loaded with the chunked statements of the BatchLoader.
+     *
+     * @param afterId The identifier after which the page starts, or null for the first page.
+     * @param limit The maximum number of Departments in the page.
+     * @param fields The requested fields.
+     * @return A list of at most limit Department entities.
+     */
+    @Override
+    public List<Department> getPage(Long afterId, int limit, FieldSet fields) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_PAGE_SQL)) {
 
-                List<Department> departmentList = new ArrayList<>();
+            preparedStatement.setLong(1, afterId == null ? Long.MIN_VALUE : afterId);
+            preparedStatement.setInt(2, limit);
 
-                while (resultSet.next()) {
-                    Department temp = new Department(
-                            resultSet.getLong(department_id),
-                            resultSet.getString(department_name)
-                    );
+            return readWithChildren(connection, preparedStatement, fields);
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Streams all Departments to the consumer through a server-side cursor. The departments are fetched
+     * in batches of the chunk size, the users and tasks of each batch are loaded with the BatchLoader and
+     * the batch is handed to the consumer before the next one is fetched, so only one batch is held in memory.
+     *
+     * @param fields The requested fields.
+     * @param consumer The callback receiving every Department entity.
+     */
+    @Override
+    public void streamAll(FieldSet fields, Consumer<? super Department> consumer) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
 
-                    Department copy = new Department(
-                            resultSet.getLong(department_id),
-                            resultSet.getString(department_name)
-                    );
+            try (PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ALL_SQL)) {
+                preparedStatement.setFetchSize(batchLoader.getChunkSize());
 
-                    try (PreparedStatement statementListTasks = connection.prepareStatement(SELECT_LIST_TASKS);
-                         PreparedStatement statementListUsers = connection.prepareStatement(SELECT_LIST_USERS)) {
+                Map<Long, Department> departments = new LinkedHashMap<>();
 
-                        statementListTasks.setLong(1, resultSet.getLong(department_id));
-                        statementListUsers.setLong(1, resultSet.getLong(department_id));
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        Department temp = DEPARTMENTS.map(resultSet);
 
-                        try (ResultSet resultSetListTasks = statementListTasks.executeQuery();
-                             ResultSet resultSetListUsers = statementListUsers.executeQuery()) {
+                        departments.put(temp.getDepartment_id(), temp);
 
-                            while (resultSetListTasks.next()) {
-                                Task task = new Task(
-                                        resultSetListTasks.getLong(task_id),
-                                        resultSetListTasks.getString(task_name),
-                                        copy
-                                );
+                        if (departments.size() == batchLoader.getChunkSize()) {
+                            flush(connection, departments, fields, consumer);
+                        }
+                    }
+                }
+                flush(connection, departments, fields, consumer);
 
+                connection.commit();
+            }
+            catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+            finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Executes the departments statement, then loads the tasks and users of the returned departments
+     * requested by the FieldSet with the BatchLoader and attaches them in memory.
+     *
+     * @param connection The connection used for the child statements.
+     * @param preparedStatement The bound statement returning department_id and department_name.
+     * @param fields The requested fields.
+     * @return A list of Department entities in the order of the statement.
+     * @throws SQLException If one of the statements could not be executed.
+     */
+    private List<Department> readWithChildren(Connection connection, PreparedStatement preparedStatement,
+                                              FieldSet fields) throws SQLException {
+        Map<Long, Department> departments = new LinkedHashMap<>();
 
-                                temp.getTaskList().add(task);
-                            }
+        try (ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                Department temp = DEPARTMENTS.map(resultSet);
 
-                            while (resultSetListUsers.next()) {
-                                User user = new User(
-                                        resultSetListUsers.getLong(user_id),
-                                        resultSetListUsers.getString(user_firstName),
-                                        resultSetListUsers.getString(user_lastName),
-                                        copy
-                                );
+                departments.put(temp.getDepartment_id(), temp);
+            }
+        }
 
-                                temp.getUserList().add(user);
-                            }
+        attachChildren(connection, departments, fields);
+
+        return new ArrayList<>(departments.values());
+    }
+    /**
+     * Attaches the children to the buffered departments, passes them to the consumer and clears the buffer.
+     *
+     * @param connection The connection used for the child statements.
+     * @param departments The buffered Department entities by their identifier.
+     * @param fields The requested fields.
+     * @param consumer The callback receiving every Department entity.
+     * @throws SQLException If one of the child statements could not be executed.
+     */
+    private void flush(Connection connection, Map<Long, Department> departments, FieldSet fields,
+                       Consumer<? super Department> consumer) throws SQLException {
+        attachChildren(connection, departments, fields);
+        departments.values().forEach(consumer);
+        departments.clear();
+    }
+    /**
+     * Loads the tasks and users of the departments requested by the FieldSet with the BatchLoader and adds
+     * them to the lists of their departments; the other lists become LazyLists. The children reference a copy
+     * of their department without lists.
+     *
+     * @param connection The connection used for the child statements.
+     * @param departments The Department entities by their identifier.
+     * @param fields The requested fields.
+     * @throws SQLException If one of the child statements could not be executed.
+     */
+    private void attachChildren(Connection connection, Map<Long, Department> departments,
+                                FieldSet fields) throws SQLException {
+        boolean withTasks = fields.includes(FieldSet.TASK_LIST);
+        boolean withUsers = fields.includes(FieldSet.USER_LIST);
+        if (!withTasks) {
+            departments.values().forEach(this::lazyTasks);
+        }
+        if (!withUsers) {
+            departments.values().forEach(this::lazyUsers);
+        }
+        if (!withTasks && !withUsers) {
+            return;
+        }
+
+        Map<Long, Department> copies = new HashMap<>();
+        for (Department temp : departments.values()) {
+            copies.put(temp.getDepartment_id(), copyWithoutLists(temp));
+        }
+
+        if (withTasks) {
+            batchLoader.load(connection, SELECT_LIST_TASKS_BATCH, departments.keySet(), resultSetListTasks -> {
+                Long depId = resultSetListTasks.getLong(TASK_DEPARTMENT_ID);
+                Task task = TASKS.map(resultSetListTasks);
+                task.setDepartment(copies.get(depId));
+
+                departments.get(depId).getTaskList().add(task);
+            });
+        }
+
+        if (withUsers) {
+            batchLoader.load(connection, SELECT_LIST_USERS_BATCH, departments.keySet(), resultSetListUsers -> {
+                Long depId = resultSetListUsers.getLong(USER_DEPARTMENT_ID);
+                User user = USERS.map(resultSetListUsers);
+                user.setDepartment(copies.get(depId));
+
+                departments.get(depId).getUserList().add(user);
+            });
+        }
+    }
+    /**
+     * Retrieves all Departments querying the tasks and the users requested by the FieldSet once for every department.
+     *
+     * @param fields The requested fields.
+     * @return A list of Department entities, or an empty list if no Departments are found.
+     */
+    private List<Department> getAllPerRow(FieldSet fields) {
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ALL_SQL)) {
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+
+                List<Department> departmentList = new ArrayList<>();
+
+                while (resultSet.next()) {
+                    Department temp = DEPARTMENTS.map(resultSet);
+
+                    readChildren(connection, temp, fields);
 
-                        }
-                    }
                     departmentList.add(temp);
                 }
 
@@ -207,6 +481,132 @@ public class DepartmentDAO implements DAO<Department, Long> {
             throw new RuntimeException(e);
         }
     }
+    /**
+     * Queries the tasks and the users of a single department requested by the FieldSet and adds them
+     * to its lists. The lists outside of the FieldSet are LazyLists. The tasks and the users share
+     * one copy of the department without lists.
+     *
+     * @param connection The connection used for the child statements.
+     * @param temp The Department entity.
+     * @param fields The requested fields.
+     * @throws SQLException If one of the child statements could not be executed.
+     */
+    private void readChildren(Connection connection, Department temp, FieldSet fields) throws SQLException {
+        Department copy = fields.includes(FieldSet.TASK_LIST) || fields.includes(FieldSet.USER_LIST)
+                ? copyWithoutLists(temp)
+                : null;
+
+        if (fields.includes(FieldSet.TASK_LIST)) {
+            temp.getTaskList().addAll(readTasks(connection, temp, copy));
+        }
+        else {
+            lazyTasks(temp);
+        }
+
+        if (fields.includes(FieldSet.USER_LIST)) {
+            temp.getUserList().addAll(readUsers(connection, temp, copy));
+        }
+        else {
+            lazyUsers(temp);
+        }
+    }
+    /**
+     * Queries the tasks of a single department. The tasks reference a copy of the department without lists.
+     *
+     * @param connection The connection used for the task statement.
+     * @param department The Department entity.
+     * @param copy The copy of the department without lists.
+     * @return A list of the Task entities of the department.
+     * @throws SQLException If the task statement could not be executed.
+     */
+    private List<Task> readTasks(Connection connection, Department department, Department copy) throws SQLException {
+        try (PreparedStatement statementListTasks = connection.prepareStatement(SELECT_LIST_TASKS)) {
+            statementListTasks.setLong(1, department.getDepartment_id());
+
+            List<Task> taskList = new ArrayList<>();
+
+            try (ResultSet resultSetListTasks = statementListTasks.executeQuery()) {
+                while (resultSetListTasks.next()) {
+                    Task task = TASKS.map(resultSetListTasks);
+                    task.setDepartment(copy);
+
+                    taskList.add(task);
+                }
+            }
+
+            return taskList;
+        }
+    }
+    /**
+     * Queries the users of a single department. The users reference a copy of the department without lists.
+     *
+     * @param connection The connection used for the user statement.
+     * @param department The Department entity.
+     * @param copy The copy of the department without lists.
+     * @return A list of the User entities of the department.
+     * @throws SQLException If the user statement could not be executed.
+     */
+    private List<User> readUsers(Connection connection, Department department, Department copy) throws SQLException {
+        try (PreparedStatement statementListUsers = connection.prepareStatement(SELECT_LIST_USERS)) {
+            statementListUsers.setLong(1, department.getDepartment_id());
+
+            List<User> userList = new ArrayList<>();
+
+            try (ResultSet resultSetListUsers = statementListUsers.executeQuery()) {
+                while (resultSetListUsers.next()) {
+                    User user = USERS.map(resultSetListUsers);
+                    user.setDepartment(copy);
+
+                    userList.add(user);
+                }
+            }
+
+            return userList;
+        }
+    }
+    /**
+     * Copies the department without its lists, for the children referencing it. The children must not reach
+     * the lists of their department, the mappers would follow them back to the children; all the children of
+     * a department in a query share one copy.
+     *
+     * @param department The Department entity.
+     * @return A new Department with the identifier, the name and the version of the department.
+     */
+    private static Department copyWithoutLists(Department department) {
+        Department copy = new Department(department.getDepartment_id(), department.getDepartment_name());
+        copy.setDepartment_version(department.getDepartment_version());
+        return copy;
+    }
+    /**
+     * Makes the task list of the department a LazyList, queried with a connection of its own on first access.
+     *
+     * @param department The Department entity.
+     */
+    private void lazyTasks(Department department) {
+        department.lazyTaskList(() -> {
+            try (Connection connection = dataSource.getConnection()) {
+                return readTasks(connection, department, copyWithoutLists(department));
+            }
+            catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+    /**
+     * Makes the user list of the department a LazyList, queried with a connection of its own on first access.
+     *
+     * @param department The Department entity.
+     */
+    private void lazyUsers(Department department) {
+        department.lazyUserList(() -> {
+            try (Connection connection = dataSource.getConnection()) {
+                return readUsers(connection, department, copyWithoutLists(department));
+            }
+            catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
     /**
      * Creates a new Department in the database.
      *
@@ -239,20 +639,83 @@ public class DepartmentDAO implements DAO<Department, Long> {
         }
     }
     /**
-     * Updates an existing Department in the database.
+     * Creates the Departments in the database with a single JDBC batch in one transaction.
+     * The generated identifiers are set on the Departments in the order of the list.
+     *
+     * @param objs The Department entities to be created.
+     */
+    @Override
+    public void createAll(List<Department> objs) {
+        if (objs.isEmpty()) {
+            return;
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Department obj : objs) {
+                    preparedStatement.setString(1, obj.getDepartment_name());
+                    preparedStatement.addBatch();
+                }
+
+                for (int res : preparedStatement.executeBatch()) {
+                    if (res == 0) {
+                        throw new SQLException("A new department row doesn't create");
+                    }
+                }
+
+                try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+                    for (Department obj : objs) {
+                        if (keys.next()) {
+                            obj.setDepartment_id(keys.getLong(1));
+                        }
+                        else {
+                            throw new SQLException("Failed to create department, ID not received");
+                        }
+                    }
+                }
+
+                connection.commit();
+            }
+            catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+            finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Updates an existing Department in the database and increments its version. If the Department carries
+     * a version, the row is updated only if it still has that version, without locking it in advance.
      *
      * @param obj The Department entity to be updated.
+     * @throws OptimisticLockException If the Department carries a version the row no longer has.
      */
     @Override
     public void update(Department obj) {
+        boolean conditional = obj.getDepartment_version() != null;
+
         try (Connection connection = dataSource.getConnection();
-            PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_SQL)) {
+            PreparedStatement preparedStatement = connection.prepareStatement(conditional ? UPDATE_VERSION_SQL : UPDATE_SQL)) {
 
             preparedStatement.setString(1, obj.getDepartment_name());
             preparedStatement.setLong(2, obj.getDepartment_id());
+            if (conditional) {
+                preparedStatement.setLong(3, obj.getDepartment_version());
+            }
 
             int res = preparedStatement.executeUpdate();
 
+            if (res == 0 && conditional) {
+                throw new OptimisticLockException("Department " + obj.getDepartment_id() + " is not at version "
+                        + obj.getDepartment_version());
+            }
             if (res == 0) {
                 throw new SQLException("Failed to update a row in departments table");
             }
@@ -0,0 +1,53 @@
+package dao.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The IdentityMap class materializes every entity of a query once. The rows sharing an entity, such as the
+ * users of one department, resolve it through the map by its identifier and reference the same object,
+ * instead of every row allocating a copy of it. A map lives for one DAO call, or one batch of a stream,
+ * and is not thread-safe.
+ *
+ * @param <T> The type of the entities.
+ */
+final class IdentityMap<T> {
+    private final RowMapper<T> mapper;
+    private final int idColumn;
+    private final Map<Long, T> entities = new HashMap<>();
+
+    /**
+     * Constructs a new, empty IdentityMap.
+     *
+     * @param mapper The mapper of the entities.
+     * @param idColumn The index of the identifier column of the entities in the rows.
+     */
+    IdentityMap(RowMapper<T> mapper, int idColumn) {
+        this.mapper = mapper;
+        this.idColumn = idColumn;
+    }
+    /**
+     * Returns the entity of the current row, mapping the row only if the map has not seen its identifier yet.
+     *
+     * @param resultSet The result set positioned on a row.
+     * @return the entity with the identifier of the row, shared by all the rows of the map.
+     * @throws SQLException If a column of the row could not be read.
+     */
+    T map(ResultSet resultSet) throws SQLException {
+        Long id = resultSet.getLong(idColumn);
+        T entity = entities.get(id);
+        if (entity == null) {
+            entity = mapper.map(resultSet);
+            entities.put(id, entity);
+        }
+        return entity;
+    }
+    /**
+     * Forgets the entities, when the batch of a stream they belong to has been handed over.
+     */
+    void clear() {
+        entities.clear();
+    }
+}
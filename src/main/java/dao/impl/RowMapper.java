@@ -0,0 +1,86 @@
+package dao.impl;
+
+import models.Department;
+import models.Task;
+import models.User;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The RowMapper class maps the current row of a result set to an entity. The indexes of the columns of the
+ * entity are resolved from their labels in a Columns shape when the mapper is created, so a row costs the
+ * getters by index and the constructor of the entity. A mapper holds no state of a query and is shared by
+ * all the statements of its shape.
+ *
+ * @param <T> The type of the entity.
+ */
+final class RowMapper<T> {
+    private final int[] columns;
+    private final Reader<T> reader;
+
+    /**
+     * Reads an entity from the columns of the current row.
+     */
+    @FunctionalInterface
+    private interface Reader<T> {
+        T read(ResultSet resultSet, int[] columns) throws SQLException;
+    }
+
+    private RowMapper(Columns shape, Reader<T> reader, String... labels) {
+        this.columns = shape.indexesOf(labels);
+        this.reader = reader;
+    }
+    /**
+     * Returns a mapper of the departments selected by the shape, without lists.
+     *
+     * @param shape The select list containing department_id, department_name and department_version.
+     * @return the RowMapper of the Department entities.
+     */
+    static RowMapper<Department> departments(Columns shape) {
+        return new RowMapper<>(shape, (resultSet, columns) -> {
+            Department department = new Department(resultSet.getLong(columns[0]), resultSet.getString(columns[1]));
+            department.setDepartment_version(resultSet.getLong(columns[2]));
+            return department;
+        }, "department_id", "department_name", "department_version");
+    }
+    /**
+     * Returns a mapper of the tasks selected by the shape. The department of the tasks is left
+     * to the caller, which usually knows it already.
+     *
+     * @param shape The select list containing task_id, task_name and task_version.
+     * @return the RowMapper of the Task entities.
+     */
+    static RowMapper<Task> tasks(Columns shape) {
+        return new RowMapper<>(shape, (resultSet, columns) -> {
+            Task task = new Task(resultSet.getLong(columns[0]), resultSet.getString(columns[1]), null);
+            task.setTask_version(resultSet.getLong(columns[2]));
+            return task;
+        }, "task_id", "task_name", "task_version");
+    }
+    /**
+     * Returns a mapper of the users selected by the shape. The department of the users is left
+     * to the caller, which usually knows it already.
+     *
+     * @param shape The select list containing user_id, user_firstname, user_lastname and user_version.
+     * @return the RowMapper of the User entities.
+     */
+    static RowMapper<User> users(Columns shape) {
+        return new RowMapper<>(shape, (resultSet, columns) -> {
+            User user = new User(resultSet.getLong(columns[0]), resultSet.getString(columns[1]),
+                    resultSet.getString(columns[2]), null);
+            user.setUser_version(resultSet.getLong(columns[3]));
+            return user;
+        }, "user_id", "user_firstname", "user_lastname", "user_version");
+    }
+    /**
+     * Maps the current row of the result set.
+     *
+     * @param resultSet The result set of a statement of the shape, positioned on a row.
+     * @return a new entity.
+     * @throws SQLException If a column of the row could not be read.
+     */
+    T map(ResultSet resultSet) throws SQLException {
+        return reader.read(resultSet, columns);
+    }
+}
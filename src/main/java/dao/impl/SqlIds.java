@@ -0,0 +1,39 @@
+package dao.impl;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The SqlIds class names the statements of the DAOs for the Flight Recorder events of the InstrumentedDataSource.
+ * Every DAO declares the ids of its statements in its SQL_IDS map, for example UserDAO.SELECT_ID_SQL; a new DAO
+ * adds its map here.
+ */
+public final class SqlIds {
+    private static final Map<String, String> IDS = new HashMap<>();
+
+    static {
+        for (Map<String, String> ids : List.of(DepartmentDAO.SQL_IDS, TaskDAO.SQL_IDS, UserDAO.SQL_IDS)) {
+            ids.forEach((sql, id) -> {
+                String previous = IDS.putIfAbsent(sql, id);
+                if (previous != null) {
+                    throw new IllegalStateException(id + " has the same SQL text as " + previous);
+                }
+            });
+        }
+    }
+
+    private SqlIds() {
+    }
+    /**
+     * Returns the id of the SQL text.
+     *
+     * @param sql The SQL text of a statement.
+     * @return the id declared by the DAO of the statement, for example UserDAO.SELECT_ID_SQL, or a hash of a text
+     *         that no DAO declares.
+     */
+    public static String of(String sql) {
+        String id = IDS.get(sql);
+        return id != null ? id : "sql@" + Integer.toHexString(sql.hashCode());
+    }
+}
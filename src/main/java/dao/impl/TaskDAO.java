@@ -1,6 +1,10 @@
 package dao.impl;
 
 import dao.DAO;
+import dao.FetchMode;
+import dao.FieldSet;
+import dao.OptimisticLockException;
+import dao.RowVersions;
 import models.Department;
 import models.Task;
 import models.User;
@@ -10,8 +14,11 @@ import org.slf4j.LoggerFactory;
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * The TaskDAO class is an implementation of the Dao interface. It provides concrete
@@ -20,34 +27,70 @@ import java.util.Optional;
  */
 public class TaskDAO implements DAO<Task, Long> {
     private final DataSource dataSource;
-
+    private final FetchMode fetchMode;
+    private final BatchLoader batchLoader;
+
+    private static final Columns TASK_ROW = new Columns("t.task_id", "t.task_name", "t.task_version",
+            "d.department_id", "d.department_name", "d.department_version");
+    private static final Columns USER_ROW = new Columns("u.user_id", "u.user_firstname", "u.user_lastname",
+            "u.user_version", "ud.department_id", "ud.department_name", "ud.department_version", "ut.task_id");
+    private static final Columns VERSION_ROW = new Columns("t.task_version", "d.department_id", "d.department_version");
+    private static final Columns USER_VERSION_ROW = new Columns("u.user_id", "u.user_version", "u.department_id",
+            "ud.department_version");
     private static final String SELECT_ALL_SQL = """
-            SELECT task_id, task_name, department_id, department_name 
-            FROM tasks t JOIN departments d 
-            ON t.departments_id = d.department_id
-            """;
+            SELECT %s
+            FROM tasks t JOIN departments d ON t.departments_id = d.department_id
+            """.formatted(TASK_ROW);
+    private static final String SELECT_PAGE_SQL = """
+            SELECT %s
+            FROM tasks t JOIN departments d ON t.departments_id = d.department_id
+            WHERE t.task_id > ?
+            ORDER BY t.task_id
+            LIMIT ?
+            """.formatted(TASK_ROW);
     private static final String SELECT_ID_SQL = """
-            SELECT task_id, task_name, department_id, department_name
+            SELECT %s
             FROM tasks t JOIN departments d ON t.departments_id = d.department_id
-            WHERE task_id = ?
-            """;
+            WHERE t.task_id = ?
+            """.formatted(TASK_ROW);
     private static final String INSERT_SQL = """
             INSERT INTO tasks (task_name, departments_id)
             VALUES (?, ?)
             """;
     private static final String UPDATE_SQL = """
-            UPDATE tasks SET task_name = ?, departments_id = ?
+            UPDATE tasks SET task_name = ?, departments_id = ?, task_version = task_version + 1
             WHERE task_id = ?
             """;
+    private static final String UPDATE_VERSION_SQL = UPDATE_SQL + """
+            AND task_version = ?
+            """;
     private static final String DELETE_SQL = """
             DELETE FROM tasks
             WHERE task_id = ?
             """;
     private static final String SELECT_LIST_USERS_SQL = """
-            SELECT u.user_id AS user_id, task_id, user_firstname, user_lastname, department_id
+            SELECT %s
             FROM users_tasks ut JOIN users u ON ut.user_id = u.user_id
+                JOIN departments ud ON u.department_id = ud.department_id
             WHERE ut.task_id = ?
-            """;
+            """.formatted(USER_ROW);
+    private static final String SELECT_LIST_USERS_BATCH_SQL = """
+            SELECT %s
+            FROM users_tasks ut JOIN users u ON ut.user_id = u.user_id
+                JOIN departments ud ON u.department_id = ud.department_id
+            WHERE ut.task_id = ANY(?)
+            """.formatted(USER_ROW);
+    private static final String SELECT_VERSION_SQL = """
+            SELECT %s
+            FROM tasks t JOIN departments d ON t.departments_id = d.department_id
+            WHERE t.task_id = ?
+            """.formatted(VERSION_ROW);
+    private static final String SELECT_LIST_USERS_VERSION_SQL = """
+            SELECT %s
+            FROM users_tasks ut JOIN users u ON ut.user_id = u.user_id
+                JOIN departments ud ON u.department_id = ud.department_id
+            WHERE ut.task_id = ?
+            """.formatted(USER_VERSION_ROW);
     private static final String INSERT_INTO_USERS_TASK_SQL = """
             INSERT INTO users_tasks (user_id, task_id)
             VALUES (?, ?)
@@ -56,74 +99,147 @@ public class TaskDAO implements DAO<Task, Long> {
             DELETE FROM users_tasks
             WHERE task_id = ?
             """;
-
-    private static final String task_id = "task_id";
-    private static final String task_name = "task_name";
-    private static final String departments_id = "departments_id";
-    private static final String department_id = "department_id";
-    private static final String department_name = "department_name";
-    private static final String user_id = "user_id";
-    private static final String user_firstname = "user_firstname";
-    private static final String user_lastname = "user_lastname";
+    /**
+     * The ids of the statements of this DAO in the Flight Recorder events, by their SQL text.
+     */
+    static final Map<String, String> SQL_IDS = Map.ofEntries(
+            Map.entry(SELECT_ALL_SQL, "TaskDAO.SELECT_ALL_SQL"),
+            Map.entry(SELECT_PAGE_SQL, "TaskDAO.SELECT_PAGE_SQL"),
+            Map.entry(SELECT_ID_SQL, "TaskDAO.SELECT_ID_SQL"),
+            Map.entry(INSERT_SQL, "TaskDAO.INSERT_SQL"),
+            Map.entry(UPDATE_SQL, "TaskDAO.UPDATE_SQL"),
+            Map.entry(UPDATE_VERSION_SQL, "TaskDAO.UPDATE_VERSION_SQL"),
+            Map.entry(DELETE_SQL, "TaskDAO.DELETE_SQL"),
+            Map.entry(SELECT_LIST_USERS_SQL, "TaskDAO.SELECT_LIST_USERS_SQL"),
+            Map.entry(SELECT_LIST_USERS_BATCH_SQL, "TaskDAO.SELECT_LIST_USERS_BATCH_SQL"),
+            Map.entry(SELECT_VERSION_SQL, "TaskDAO.SELECT_VERSION_SQL"),
+            Map.entry(SELECT_LIST_USERS_VERSION_SQL, "TaskDAO.SELECT_LIST_USERS_VERSION_SQL"),
+            Map.entry(INSERT_INTO_USERS_TASK_SQL, "TaskDAO.INSERT_INTO_USERS_TASK_SQL"),
+            Map.entry(DELETE_USERS_TASKS_SQL, "TaskDAO.DELETE_USERS_TASKS_SQL"));
+
+    private static final RowMapper<Task> TASKS = RowMapper.tasks(TASK_ROW);
+    private static final RowMapper<Department> DEPARTMENTS = RowMapper.departments(TASK_ROW);
+    private static final RowMapper<User> USERS = RowMapper.users(USER_ROW);
+    private static final RowMapper<Department> USER_DEPARTMENTS = RowMapper.departments(USER_ROW);
+    private static final int DEPARTMENT_ID = TASK_ROW.indexOf("department_id");
+    private static final int USER_ID = USER_ROW.indexOf("user_id");
+    private static final int USER_DEPARTMENT_ID = USER_ROW.indexOf("department_id");
+    private static final int USER_TASK_ID = USER_ROW.indexOf("task_id");
+    private static final int[] VERSION_COLUMNS = VERSION_ROW.indexesOf("task_version", "department_id", "department_version");
+    private static final int[] USER_VERSION_COLUMNS = USER_VERSION_ROW.indexesOf("user_id", "user_version",
+            "department_id", "department_version");
+    private static final String USER_DEPARTMENT = RowVersions.departmentOf(FieldSet.USER_LIST);
     private static final Logger log = LoggerFactory.getLogger(DepartmentDAO.class.getName());
 
     /**
      * Constructs a new TaskDAO with the specified DataSource.
+     * The user lists are loaded in the BATCH mode.
      *
      * @param dataSource The DataSource to be used for database connections.
      */
     public TaskDAO(DataSource dataSource) {
+        this(dataSource, FetchMode.BATCH, BatchLoader.DEFAULT_CHUNK_SIZE);
+    }
+    /**
+     * Constructs a new TaskDAO with the specified DataSource, FetchMode and chunk size.
+     *
+     * @param dataSource The DataSource to be used for database connections.
+     * @param fetchMode The strategy used by getAll to load the users of the tasks.
+     * @param chunkSize The maximum number of task ids bound to a single user statement in the BATCH mode.
+     */
+    public TaskDAO(DataSource dataSource, FetchMode fetchMode, int chunkSize) {
         this.dataSource = dataSource;
+        this.fetchMode = fetchMode;
+        this.batchLoader = new BatchLoader(chunkSize);
+    }
+    /**
+     * Returns the maximum number of task ids bound to a single user statement in the BATCH mode.
+     *
+     * @return the chunk size of this DAO.
+     */
+    public int getChunkSize() {
+        return batchLoader.getChunkSize();
     }
     /**
-     * Retrieves a Task by its unique identifier.
+     * Retrieves a Task by its unique identifier. The users are queried only if the FieldSet includes the userList,
+     * otherwise the user list is a LazyList.
      *
      * @param id The unique identifier of the Task.
+     * @param fields The requested fields.
      * @return An Optional containing the Task entity if found, or an empty Optional if not found.
      */
     @Override
-    public Optional<Task> get(Long id) {
+    public Optional<Task> get(Long id, FieldSet fields) {
         try(Connection connection = dataSource.getConnection();
-            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ID_SQL);
-            PreparedStatement stmListUsers = connection.prepareStatement(SELECT_LIST_USERS_SQL)) {
+            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ID_SQL)) {
 
             preparedStatement.setLong(1, id);
-            stmListUsers.setLong(1, id);
-
-            Optional<Task> task;
-            try (ResultSet resultSet = preparedStatement.executeQuery();
-                ResultSet resListUsers = stmListUsers.executeQuery()) {
-
-                if (resultSet.next()) {
-                    Department tempDep = new Department(
-                            resultSet.getLong(department_id),
-                            resultSet.getString(department_name)
-                    );
-
-                    Task tempTask = new Task(
-                            resultSet.getLong(task_id),
-                            resultSet.getString(task_name),
-                            tempDep
-                    );
-
-                    while (resListUsers.next()) {
-                        User tempUser = new User(
-                                resListUsers.getLong(user_id),
-                                resListUsers.getString(user_firstname),
-                                resListUsers.getString(user_lastname),
-                                tempDep
-                        );
-
-                        tempTask.getUserList().add(tempUser);
-                    }
 
-                    task = Optional.of(tempTask);
+            Task tempTask;
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return Optional.empty();
                 }
-                else {
-                    task = Optional.empty();
+
+                tempTask = TASKS.map(resultSet);
+                tempTask.setDepartment(DEPARTMENTS.map(resultSet));
+            }
+
+            if (fields.includes(FieldSet.USER_LIST)) {
+                tempTask.getUserList().addAll(readUsers(connection, tempTask, new IdentityMap<>(USERS, USER_ID),
+                        new IdentityMap<>(USER_DEPARTMENTS, USER_DEPARTMENT_ID)));
+            }
+            else {
+                lazyUsers(tempTask);
+            }
+
+            return Optional.of(tempTask);
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Retrieves the version of a Task and of its department, and the versions of its users and of their
+     * departments if the FieldSet includes the userList, without reading the names.
+     *
+     * @param id The unique identifier of the Task.
+     * @param fields The requested fields.
+     * @return An Optional containing the RowVersions if found, or an empty Optional if not found.
+     */
+    @Override
+    public Optional<RowVersions> getVersions(Long id, FieldSet fields) {
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_VERSION_SQL)) {
+
+            preparedStatement.setLong(1, id);
+
+            RowVersions versions;
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return Optional.empty();
                 }
-                return task;
+
+                versions = new RowVersions(resultSet.getLong(VERSION_COLUMNS[0]))
+                        .add(RowVersions.DEPARTMENT, resultSet.getLong(VERSION_COLUMNS[1]), resultSet.getLong(VERSION_COLUMNS[2]));
             }
+
+            if (fields.includes(FieldSet.USER_LIST)) {
+                try (PreparedStatement stmListUsers = connection.prepareStatement(SELECT_LIST_USERS_VERSION_SQL)) {
+                    stmListUsers.setLong(1, id);
+
+                    try (ResultSet rslListUsersForTask = stmListUsers.executeQuery()) {
+                        while (rslListUsersForTask.next()) {
+                            versions.add(FieldSet.USER_LIST, rslListUsersForTask.getLong(USER_VERSION_COLUMNS[0]),
+                                    rslListUsersForTask.getLong(USER_VERSION_COLUMNS[1]))
+                                    .add(USER_DEPARTMENT, rslListUsersForTask.getLong(USER_VERSION_COLUMNS[2]),
+                                            rslListUsersForTask.getLong(USER_VERSION_COLUMNS[3]));
+                        }
+                    }
+                }
+            }
+
+            return Optional.of(versions);
         }
         catch (SQLException e) {
             throw new RuntimeException(e);
@@ -131,11 +247,253 @@ public class TaskDAO implements DAO<Task, Long> {
     }
     /**
      * Retrieves a list of all Task available in the database.
+     * The users of the tasks are loaded according to the FetchMode of this DAO, if the FieldSet includes the userList.
+     * Otherwise the user lists are LazyLists.
      *
+     * @param fields The requested fields.
      * @return A list of Task entities, or an empty list if no Tasks are found.
      */
     @Override
-    public List<Task> getAll() {
+    public List<Task> getAll(FieldSet fields) {
+        if (fetchMode == FetchMode.BATCH) {
+            return getAllBatch(fields);
+        }
+        return getAllPerRow(fields);
+    }
+    /**
+     * Retrieves all Tasks with the tasks statement followed by the chunked user statements
+     * of the BatchLoader. The users are attached to their tasks in memory.
+     *
+     * @param fields The requested fields.
+     * @return A list of Task entities, or an empty list if no Tasks are found.
+     */
+    private List<Task> getAllBatch(FieldSet fields) {
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement stmAllTasks = connection.prepareStatement(SELECT_ALL_SQL)) {
+
+            return readWithUsers(connection, stmAllTasks, fields);
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Retrieves the next page of Tasks ordered by their unique identifier.
+     * The users of the page are loaded with the chunked statements of the BatchLoader.
+     *
+     * @param afterId The identifier after which the page starts, or null for the first page.
+     * @param limit The maximum number of Tasks in the page.
+     * @param fields The requested fields.
+     * @return A list of at most limit Task entities.
+     */
+    @Override
+    public List<Task> getPage(Long afterId, int limit, FieldSet fields) {
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement stmPageTasks = connection.prepareStatement(SELECT_PAGE_SQL)) {
+
+            stmPageTasks.setLong(1, afterId == null ? Long.MIN_VALUE : afterId);
+            stmPageTasks.setInt(2, limit);
+
+            return readWithUsers(connection, stmPageTasks, fields);
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Streams all Tasks to the consumer through a server-side cursor. The tasks are fetched in
+     * batches of the chunk size, the users of each batch are loaded with the BatchLoader and the batch
+     * is handed to the consumer before the next one is fetched, so only one batch is held in memory.
+     * The departments, of the tasks and of their users, are materialized once for the whole stream,
+     * the users once for every batch.
+     *
+     * @param fields The requested fields.
+     * @param consumer The callback receiving every Task entity.
+     */
+    @Override
+    public void streamAll(FieldSet fields, Consumer<? super Task> consumer) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement stmAllTasks = connection.prepareStatement(SELECT_ALL_SQL)) {
+                stmAllTasks.setFetchSize(batchLoader.getChunkSize());
+
+                Map<Long, Task> tasks = new LinkedHashMap<>();
+                IdentityMap<Department> departments = new IdentityMap<>(DEPARTMENTS, DEPARTMENT_ID);
+                IdentityMap<User> users = new IdentityMap<>(USERS, USER_ID);
+                IdentityMap<Department> userDepartments = new IdentityMap<>(USER_DEPARTMENTS, USER_DEPARTMENT_ID);
+
+                try (ResultSet rslAllTasks = stmAllTasks.executeQuery()) {
+                    while (rslAllTasks.next()) {
+                        Task task = TASKS.map(rslAllTasks);
+                        task.setDepartment(departments.map(rslAllTasks));
+
+                        tasks.put(task.getTask_id(), task);
+
+                        if (tasks.size() == batchLoader.getChunkSize()) {
+                            flush(connection, tasks, users, userDepartments, fields, consumer);
+                        }
+                    }
+                }
+                flush(connection, tasks, users, userDepartments, fields, consumer);
+
+                connection.commit();
+            }
+            catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+            finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Executes the tasks statement, then loads the users of the returned tasks with the BatchLoader
+     * and attaches them in memory, if the FieldSet includes the userList; otherwise the user lists are LazyLists.
+     * Every department and user is materialized once and shared by the tasks referencing it.
+     *
+     * @param connection The connection used for the user statements.
+     * @param stmTasks The bound statement returning the joined tasks and departments rows.
+     * @param fields The requested fields.
+     * @return A list of Task entities in the order of the statement.
+     * @throws SQLException If one of the statements could not be executed.
+     */
+    private List<Task> readWithUsers(Connection connection, PreparedStatement stmTasks, FieldSet fields) throws SQLException {
+        Map<Long, Task> tasks = new LinkedHashMap<>();
+        IdentityMap<Department> departments = new IdentityMap<>(DEPARTMENTS, DEPARTMENT_ID);
+
+        try (ResultSet rslAllTasks = stmTasks.executeQuery()) {
+            while (rslAllTasks.next()) {
+                Task task = TASKS.map(rslAllTasks);
+                task.setDepartment(departments.map(rslAllTasks));
+
+                tasks.put(task.getTask_id(), task);
+            }
+        }
+
+        if (fields.includes(FieldSet.USER_LIST)) {
+            attachUsers(connection, tasks, new IdentityMap<>(USERS, USER_ID),
+                    new IdentityMap<>(USER_DEPARTMENTS, USER_DEPARTMENT_ID));
+        }
+        else {
+            tasks.values().forEach(this::lazyUsers);
+        }
+
+        return new ArrayList<>(tasks.values());
+    }
+    /**
+     * Attaches the users to the buffered tasks if the FieldSet includes the userList (otherwise the user lists
+     * are LazyLists), passes the tasks to the consumer and clears the buffer and the users.
+     *
+     * @param connection The connection used for the user statements.
+     * @param tasks The buffered Task entities by their identifier.
+     * @param users The identity map of the users of the batch.
+     * @param userDepartments The identity map of the departments of the users of the stream.
+     * @param fields The requested fields.
+     * @param consumer The callback receiving every Task entity.
+     * @throws SQLException If one of the user statements could not be executed.
+     */
+    private void flush(Connection connection, Map<Long, Task> tasks, IdentityMap<User> users,
+                       IdentityMap<Department> userDepartments, FieldSet fields,
+                       Consumer<? super Task> consumer) throws SQLException {
+        if (fields.includes(FieldSet.USER_LIST)) {
+            attachUsers(connection, tasks, users, userDepartments);
+        }
+        else {
+            tasks.values().forEach(this::lazyUsers);
+        }
+        tasks.values().forEach(consumer);
+        tasks.clear();
+        users.clear();
+    }
+    /**
+     * Loads the users of the tasks with the BatchLoader and adds them to the user lists of their tasks.
+     * A user shared by several tasks is materialized once, with its own department.
+     *
+     * @param connection The connection used for the user statements.
+     * @param tasks The Task entities by their identifier.
+     * @param users The identity map of the users of the query.
+     * @param userDepartments The identity map of the departments of the users.
+     * @throws SQLException If one of the user statements could not be executed.
+     */
+    private void attachUsers(Connection connection, Map<Long, Task> tasks, IdentityMap<User> users,
+                             IdentityMap<Department> userDepartments) throws SQLException {
+        batchLoader.load(connection, SELECT_LIST_USERS_BATCH_SQL, tasks.keySet(), rslListUsersForTask -> {
+            Task task = tasks.get(rslListUsersForTask.getLong(USER_TASK_ID));
+            task.getUserList().add(mapUser(rslListUsersForTask, users, userDepartments));
+        });
+    }
+    /**
+     * Queries the users of a single task.
+     *
+     * @param connection The connection used for the user statement.
+     * @param task The Task entity.
+     * @param users The identity map of the users of the query.
+     * @param userDepartments The identity map of the departments of the users.
+     * @return A list of the User entities of the task.
+     * @throws SQLException If the user statement could not be executed.
+     */
+    private List<User> readUsers(Connection connection, Task task, IdentityMap<User> users,
+                                 IdentityMap<Department> userDepartments) throws SQLException {
+        try (PreparedStatement stmListUsers = connection.prepareStatement(SELECT_LIST_USERS_SQL)) {
+            stmListUsers.setLong(1, task.getTask_id());
+
+            List<User> userList = new ArrayList<>();
+
+            try (ResultSet rslListUsersForTask = stmListUsers.executeQuery()) {
+                while (rslListUsersForTask.next()) {
+                    userList.add(mapUser(rslListUsersForTask, users, userDepartments));
+                }
+            }
+
+            return userList;
+        }
+    }
+    /**
+     * Returns the user of the current row, setting the department of the row on a user mapped for the first time.
+     *
+     * @param resultSet The result set of a user statement, positioned on a row.
+     * @param users The identity map of the users of the query.
+     * @param userDepartments The identity map of the departments of the users.
+     * @return the User entity shared by the rows of the user.
+     * @throws SQLException If a column of the row could not be read.
+     */
+    private static User mapUser(ResultSet resultSet, IdentityMap<User> users,
+                                IdentityMap<Department> userDepartments) throws SQLException {
+        User user = users.map(resultSet);
+        if (user.getDepartment() == null) {
+            user.setDepartment(userDepartments.map(resultSet));
+        }
+        return user;
+    }
+    /**
+     * Makes the user list of the task a LazyList, queried with a connection of its own on first access.
+     *
+     * @param task The Task entity.
+     */
+    private void lazyUsers(Task task) {
+        task.lazyUserList(() -> {
+            try (Connection connection = dataSource.getConnection()) {
+                return readUsers(connection, task, new IdentityMap<>(USERS, USER_ID),
+                        new IdentityMap<>(USER_DEPARTMENTS, USER_DEPARTMENT_ID));
+            }
+            catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+    /**
+     * Retrieves all Tasks querying the users once for every task, if the FieldSet includes the userList.
+     * Otherwise the user lists are LazyLists. Every department and user is materialized once.
+     *
+     * @param fields The requested fields.
+     * @return A list of Task entities, or an empty list if no Tasks are found.
+     */
+    private List<Task> getAllPerRow(FieldSet fields) {
         try (Connection connection = dataSource.getConnection();
             PreparedStatement stmAllTasks = connection.prepareStatement(SELECT_ALL_SQL)) {
 
@@ -143,35 +501,19 @@ public class TaskDAO implements DAO<Task, Long> {
             try (ResultSet rslAllTasks = stmAllTasks.executeQuery()) {
 
                 List<Task> taskList = new ArrayList<>();
+                IdentityMap<Department> departments = new IdentityMap<>(DEPARTMENTS, DEPARTMENT_ID);
+                IdentityMap<User> users = new IdentityMap<>(USERS, USER_ID);
+                IdentityMap<Department> userDepartments = new IdentityMap<>(USER_DEPARTMENTS, USER_DEPARTMENT_ID);
 
                 while (rslAllTasks.next()) {
-                    Department tempDep = new Department(
-                            rslAllTasks.getLong(department_id),
-                            rslAllTasks.getString(department_name)
-                    );
-
-                    Task task = new Task(
-                            rslAllTasks.getLong(task_id),
-                            rslAllTasks.getString(task_name),
-                            tempDep
-                    );
-
-                    try (PreparedStatement stmListUsers = connection.prepareStatement(SELECT_LIST_USERS_SQL)) {
-
-                        stmListUsers.setLong(1, rslAllTasks.getLong(task_id));
-
-                        try (ResultSet rslListUsersForTask = stmListUsers.executeQuery()) {
-
-                            while (rslListUsersForTask.next()) {
-                                User tempUsr = new User(
-                                        rslListUsersForTask.getLong(user_id),
-                                        rslListUsersForTask.getString(user_firstname),
-                                        rslListUsersForTask.getString(user_lastname),
-                                        tempDep
-                                );
-                                task.getUserList().add(tempUsr);
-                            }
-                        }
+                    Task task = TASKS.map(rslAllTasks);
+                    task.setDepartment(departments.map(rslAllTasks));
+
+                    if (fields.includes(FieldSet.USER_LIST)) {
+                        task.getUserList().addAll(readUsers(connection, task, users, userDepartments));
+                    }
+                    else {
+                        lazyUsers(task);
                     }
 
                     taskList.add(task);
@@ -191,59 +533,89 @@ public class TaskDAO implements DAO<Task, Long> {
      */
     @Override
     public void create(Task obj) {
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
-            preparedStatement.setString(1, obj.getTask_name());
-            preparedStatement.setLong(2, obj.getDepartment().getDepartment_id());
-
-            int res = preparedStatement.executeUpdate();
-            if (res == 0) {
-                throw new SQLException("A new task row doesn't create");
-            }
-
-            if (obj.getUserList().isEmpty()) return;
-
-            try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+        createAll(List.of(obj));
+    }
+    /**
+     * Creates the Tasks in the database with a single JDBC batch and links their users with a second
+     * one, all in one transaction. The generated identifiers are set on the Tasks in the order of the list.
+     *
+     * @param objs The Task entities to be created.
+     */
+    @Override
+    public void createAll(List<Task> objs) {
+        if (objs.isEmpty()) {
+            return;
+        }
 
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
 
-                if (keys.next()) {
-                    Long tas_id = keys.getLong(1);
-                    Long task_dep_id = obj.getDepartment().getDepartment_id();
+            try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Task obj : objs) {
+                    preparedStatement.setString(1, obj.getTask_name());
+                    preparedStatement.setLong(2, obj.getDepartment().getDepartment_id());
+                    preparedStatement.addBatch();
+                }
 
-                    for (User user : obj.getUserList()) {
-                        Long user_dep_id = user.getDepartment().getDepartment_id();
+                for (int res : preparedStatement.executeBatch()) {
+                    if (res == 0) {
+                        throw new SQLException("A new task row doesn't create");
+                    }
+                }
 
-                        if (task_dep_id.equals(user_dep_id)) {
-                            addUserToTasksUsers(tas_id, user.getUser_id(), connection);
+                try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+                    for (Task obj : objs) {
+                        if (keys.next()) {
+                            obj.setTask_id(keys.getLong(1));
+                        }
+                        else {
+                            throw new SQLException("Failed to create task, ID not received");
                         }
                     }
                 }
-                else {
-                    throw new SQLException("Failed to create task, ID not received");
-                }
-            }
 
+                addUsersToTasksUsers(objs, connection);
+
+                connection.commit();
+            }
+            catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+            finally {
+                connection.setAutoCommit(true);
+            }
         }
         catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
     /**
-     * Updates an existing Task in the database.
+     * Updates an existing Task in the database and increments its version. If the Task carries a version,
+     * the row is updated only if it still has that version, without locking it in advance.
      *
      * @param obj The Task entity to be updated.
+     * @throws OptimisticLockException If the Task carries a version the row no longer has.
      */
     @Override
     public void update(Task obj) {
+        boolean conditional = obj.getTask_version() != null;
+
         try(Connection connection = dataSource.getConnection();
-            PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_SQL)) {
+            PreparedStatement preparedStatement = connection.prepareStatement(conditional ? UPDATE_VERSION_SQL : UPDATE_SQL)) {
 
             preparedStatement.setString(1, obj.getTask_name());
             preparedStatement.setLong(2, obj.getDepartment().getDepartment_id());
             preparedStatement.setLong(3, obj.getTask_id());
+            if (conditional) {
+                preparedStatement.setLong(4, obj.getTask_version());
+            }
 
             int res = preparedStatement.executeUpdate();
 
+            if (res == 0 && conditional) {
+                throw new OptimisticLockException("Task " + obj.getTask_id() + " is not at version " + obj.getTask_version());
+            }
             if (res == 0) {
                 throw new SQLException("Failed to update a row in tasks table");
             }
@@ -278,20 +650,42 @@ public class TaskDAO implements DAO<Task, Long> {
         }
     }
 
-    public void addUserToTasksUsers(Long task_id, Long user_id, Connection connection) {
-        try (PreparedStatement preparedStatement  = connection.prepareStatement(INSERT_INTO_USERS_TASK_SQL)) {
+    /**
+     * Links the users of the tasks that belong to the same department as their task with a single
+     * JDBC batch on the given connection, so the links take part in the transaction of the caller.
+     *
+     * @param tasks The created Task entities, with their identifiers set.
+     * @param connection The connection of the caller.
+     * @throws SQLException If the batch could not be executed or a link was not inserted.
+     */
+    public void addUsersToTasksUsers(List<Task> tasks, Connection connection) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_INTO_USERS_TASK_SQL)) {
+            int links = 0;
+
+            for (Task task : tasks) {
+                Long task_dep_id = task.getDepartment().getDepartment_id();
 
-            preparedStatement.setLong(1, user_id);
-            preparedStatement.setLong(2, task_id);
+                for (User user : task.getUserList()) {
+                    Long user_dep_id = user.getDepartment().getDepartment_id();
 
-            int res = preparedStatement.executeUpdate();
+                    if (task_dep_id.equals(user_dep_id)) {
+                        preparedStatement.setLong(1, user.getUser_id());
+                        preparedStatement.setLong(2, task.getTask_id());
+                        preparedStatement.addBatch();
+                        links++;
+                    }
+                }
+            }
 
-            if (res == 0) {
-                throw new SQLException("Failed to update a row in tasks_users table");
+            if (links == 0) {
+                return;
+            }
+
+            for (int res : preparedStatement.executeBatch()) {
+                if (res == 0) {
+                    throw new SQLException("Failed to update a row in tasks_users table");
+                }
             }
-        }
-        catch (SQLException e) {
-            throw new RuntimeException(e);
         }
     }
 
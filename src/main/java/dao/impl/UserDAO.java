@@ -1,6 +1,10 @@
 package dao.impl;
 
 import dao.DAO;
+import dao.FetchMode;
+import dao.FieldSet;
+import dao.OptimisticLockException;
+import dao.RowVersions;
 import models.Department;
 import models.Task;
 import models.User;
@@ -8,8 +12,11 @@ import models.User;
 import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * The UserDAO class is an implementation of the Dao interface. It provides concrete
@@ -18,100 +25,209 @@ import java.util.Optional;
  */
 public class UserDAO implements DAO<User, Long> {
     private final DataSource dataSource;
+    private final FetchMode fetchMode;
+    private final BatchLoader batchLoader;
     private static final String INSERT_SQL = """
             INSERT INTO users (user_firstname, user_lastname, department_id)
             VALUES (?, ?, ?)
             """;
     private static final String UPDATE_SQL = """
             UPDATE users
-            SET user_firstName = ?, user_lastName = ?, department_id = ?
+            SET user_firstName = ?, user_lastName = ?, department_id = ?, user_version = user_version + 1
             WHERE user_id = ?
             """;
+    private static final String UPDATE_VERSION_SQL = UPDATE_SQL + """
+            AND user_version = ?
+            """;
     private static final String DELETE_SQL = """
             DELETE FROM users
             WHERE user_id = ?
             """;
+    private static final Columns USER_ROW = new Columns("u.user_id", "u.user_firstname", "u.user_lastname",
+            "u.user_version", "d.department_id", "d.department_name", "d.department_version");
+    private static final Columns TASK_ROW = new Columns("t.task_id", "t.task_name", "t.task_version",
+            "td.department_id", "td.department_name", "td.department_version", "ut.user_id");
+    private static final Columns VERSION_ROW = new Columns("u.user_version", "d.department_id", "d.department_version");
+    private static final Columns TASK_VERSION_ROW = new Columns("t.task_id", "t.task_version", "t.departments_id",
+            "td.department_version");
     private static final String SELECT_ALL_SQL = """
-            SELECT *
+            SELECT %s
             FROM users u JOIN departments d ON u.department_id = d.department_id
-            """;
+            """.formatted(USER_ROW);
+    private static final String SELECT_PAGE_SQL = """
+            SELECT %s
+            FROM users u JOIN departments d ON u.department_id = d.department_id
+            WHERE u.user_id > ?
+            ORDER BY u.user_id
+            LIMIT ?
+            """.formatted(USER_ROW);
     private static final String SELECT_ID_SQL = """
-            SELECT *
+            SELECT %s
             FROM users u JOIN departments d ON u.department_id = d.department_id
             WHERE u.user_id = ?
-            """;
+            """.formatted(USER_ROW);
     private static final String SELECT_LIST_TASK = """
-            SELECT *
+            SELECT %s
             FROM tasks t JOIN users_tasks ut ON t.task_id = ut.task_id
-            WHERE user_id = ?
-            """;
-
-    private static final String user_firstName = "user_firstName";
-    private static final String user_lastName = "user_lastName";
-    private static final String user_id = "user_id";
-    private static final String department_id = "department_id";
-    private static final String department_name = "department_name";
-    private static final String task_id = "task_id";
-    private static final String task_name = "task_name";
+                JOIN departments td ON t.departments_id = td.department_id
+            WHERE ut.user_id = ?
+            """.formatted(TASK_ROW);
+    private static final String SELECT_LIST_TASK_BATCH = """
+            SELECT %s
+            FROM tasks t JOIN users_tasks ut ON t.task_id = ut.task_id
+                JOIN departments td ON t.departments_id = td.department_id
+            WHERE ut.user_id = ANY(?)
+            """.formatted(TASK_ROW);
+    private static final String SELECT_VERSION_SQL = """
+            SELECT %s
+            FROM users u JOIN departments d ON u.department_id = d.department_id
+            WHERE u.user_id = ?
+            """.formatted(VERSION_ROW);
+    private static final String SELECT_LIST_TASK_VERSION_SQL = """
+            SELECT %s
+            FROM tasks t JOIN users_tasks ut ON t.task_id = ut.task_id
+                JOIN departments td ON t.departments_id = td.department_id
+            WHERE ut.user_id = ?
+            """.formatted(TASK_VERSION_ROW);
+    /**
+     * The ids of the statements of this DAO in the Flight Recorder events, by their SQL text.
+     */
+    static final Map<String, String> SQL_IDS = Map.ofEntries(
+            Map.entry(INSERT_SQL, "UserDAO.INSERT_SQL"),
+            Map.entry(UPDATE_SQL, "UserDAO.UPDATE_SQL"),
+            Map.entry(UPDATE_VERSION_SQL, "UserDAO.UPDATE_VERSION_SQL"),
+            Map.entry(DELETE_SQL, "UserDAO.DELETE_SQL"),
+            Map.entry(SELECT_ALL_SQL, "UserDAO.SELECT_ALL_SQL"),
+            Map.entry(SELECT_PAGE_SQL, "UserDAO.SELECT_PAGE_SQL"),
+            Map.entry(SELECT_ID_SQL, "UserDAO.SELECT_ID_SQL"),
+            Map.entry(SELECT_LIST_TASK, "UserDAO.SELECT_LIST_TASK"),
+            Map.entry(SELECT_LIST_TASK_BATCH, "UserDAO.SELECT_LIST_TASK_BATCH"),
+            Map.entry(SELECT_VERSION_SQL, "UserDAO.SELECT_VERSION_SQL"),
+            Map.entry(SELECT_LIST_TASK_VERSION_SQL, "UserDAO.SELECT_LIST_TASK_VERSION_SQL"));
+
+    private static final RowMapper<User> USERS = RowMapper.users(USER_ROW);
+    private static final RowMapper<Department> DEPARTMENTS = RowMapper.departments(USER_ROW);
+    private static final RowMapper<Task> TASKS = RowMapper.tasks(TASK_ROW);
+    private static final RowMapper<Department> TASK_DEPARTMENTS = RowMapper.departments(TASK_ROW);
+    private static final int DEPARTMENT_ID = USER_ROW.indexOf("department_id");
+    private static final int TASK_ID = TASK_ROW.indexOf("task_id");
+    private static final int TASK_DEPARTMENT_ID = TASK_ROW.indexOf("department_id");
+    private static final int TASK_USER_ID = TASK_ROW.indexOf("user_id");
+    private static final int[] VERSION_COLUMNS = VERSION_ROW.indexesOf("user_version", "department_id", "department_version");
+    private static final int[] TASK_VERSION_COLUMNS = TASK_VERSION_ROW.indexesOf("task_id", "task_version",
+            "departments_id", "department_version");
+    private static final String TASK_DEPARTMENT = RowVersions.departmentOf(FieldSet.TASK_LIST);
     /**
      * Constructs a new UserDAO with the specified DataSource.
+     * The task lists are loaded in the BATCH mode.
      *
      * @param dataSource The UserDAO to be used for database connections.
      */
     public UserDAO(DataSource dataSource) {
+        this(dataSource, FetchMode.BATCH, BatchLoader.DEFAULT_CHUNK_SIZE);
+    }
+    /**
+     * Constructs a new UserDAO with the specified DataSource, FetchMode and chunk size.
+     *
+     * @param dataSource The DataSource to be used for database connections.
+     * @param fetchMode The strategy used by getAll to load the tasks of the users.
+     * @param chunkSize The maximum number of user ids bound to a single task statement in the BATCH mode.
+     */
+    public UserDAO(DataSource dataSource, FetchMode fetchMode, int chunkSize) {
         this.dataSource = dataSource;
+        this.fetchMode = fetchMode;
+        this.batchLoader = new BatchLoader(chunkSize);
     }
     /**
-     * Retrieves a User by its unique identifier.
+     * Returns the maximum number of user ids bound to a single task statement in the BATCH mode.
+     *
+     * @return the chunk size of this DAO.
+     */
+    public int getChunkSize() {
+        return batchLoader.getChunkSize();
+    }
+    /**
+     * Retrieves a User by its unique identifier. The tasks are queried only if the FieldSet includes the taskList,
+     * otherwise the task list is a LazyList.
      *
      * @param id The unique identifier of the User.
+     * @param fields The requested fields.
      * @return An Optional containing the User entity if found, or an empty Optional if not found.
      */
     @Override
-    public Optional<User> get(Long id) {
+    public Optional<User> get(Long id, FieldSet fields) {
         try (Connection connection = dataSource.getConnection();
-            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ID_SQL);
-            PreparedStatement stmListTask = connection.prepareStatement(SELECT_LIST_TASK)) {
+            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ID_SQL)) {
 
             preparedStatement.setLong(1, id);
-            stmListTask.setLong(1, id);
-
-            Optional<User> user;
-
-            try (ResultSet resultSet = preparedStatement.executeQuery();
-                ResultSet resListTask = stmListTask.executeQuery()) {
-
-                if (resultSet.next()) {
-                    Department tempDep = new Department(
-                            resultSet.getLong(department_id),
-                            resultSet.getString(department_name)
-                    );
-
-                    User tempUser = new User(
-                            resultSet.getLong(user_id),
-                            resultSet.getString(user_firstName),
-                            resultSet.getString(user_lastName),
-                            tempDep
-                    );
-
-                    while (resListTask.next()) {
-                        Task task = new Task(
-                                resListTask.getLong(task_id),
-                                resListTask.getString(task_name),
-                                tempDep
-                        );
-
-                        tempUser.getTaskList().add(task);
-                    }
 
-                    user = Optional.of(tempUser);
+            User tempUser;
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return Optional.empty();
                 }
-                else {
-                    user = Optional.empty();
+
+                tempUser = USERS.map(resultSet);
+                tempUser.setDepartment(DEPARTMENTS.map(resultSet));
+            }
+
+            if (fields.includes(FieldSet.TASK_LIST)) {
+                tempUser.getTaskList().addAll(readTasks(connection, tempUser, new IdentityMap<>(TASKS, TASK_ID),
+                        new IdentityMap<>(TASK_DEPARTMENTS, TASK_DEPARTMENT_ID)));
+            }
+            else {
+                lazyTasks(tempUser);
+            }
+
+            return Optional.of(tempUser);
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Retrieves the version of a User and of its department, and the versions of its tasks and of their
+     * departments if the FieldSet includes the taskList, without reading the names.
+     *
+     * @param id The unique identifier of the User.
+     * @param fields The requested fields.
+     * @return An Optional containing the RowVersions if found, or an empty Optional if not found.
+     */
+    @Override
+    public Optional<RowVersions> getVersions(Long id, FieldSet fields) {
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_VERSION_SQL)) {
+
+            preparedStatement.setLong(1, id);
+
+            RowVersions versions;
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return Optional.empty();
                 }
+
+                versions = new RowVersions(resultSet.getLong(VERSION_COLUMNS[0]))
+                        .add(RowVersions.DEPARTMENT, resultSet.getLong(VERSION_COLUMNS[1]), resultSet.getLong(VERSION_COLUMNS[2]));
             }
 
-            return user;
+            if (fields.includes(FieldSet.TASK_LIST)) {
+                try (PreparedStatement stmListTask = connection.prepareStatement(SELECT_LIST_TASK_VERSION_SQL)) {
+                    stmListTask.setLong(1, id);
+
+                    try (ResultSet resultListTask = stmListTask.executeQuery()) {
+                        while (resultListTask.next()) {
+                            versions.add(FieldSet.TASK_LIST, resultListTask.getLong(TASK_VERSION_COLUMNS[0]),
+                                    resultListTask.getLong(TASK_VERSION_COLUMNS[1]))
+                                    .add(TASK_DEPARTMENT, resultListTask.getLong(TASK_VERSION_COLUMNS[2]),
+                                            resultListTask.getLong(TASK_VERSION_COLUMNS[3]));
+                        }
+                    }
+                }
+            }
+
+            return Optional.of(versions);
         }
         catch (SQLException e) {
             throw new RuntimeException(e);
@@ -119,48 +235,273 @@ public class UserDAO implements DAO<User, Long> {
     }
     /**
      * Retrieves a list of all User available in the database.
+     * The tasks of the users are loaded according to the FetchMode of this DAO, if the FieldSet includes the taskList.
+     * Otherwise the task lists are LazyLists.
      *
+     * @param fields The requested fields.
      * @return A list of User entities, or an empty list if no Users are found.
      */
     @Override
-    public List<User> getAll() {
+    public List<User> getAll(FieldSet fields) {
+        if (fetchMode == FetchMode.BATCH) {
+            return getAllBatch(fields);
+        }
+        return getAllPerRow(fields);
+    }
+    /**
+     * Retrieves all Users with the users statement followed by the chunked task statements
+     * of the BatchLoader. The tasks are attached to their users in memory.
+     *
+     * @param fields The requested fields.
+     * @return A list of User entities, or an empty list if no Users are found.
+     */
+    private List<User> getAllBatch(FieldSet fields) {
         try (Connection connection = dataSource.getConnection();
             PreparedStatement allUsersStm = connection.prepareStatement(SELECT_ALL_SQL)) {
 
-            try (ResultSet resultSet = allUsersStm.executeQuery()) {
-
-                List<User> userList = new ArrayList<>();
+            return readWithTasks(connection, allUsersStm, fields);
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Retrieves the next page of Users ordered by their unique identifier.
+     * The tasks of the page are loaded with the chunked statements of the BatchLoader.
+     *
+     * @param afterId The identifier after which the page starts, or null for the first page.
+     * @param limit The maximum number of Users in the page.
+     * @param fields The requested fields.
+     * @return A list of at most limit User entities.
+     */
+    @Override
+    public List<User> getPage(Long afterId, int limit, FieldSet fields) {
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement pageUsersStm = connection.prepareStatement(SELECT_PAGE_SQL)) {
 
-                while (resultSet.next()) {
-                    Department tempDep = new Department(
-                            resultSet.getLong(department_id),
-                            resultSet.getString(department_name)
-                    );
+            pageUsersStm.setLong(1, afterId == null ? Long.MIN_VALUE : afterId);
+            pageUsersStm.setInt(2, limit);
 
-                    User tempUser = new User(
-                            resultSet.getLong(user_id),
-                            resultSet.getString(user_firstName),
-                            resultSet.getString(user_lastName),
-                            tempDep
-                    );
+            return readWithTasks(connection, pageUsersStm, fields);
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Streams all Users to the consumer through a server-side cursor. The users are fetched in
+     * batches of the chunk size, the tasks of each batch are loaded with the BatchLoader and the batch
+     * is handed to the consumer before the next one is fetched, so only one batch is held in memory.
+     * The departments, of the users and of their tasks, are materialized once for the whole stream,
+     * the tasks once for every batch.
+     *
+     * @param fields The requested fields.
+     * @param consumer The callback receiving every User entity.
+     */
+    @Override
+    public void streamAll(FieldSet fields, Consumer<? super User> consumer) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
 
-                    try (PreparedStatement stmListTask = connection.prepareStatement(SELECT_LIST_TASK)) {
+            try (PreparedStatement allUsersStm = connection.prepareStatement(SELECT_ALL_SQL)) {
+                allUsersStm.setFetchSize(batchLoader.getChunkSize());
 
-                        stmListTask.setLong(1, resultSet.getLong(user_id));
+                Map<Long, User> users = new LinkedHashMap<>();
+                IdentityMap<Department> departments = new IdentityMap<>(DEPARTMENTS, DEPARTMENT_ID);
+                IdentityMap<Task> tasks = new IdentityMap<>(TASKS, TASK_ID);
+                IdentityMap<Department> taskDepartments = new IdentityMap<>(TASK_DEPARTMENTS, TASK_DEPARTMENT_ID);
 
-                        try (ResultSet resultListTask = stmListTask.executeQuery()) {
+                try (ResultSet resultSet = allUsersStm.executeQuery()) {
+                    while (resultSet.next()) {
+                        User tempUser = USERS.map(resultSet);
+                        tempUser.setDepartment(departments.map(resultSet));
 
-                            while (resultListTask.next()) {
-                                Task tempTask = new Task(
-                                        resultListTask.getLong(task_id),
-                                        resultListTask.getString(task_name),
-                                        tempDep
-                                );
+                        users.put(tempUser.getUser_id(), tempUser);
 
-                                tempUser.getTaskList().add(tempTask);
-                            }
+                        if (users.size() == batchLoader.getChunkSize()) {
+                            flush(connection, users, tasks, taskDepartments, fields, consumer);
                         }
                     }
+                }
+                flush(connection, users, tasks, taskDepartments, fields, consumer);
+
+                connection.commit();
+            }
+            catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+            finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Executes the users statement, then loads the tasks of the returned users with the BatchLoader
+     * and attaches them in memory, if the FieldSet includes the taskList; otherwise the task lists are LazyLists.
+     * Every department and task is materialized once and shared by the users referencing it.
+     *
+     * @param connection The connection used for the task statements.
+     * @param usersStm The bound statement returning the joined users and departments rows.
+     * @param fields The requested fields.
+     * @return A list of User entities in the order of the statement.
+     * @throws SQLException If one of the statements could not be executed.
+     */
+    private List<User> readWithTasks(Connection connection, PreparedStatement usersStm, FieldSet fields) throws SQLException {
+        Map<Long, User> users = new LinkedHashMap<>();
+        IdentityMap<Department> departments = new IdentityMap<>(DEPARTMENTS, DEPARTMENT_ID);
+
+        try (ResultSet resultSet = usersStm.executeQuery()) {
+            while (resultSet.next()) {
+                User tempUser = USERS.map(resultSet);
+                tempUser.setDepartment(departments.map(resultSet));
+
+                users.put(tempUser.getUser_id(), tempUser);
+            }
+        }
+
+        if (fields.includes(FieldSet.TASK_LIST)) {
+            attachTasks(connection, users, new IdentityMap<>(TASKS, TASK_ID),
+                    new IdentityMap<>(TASK_DEPARTMENTS, TASK_DEPARTMENT_ID));
+        }
+        else {
+            users.values().forEach(this::lazyTasks);
+        }
+
+        return new ArrayList<>(users.values());
+    }
+    /**
+     * Attaches the tasks to the buffered users if the FieldSet includes the taskList (otherwise the task lists
+     * are LazyLists), passes the users to the consumer and clears the buffer and the tasks.
+     *
+     * @param connection The connection used for the task statements.
+     * @param users The buffered User entities by their identifier.
+     * @param tasks The identity map of the tasks of the batch.
+     * @param taskDepartments The identity map of the departments of the tasks of the stream.
+     * @param fields The requested fields.
+     * @param consumer The callback receiving every User entity.
+     * @throws SQLException If one of the task statements could not be executed.
+     */
+    private void flush(Connection connection, Map<Long, User> users, IdentityMap<Task> tasks,
+                       IdentityMap<Department> taskDepartments, FieldSet fields,
+                       Consumer<? super User> consumer) throws SQLException {
+        if (fields.includes(FieldSet.TASK_LIST)) {
+            attachTasks(connection, users, tasks, taskDepartments);
+        }
+        else {
+            users.values().forEach(this::lazyTasks);
+        }
+        users.values().forEach(consumer);
+        users.clear();
+        tasks.clear();
+    }
+    /**
+     * Loads the tasks of the users with the BatchLoader and adds them to the task lists of their users.
+     * A task shared by several users is materialized once, with its own department.
+     *
+     * @param connection The connection used for the task statements.
+     * @param users The User entities by their identifier.
+     * @param tasks The identity map of the tasks of the query.
+     * @param taskDepartments The identity map of the departments of the tasks.
+     * @throws SQLException If one of the task statements could not be executed.
+     */
+    private void attachTasks(Connection connection, Map<Long, User> users, IdentityMap<Task> tasks,
+                             IdentityMap<Department> taskDepartments) throws SQLException {
+        batchLoader.load(connection, SELECT_LIST_TASK_BATCH, users.keySet(), resultListTask -> {
+            User tempUser = users.get(resultListTask.getLong(TASK_USER_ID));
+            tempUser.getTaskList().add(mapTask(resultListTask, tasks, taskDepartments));
+        });
+    }
+    /**
+     * Queries the tasks of a single user.
+     *
+     * @param connection The connection used for the task statement.
+     * @param user The User entity.
+     * @param tasks The identity map of the tasks of the query.
+     * @param taskDepartments The identity map of the departments of the tasks.
+     * @return A list of the Task entities of the user.
+     * @throws SQLException If the task statement could not be executed.
+     */
+    private List<Task> readTasks(Connection connection, User user, IdentityMap<Task> tasks,
+                                 IdentityMap<Department> taskDepartments) throws SQLException {
+        try (PreparedStatement stmListTask = connection.prepareStatement(SELECT_LIST_TASK)) {
+            stmListTask.setLong(1, user.getUser_id());
+
+            List<Task> taskList = new ArrayList<>();
+
+            try (ResultSet resultListTask = stmListTask.executeQuery()) {
+                while (resultListTask.next()) {
+                    taskList.add(mapTask(resultListTask, tasks, taskDepartments));
+                }
+            }
+
+            return taskList;
+        }
+    }
+    /**
+     * Returns the task of the current row, setting the department of the row on a task mapped for the first time.
+     *
+     * @param resultSet The result set of a task statement, positioned on a row.
+     * @param tasks The identity map of the tasks of the query.
+     * @param taskDepartments The identity map of the departments of the tasks.
+     * @return the Task entity shared by the rows of the task.
+     * @throws SQLException If a column of the row could not be read.
+     */
+    private static Task mapTask(ResultSet resultSet, IdentityMap<Task> tasks,
+                                IdentityMap<Department> taskDepartments) throws SQLException {
+        Task task = tasks.map(resultSet);
+        if (task.getDepartment() == null) {
+            task.setDepartment(taskDepartments.map(resultSet));
+        }
+        return task;
+    }
+    /**
+     * Makes the task list of the user a LazyList, queried with a connection of its own on first access.
+     *
+     * @param user The User entity.
+     */
+    private void lazyTasks(User user) {
+        user.lazyTaskList(() -> {
+            try (Connection connection = dataSource.getConnection()) {
+                return readTasks(connection, user, new IdentityMap<>(TASKS, TASK_ID),
+                        new IdentityMap<>(TASK_DEPARTMENTS, TASK_DEPARTMENT_ID));
+            }
+            catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+    /**
+     * Retrieves all Users querying the tasks once for every user, if the FieldSet includes the taskList.
+     * Otherwise the task lists are LazyLists. Every department and task is materialized once.
+     *
+     * @param fields The requested fields.
+     * @return A list of User entities, or an empty list if no Users are found.
+     */
+    private List<User> getAllPerRow(FieldSet fields) {
+        try (Connection connection = dataSource.getConnection();
+            PreparedStatement allUsersStm = connection.prepareStatement(SELECT_ALL_SQL)) {
+
+            try (ResultSet resultSet = allUsersStm.executeQuery()) {
+
+                List<User> userList = new ArrayList<>();
+                IdentityMap<Department> departments = new IdentityMap<>(DEPARTMENTS, DEPARTMENT_ID);
+                IdentityMap<Task> tasks = new IdentityMap<>(TASKS, TASK_ID);
+                IdentityMap<Department> taskDepartments = new IdentityMap<>(TASK_DEPARTMENTS, TASK_DEPARTMENT_ID);
+
+                while (resultSet.next()) {
+                    User tempUser = USERS.map(resultSet);
+                    tempUser.setDepartment(departments.map(resultSet));
+
+                    if (fields.includes(FieldSet.TASK_LIST)) {
+                        tempUser.getTaskList().addAll(readTasks(connection, tempUser, tasks, taskDepartments));
+                    }
+                    else {
+                        lazyTasks(tempUser);
+                    }
 
                     userList.add(tempUser);
                 }
@@ -207,22 +548,86 @@ public class UserDAO implements DAO<User, Long> {
         }
     }
     /**
-     * Updates an existing User in the database.
+     * Creates the Users in the database with a single JDBC batch in one transaction.
+     * The generated identifiers are set on the Users in the order of the list.
+     *
+     * @param objs The User entities to be created.
+     */
+    @Override
+    public void createAll(List<User> objs) {
+        if (objs.isEmpty()) {
+            return;
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement preparedStatement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (User obj : objs) {
+                    preparedStatement.setString(1, obj.getUser_firstname());
+                    preparedStatement.setString(2, obj.getUser_lastname());
+                    preparedStatement.setLong(3, obj.getDepartment().getDepartment_id());
+                    preparedStatement.addBatch();
+                }
+
+                for (int res : preparedStatement.executeBatch()) {
+                    if (res == 0) {
+                        throw new SQLException("A new row for User doesn't create");
+                    }
+                }
+
+                try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+                    for (User obj : objs) {
+                        if (keys.next()) {
+                            obj.setUser_id(keys.getLong(1));
+                        }
+                        else {
+                            throw new SQLException("Failed to create user, ID not received");
+                        }
+                    }
+                }
+
+                connection.commit();
+            }
+            catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+            finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    /**
+     * Updates an existing User in the database and increments its version. If the User carries a version,
+     * the row is updated only if it still has that version, without locking it in advance.
      *
      * @param obj The User entity to be updated.
+     * @throws OptimisticLockException If the User carries a version the row no longer has.
      */
     @Override
     public void update(User obj) {
+        boolean conditional = obj.getUser_version() != null;
+
         try (Connection connection = dataSource.getConnection();
-            PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_SQL)) {
+            PreparedStatement preparedStatement = connection.prepareStatement(conditional ? UPDATE_VERSION_SQL : UPDATE_SQL)) {
 
             preparedStatement.setString(1, obj.getUser_firstname());
             preparedStatement.setString(2, obj.getUser_lastname());
             preparedStatement.setLong(3, obj.getDepartment().getDepartment_id());
             preparedStatement.setLong(4, obj.getUser_id());
+            if (conditional) {
+                preparedStatement.setLong(5, obj.getUser_version());
+            }
 
             int res = preparedStatement.executeUpdate();
 
+            if (res == 0 && conditional) {
+                throw new OptimisticLockException("User " + obj.getUser_id() + " is not at version " + obj.getUser_version());
+            }
             if (res == 0) {
                 throw new SQLException("A update row for User doesn't create");
             }
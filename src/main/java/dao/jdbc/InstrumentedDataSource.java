@@ -0,0 +1,334 @@
+package dao.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * The InstrumentedDataSource class is a decorator of a DataSource whose connections time every statement
+ * they execute. The latency, the number of executions and the rows returned or changed are accumulated in
+ * a SqlStatistics per SQL text; a statement slower than the slow query threshold is logged with its rows.
+ * A request running the same statement more often than the repeated statement threshold within its
+ * QueryScope is logged as a possible N+1 query. While a Flight Recorder recording has it enabled, every
+ * execution also emits a StatementEvent named by the SQL id of its text.
+ * <p>
+ * The connections, statements and result sets are dynamic proxies of their JDBC interfaces; the calls
+ * that are not timed are passed to the wrapped objects unchanged.
+ */
+public class InstrumentedDataSource implements DataSource {
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("createStatement", "prepareStatement", "prepareCall");
+    private static final Logger log = LoggerFactory.getLogger(InstrumentedDataSource.class.getName());
+
+    private final DataSource delegate;
+    private final long slowQueryNanos;
+    private final int repeatedStatementThreshold;
+    private final Function<String, String> sqlIds;
+    private final Map<String, SqlStatistics> statistics = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new InstrumentedDataSource around the specified DataSource.
+     *
+     * @param delegate The DataSource the connections are obtained from.
+     * @param slowQueryMillis The latency from which a statement is logged as a slow query, 0 to log none.
+     * @param repeatedStatementThreshold The number of executions of the same statement in a QueryScope
+     *                                   above which the request is logged, 0 to log none.
+     */
+    public InstrumentedDataSource(DataSource delegate, long slowQueryMillis, int repeatedStatementThreshold) {
+        this(delegate, slowQueryMillis, repeatedStatementThreshold,
+                sql -> "sql@" + Integer.toHexString(sql.hashCode()));
+    }
+    /**
+     * Constructs a new InstrumentedDataSource around the specified DataSource.
+     *
+     * @param delegate The DataSource the connections are obtained from.
+     * @param slowQueryMillis The latency from which a statement is logged as a slow query, 0 to log none.
+     * @param repeatedStatementThreshold The number of executions of the same statement in a QueryScope
+     *                                   above which the request is logged, 0 to log none.
+     * @param sqlIds The function naming a SQL text in the StatementEvents, for example SqlIds::of.
+     */
+    public InstrumentedDataSource(DataSource delegate, long slowQueryMillis, int repeatedStatementThreshold,
+                                  Function<String, String> sqlIds) {
+        this.delegate = delegate;
+        this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMillis);
+        this.repeatedStatementThreshold = repeatedStatementThreshold;
+        this.sqlIds = sqlIds;
+    }
+    /**
+     * Returns the statistics of the statements executed so far, the statement with the highest total latency first.
+     *
+     * @return a list of the SqlStatistics of every executed SQL text.
+     */
+    public List<SqlStatistics> getStatistics() {
+        List<SqlStatistics> snapshot = new ArrayList<>(statistics.values());
+        snapshot.sort(Comparator.comparingLong(SqlStatistics::getTotalNanos).reversed());
+        return snapshot;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(delegate.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(delegate.getConnection(username, password)));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+
+    private SqlStatistics statisticsOf(String sql) {
+        return statistics.computeIfAbsent(sql, SqlStatistics::new);
+    }
+    /**
+     * Records an execution of the statement and flags the current request the first time it exceeds
+     * the repeated statement threshold.
+     */
+    private void recordExecution(SqlStatistics sqlStatistics, long nanos) {
+        sqlStatistics.recordExecution(nanos);
+
+        QueryScope scope = QueryScope.current();
+        if (scope != null && repeatedStatementThreshold > 0
+                && scope.countExecution(sqlStatistics) == repeatedStatementThreshold + 1) {
+            sqlStatistics.recordRepeatedRequest();
+            log.warn("{} executed the same statement more than {} times, a possible N+1 query: {}",
+                    scope.getName(), repeatedStatementThreshold, sqlStatistics.getSql());
+        }
+    }
+
+    private void logIfSlow(SqlStatistics sqlStatistics, long nanos, long rows) {
+        if (slowQueryNanos > 0 && nanos >= slowQueryNanos) {
+            log.warn("Slow query: {} ms, {} rows: {}", TimeUnit.NANOSECONDS.toMillis(nanos), rows, sqlStatistics.getSql());
+        }
+    }
+
+    private void finishEvent(StatementEvent event, String sql, long rows) {
+        if (event != null) {
+            event.finish(sqlIds.apply(sql), sql, rows);
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Wraps the statements created by the connection.
+     */
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedDataSource.invoke(connection, method, args);
+            if (!STATEMENT_FACTORIES.contains(method.getName())) {
+                return result;
+            }
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+            return proxy(method.getReturnType().asSubclass(Statement.class), new StatementHandler((Statement) result, sql));
+        }
+    }
+
+    /**
+     * Times the executions of a statement. A prepared statement is accounted to the SQL text it was prepared
+     * with, a plain statement to the SQL text passed to execute. The StatementEvent of a query ends with its
+     * result set, the one of an update or a failed execution when the execution returns.
+     */
+    private class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private ResultSetHandler openResult;
+
+        StatementHandler(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                finishResult();
+                return InstrumentedDataSource.invoke(statement, method, args);
+            }
+            if (!EXECUTE_METHODS.contains(name)) {
+                return InstrumentedDataSource.invoke(statement, method, args);
+            }
+
+            String executedSql = args != null && args.length > 0 && args[0] instanceof String text ? text : sql;
+            if (executedSql == null) {
+                return InstrumentedDataSource.invoke(statement, method, args);
+            }
+            SqlStatistics sqlStatistics = statisticsOf(executedSql);
+            finishResult();
+
+            StatementEvent event = StatementEvent.start();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = InstrumentedDataSource.invoke(statement, method, args);
+            }
+            catch (Throwable e) {
+                finishEvent(event, executedSql, 0);
+                throw e;
+            }
+            long nanos = System.nanoTime() - start;
+            recordExecution(sqlStatistics, nanos);
+
+            if (result instanceof ResultSet resultSet) {
+                openResult = new ResultSetHandler(resultSet, sqlStatistics, nanos, event, executedSql);
+                return proxy(ResultSet.class, openResult);
+            }
+
+            long rows = changedRows(result);
+            sqlStatistics.recordRows(rows);
+            logIfSlow(sqlStatistics, nanos, rows);
+            finishEvent(event, executedSql, rows);
+            return result;
+        }
+
+        private void finishResult() {
+            if (openResult != null) {
+                openResult.finish();
+                openResult = null;
+            }
+        }
+
+        private static long changedRows(Object result) {
+            if (result instanceof Number count) {
+                return Math.max(count.longValue(), 0);
+            }
+            long rows = 0;
+            if (result instanceof int[] counts) {
+                for (int count : counts) {
+                    rows += Math.max(count, 0);
+                }
+            }
+            else if (result instanceof long[] counts) {
+                for (long count : counts) {
+                    rows += Math.max(count, 0);
+                }
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Counts the rows read from a result set. They are recorded, and a slow query is logged, when the result
+     * set or its statement is closed or the statement is executed again.
+     */
+    private class ResultSetHandler implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final SqlStatistics sqlStatistics;
+        private final long nanos;
+        private final StatementEvent event;
+        private final String sql;
+        private long rows;
+        private boolean finished;
+
+        ResultSetHandler(ResultSet resultSet, SqlStatistics sqlStatistics, long nanos, StatementEvent event,
+                         String sql) {
+            this.resultSet = resultSet;
+            this.sqlStatistics = sqlStatistics;
+            this.nanos = nanos;
+            this.event = event;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedDataSource.invoke(resultSet, method, args);
+            switch (method.getName()) {
+                case "next" -> {
+                    if (Boolean.TRUE.equals(result)) {
+                        rows++;
+                    }
+                }
+                case "close" -> finish();
+                default -> {
+                }
+            }
+            return result;
+        }
+
+        void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            sqlStatistics.recordRows(rows);
+            logIfSlow(sqlStatistics, nanos, rows);
+            finishEvent(event, sql, rows);
+        }
+    }
+}
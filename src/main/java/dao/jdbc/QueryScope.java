@@ -0,0 +1,61 @@
+package dao.jdbc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The QueryScope class counts the statements one request executes through an InstrumentedDataSource on the
+ * current thread, so the request running the same statement more than the repeated statement threshold can be
+ * flagged: the N+1 pattern of a PER_ROW getAll, which queries the children of every parent row on its own.
+ * A scope is opened by the thread handling the request and closed when the request has been handled.
+ */
+public final class QueryScope implements AutoCloseable {
+    private static final ThreadLocal<QueryScope> CURRENT = new ThreadLocal<>();
+
+    private final String name;
+    private final QueryScope outer;
+    private final Map<SqlStatistics, Integer> executions = new HashMap<>();
+
+    private QueryScope(String name, QueryScope outer) {
+        this.name = name;
+        this.outer = outer;
+    }
+    /**
+     * Opens a scope on the current thread; the statements executed until it is closed are counted in it.
+     *
+     * @param name The name of the request in the log, for example "GET /departments".
+     * @return the opened QueryScope.
+     */
+    public static QueryScope open(String name) {
+        QueryScope scope = new QueryScope(name, CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    static QueryScope current() {
+        return CURRENT.get();
+    }
+    /**
+     * Counts an execution of the statement.
+     *
+     * @param statistics The statistics of the executed SQL text.
+     * @return the number of executions of the statement in this scope, including this one.
+     */
+    int countExecution(SqlStatistics statistics) {
+        return executions.merge(statistics, 1, Integer::sum);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void close() {
+        if (outer == null) {
+            CURRENT.remove();
+        }
+        else {
+            CURRENT.set(outer);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package dao.jdbc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The SqlStatistics class accumulates the executions of one SQL text through an InstrumentedDataSource:
+ * their number, the rows they returned or changed, their total and maximum latency, and the number of
+ * requests that ran the statement more often than the repeated statement threshold. The counters are
+ * LongAdders, so concurrent statements do not contend on them.
+ */
+public class SqlStatistics {
+    private final String sql;
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder repeatedRequests = new LongAdder();
+
+    /**
+     * Constructs the SqlStatistics of an SQL text.
+     *
+     * @param sql The SQL text as prepared; its whitespace is collapsed to single spaces.
+     */
+    SqlStatistics(String sql) {
+        this.sql = sql.strip().replaceAll("\\s+", " ");
+    }
+
+    void recordExecution(long nanos) {
+        executions.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    void recordRows(long count) {
+        rows.add(count);
+    }
+
+    void recordRepeatedRequest() {
+        repeatedRequests.increment();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getRepeatedRequests() {
+        return repeatedRequests.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "SqlStatistics{" +
+                "executions = " + getExecutions() +
+                ", rows = " + getRows() +
+                ", totalMillis = " + TimeUnit.NANOSECONDS.toMillis(getTotalNanos()) +
+                ", maxMillis = " + TimeUnit.NANOSECONDS.toMillis(getMaxNanos()) +
+                ", repeatedRequests = " + getRepeatedRequests() +
+                ", sql = '" + sql + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,60 @@
+package dao.jdbc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The StatementEvent class is the Flight Recorder event of a statement executed through the InstrumentedDataSource.
+ * Its duration spans the execution and, for a query, the reading of the result set until it is closed, so the
+ * socket reads of the JDBC driver on the same thread fall inside it.
+ */
+@Name("app.dao.Statement")
+@Label("DAO Statement")
+@Category({"Application", "DAO"})
+@Description("A JDBC statement executed by a DAO, from its execution until its result set is closed")
+@StackTrace(false)
+class StatementEvent extends jdk.jfr.Event {
+    @Label("SQL Id")
+    @Description("The DAO and the constant of the statement, for example UserDAO.SELECT_ID_SQL")
+    String sqlId;
+
+    @Label("SQL")
+    String sql;
+
+    @Label("Rows")
+    @Description("The rows read by a query or changed by an update")
+    long rows;
+
+    /**
+     * Creates and begins an event if a recording has it enabled.
+     *
+     * @return the begun StatementEvent, or null if no recording has the event enabled.
+     */
+    static StatementEvent start() {
+        StatementEvent event = new StatementEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+    /**
+     * Ends the event and commits it if it exceeds its threshold.
+     *
+     * @param sqlId The id of the statement, for example UserDAO.SELECT_ID_SQL.
+     * @param sql The SQL text of the statement.
+     * @param rows The rows read or changed by the statement.
+     */
+    void finish(String sqlId, String sql, long rows) {
+        end();
+        if (shouldCommit()) {
+            this.sqlId = sqlId;
+            this.sql = sql;
+            this.rows = rows;
+            commit();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 public class DepartmentDTO {
@@ -10,6 +12,9 @@ public class DepartmentDTO {
 
     private List<TaskDTO> taskList;
 
+    @JsonIgnore
+    private Long department_version;
+
     public DepartmentDTO(Long department_id, String department_name, List<UserDTO> userList, List<TaskDTO> taskList) {
         this.department_id = department_id;
         this.department_name = department_name;
@@ -33,6 +38,14 @@ public class DepartmentDTO {
         this.department_id = department_id;
     }
 
+    public Long getDepartment_version() {
+        return department_version;
+    }
+
+    public void setDepartment_version(Long department_version) {
+        this.department_version = department_version;
+    }
+
     public String getDepartment_name() {
         return department_name;
     }
@@ -1,5 +1,7 @@
 package dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 public class TaskDTO {
@@ -8,6 +10,8 @@ public class TaskDTO {
 
     private DepartmentDTO department;
     private List<UserDTO> userList;
+    @JsonIgnore
+    private Long task_version;
 
     public TaskDTO(Long task_id, String task_name, List<UserDTO> userList, DepartmentDTO department) {
         this.task_id = task_id;
@@ -33,6 +37,14 @@ public class TaskDTO {
         this.task_id = task_id;
     }
 
+    public Long getTask_version() {
+        return task_version;
+    }
+
+    public void setTask_version(Long task_version) {
+        this.task_version = task_version;
+    }
+
     public String getTask_name() {
         return task_name;
     }
@@ -1,5 +1,7 @@
 package dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 public class UserDTO {
@@ -8,6 +10,8 @@ public class UserDTO {
     private String user_lastname;
     private DepartmentDTO department;
     private List<TaskDTO> taskList;
+    @JsonIgnore
+    private Long user_version;
 
     public UserDTO(Long user_id, String user_firstname, String user_lastname, DepartmentDTO department, List<TaskDTO> taskList) {
         this.user_id = user_id;
@@ -35,6 +39,14 @@ public class UserDTO {
         this.user_id = user_id;
     }
 
+    public Long getUser_version() {
+        return user_version;
+    }
+
+    public void setUser_version(Long user_version) {
+        this.user_version = user_version;
+    }
+
     public String getUser_firstname() {
         return user_firstname;
     }
@@ -3,6 +3,8 @@ package mappers;
 import dto.DepartmentDTO;
 import models.Department;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Named;
 import org.mapstruct.factory.Mappers;
 
 /**
@@ -23,6 +25,16 @@ public interface DepartmentMapper {
      * @return The corresponding DepartmentDTO.
      */
     DepartmentDTO toDepartmentDTO(Department department);
+    /**
+     * Converts a Department entity to a DepartmentDTO without reading its user and task lists, which may be LazyLists.
+     *
+     * @param department The Department entity to be converted.
+     * @return The corresponding DepartmentDTO without the lists.
+     */
+    @Named("withoutLists")
+    @Mapping(target = "userList", ignore = true)
+    @Mapping(target = "taskList", ignore = true)
+    DepartmentDTO toDepartmentDTOWithoutLists(Department department);
     /**
      * Converts a DepartmentDTO to a Department entity.
      *
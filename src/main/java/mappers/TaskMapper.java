@@ -3,6 +3,8 @@ package mappers;
 import dto.TaskDTO;
 import models.Task;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Named;
 import org.mapstruct.factory.Mappers;
 
 /**
@@ -23,6 +25,15 @@ public interface TaskMapper {
      * @return The corresponding TaskDTO.
      */
     TaskDTO toTaskDTO(Task task);
+    /**
+     * Converts a Task entity to a TaskDTO without reading its user list, which may be LazyLists.
+     *
+     * @param task The Task entity to be converted.
+     * @return The corresponding TaskDTO without the lists.
+     */
+    @Named("withoutLists")
+    @Mapping(target = "userList", ignore = true)
+    TaskDTO toTaskDTOWithoutLists(Task task);
     /**
      * Converts a TaskDTO to a Task entity.
      *
@@ -3,6 +3,8 @@ package mappers;
 import dto.UserDTO;
 import models.User;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Named;
 import org.mapstruct.factory.Mappers;
 
 /**
@@ -23,6 +25,15 @@ public interface UserMapper {
      * @return The corresponding UserDTO.
      */
     UserDTO toUserDTO(User user);
+    /**
+     * Converts a User entity to a UserDTO without reading its task list, which may be LazyLists.
+     *
+     * @param user The User entity to be converted.
+     * @return The corresponding UserDTO without the lists.
+     */
+    @Named("withoutLists")
+    @Mapping(target = "taskList", ignore = true)
+    UserDTO toUserDTOWithoutLists(User user);
     /**
      * Converts a UserDTO to a User entity.
      *
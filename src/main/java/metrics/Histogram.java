@@ -0,0 +1,110 @@
+package metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Histogram class counts latencies in buckets with fixed upper bounds, as a Prometheus histogram.
+ * Every bucket and the sum are striped LongAdder counters, so recording never takes a lock and concurrent
+ * threads rarely contend on the same cell. The buckets hold the observations of their own range only;
+ * they are made cumulative when the histogram is read.
+ */
+public class Histogram {
+    /**
+     * The default upper bounds in seconds, from half a millisecond to ten seconds.
+     */
+    public static final double[] DEFAULT_BUCKETS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private final double[] upperBounds;
+    private final long[] upperBoundNanos;
+    private final LongAdder[] buckets;
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * Constructs a new Histogram with the default buckets.
+     */
+    public Histogram() {
+        this(DEFAULT_BUCKETS);
+    }
+    /**
+     * Constructs a new Histogram with the specified buckets.
+     *
+     * @param upperBounds The increasing upper bounds of the buckets in seconds, without the +Inf bucket.
+     */
+    public Histogram(double[] upperBounds) {
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i] <= upperBounds[i - 1]) {
+                throw new IllegalArgumentException("Bucket bounds must be increasing: " + Arrays.toString(upperBounds));
+            }
+        }
+        this.upperBounds = upperBounds.clone();
+        this.upperBoundNanos = new long[upperBounds.length];
+        for (int i = 0; i < upperBounds.length; i++) {
+            upperBoundNanos[i] = (long) (upperBounds[i] * TimeUnit.SECONDS.toNanos(1));
+        }
+        this.buckets = new LongAdder[upperBounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+    /**
+     * Records an observation.
+     *
+     * @param nanos The observed latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < upperBoundNanos.length && nanos > upperBoundNanos[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sumNanos.add(nanos);
+    }
+    /**
+     * Records the time elapsed since the start.
+     *
+     * @param startNanos The System.nanoTime() at the start of the observed operation.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    double[] getUpperBounds() {
+        return upperBounds;
+    }
+    /**
+     * Returns the cumulative counts of the buckets, the last one being the +Inf bucket, that is the total count.
+     * The counts are read one by one while observations may be recorded, so the result is not a snapshot.
+     *
+     * @return the number of observations less than or equal to every upper bound.
+     */
+    long[] getCumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long count = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            count += buckets[i].sum();
+            counts[i] = count;
+        }
+        return counts;
+    }
+
+    public double getSumSeconds() {
+        return sumNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram{count = " + getCount() + ", sumSeconds = " + getSumSeconds() + '}';
+    }
+}
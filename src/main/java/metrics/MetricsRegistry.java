@@ -0,0 +1,193 @@
+package metrics;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * The MetricsRegistry class holds the counters, gauges and histograms of the application and writes them
+ * in the Prometheus text exposition format. A metric is a family of series with the same name, one series
+ * per combination of label values, created on first use.
+ * <p>
+ * A series is looked up in a concurrent map without locking once it exists; callers on a hot path
+ * should nevertheless keep the series they record into instead of looking it up on every observation.
+ */
+public class MetricsRegistry {
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    private enum Type {
+        COUNTER, GAUGE, HISTOGRAM
+    }
+
+    private record Family(String name, String help, Type type, Map<String, Object> series) {
+    }
+    /**
+     * Returns the registry shared by the application and written by the MetricsServlet.
+     *
+     * @return the default MetricsRegistry.
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+    /**
+     * Returns the counter of the series, creating it on first use.
+     *
+     * @param name The name of the metric, for example http_requests_total.
+     * @param help The description of the metric.
+     * @param labels The names and values of the labels in pairs, for example "method", "GET".
+     * @return the LongAdder of the series.
+     */
+    public LongAdder counter(String name, String help, String... labels) {
+        return (LongAdder) series(name, help, Type.COUNTER, labels, LongAdder::new);
+    }
+    /**
+     * Registers a counter whose value is read from the supplier whenever the metrics are written, for a count
+     * kept by another class. A counter registered again for the same labels replaces the previous supplier.
+     *
+     * @param name The name of the metric, for example cache_hits_total.
+     * @param help The description of the metric.
+     * @param value The supplier of the current count, which never decreases.
+     * @param labels The names and values of the labels in pairs, for example "cache", "users".
+     */
+    public void counter(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).series().put(labelsOf(labels), value);
+    }
+    /**
+     * Returns the histogram of the series with the default buckets, creating it on first use.
+     *
+     * @param name The name of the metric in seconds, for example http_request_duration_seconds.
+     * @param help The description of the metric.
+     * @param labels The names and values of the labels in pairs, for example "method", "GET".
+     * @return the Histogram of the series.
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) series(name, help, Type.HISTOGRAM, labels, Histogram::new);
+    }
+    /**
+     * Registers a gauge whose value is read from the supplier whenever the metrics are written.
+     * A gauge registered again for the same labels replaces the previous supplier.
+     *
+     * @param name The name of the metric, for example hikari_connections_active.
+     * @param help The description of the metric.
+     * @param value The supplier of the current value.
+     * @param labels The names and values of the labels in pairs, for example "pool", "HikariPool-1".
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).series().put(labelsOf(labels), value);
+    }
+    /**
+     * Writes all metrics in the Prometheus text exposition format 0.0.4.
+     *
+     * @param out The destination of the text.
+     * @throws IOException If the text could not be written.
+     */
+    public void writeTo(Appendable out) throws IOException {
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name()).append(' ').append(escapeHelp(family.help())).append('\n');
+            out.append("# TYPE ").append(family.name()).append(' ')
+                    .append(family.type().name().toLowerCase()).append('\n');
+
+            for (Map.Entry<String, Object> series : family.series().entrySet()) {
+                String labels = series.getKey();
+                switch (family.type()) {
+                    case COUNTER -> sample(out, family.name(), labels, series.getValue() instanceof LongAdder adder
+                            ? adder.sum()
+                            : ((DoubleSupplier) series.getValue()).getAsDouble());
+                    case GAUGE -> sample(out, family.name(), labels, ((DoubleSupplier) series.getValue()).getAsDouble());
+                    case HISTOGRAM -> writeHistogram(out, family.name(), labels, (Histogram) series.getValue());
+                }
+            }
+        }
+    }
+
+    private Object series(String name, String help, Type type, String[] labels,
+                          Supplier<Object> factory) {
+        Map<String, Object> series = family(name, help, type).series();
+        String key = labelsOf(labels);
+        Object value = series.get(key);
+        return value != null ? value : series.computeIfAbsent(key, k -> factory.get());
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.get(name);
+        if (family == null) {
+            family = families.computeIfAbsent(name, n -> new Family(n, help, type, new ConcurrentSkipListMap<>()));
+        }
+        if (family.type() != type) {
+            throw new IllegalArgumentException("Metric " + name + " is a " + family.type() + ", not a " + type);
+        }
+        return family;
+    }
+
+    private static void writeHistogram(Appendable out, String name, String labels, Histogram histogram)
+            throws IOException {
+        double[] upperBounds = histogram.getUpperBounds();
+        long[] counts = histogram.getCumulativeCounts();
+        String separator = labels.isEmpty() ? "" : ",";
+        for (int i = 0; i < upperBounds.length; i++) {
+            String le = BigDecimal.valueOf(upperBounds[i]).toPlainString();
+            sample(out, name + "_bucket", labels + separator + "le=\"" + le + '"', counts[i]);
+        }
+        sample(out, name + "_bucket", labels + separator + "le=\"+Inf\"", counts[upperBounds.length]);
+        sample(out, name + "_sum", labels, histogram.getSumSeconds());
+        sample(out, name + "_count", labels, counts[upperBounds.length]);
+    }
+
+    private static void sample(Appendable out, String name, String labels, double value) throws IOException {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == (long) value) {
+            out.append(Long.toString((long) value));
+        }
+        else if (Double.isNaN(value)) {
+            out.append("NaN");
+        }
+        else {
+            out.append(Double.toString(value));
+        }
+        out.append('\n');
+    }
+
+    private static String labelsOf(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name and value pairs");
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"");
+            String value = labels[i + 1] == null ? "" : labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\' -> builder.append("\\\\");
+                    case '"' -> builder.append("\\\"");
+                    case '\n' -> builder.append("\\n");
+                    default -> builder.append(c);
+                }
+            }
+            builder.append('"');
+        }
+        return builder.toString();
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    @Override
+    public String toString() {
+        return "MetricsRegistry{metrics = " + families.keySet() + '}';
+    }
+}
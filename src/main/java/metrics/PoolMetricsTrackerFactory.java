@@ -0,0 +1,66 @@
+package metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The PoolMetricsTrackerFactory class publishes the state of a Hikari pool in a MetricsRegistry: gauges of the
+ * active, idle, total and maximum connections and of the threads waiting for a connection, histograms of the
+ * time to acquire a connection and of the time it is held, and a counter of the acquisitions that timed out.
+ * Hikari calls the tracker on the threads borrowing connections, so it records into the histograms it
+ * resolved when the pool was started.
+ */
+public class PoolMetricsTrackerFactory implements MetricsTrackerFactory {
+    private final MetricsRegistry registry;
+
+    /**
+     * Constructs a new PoolMetricsTrackerFactory.
+     *
+     * @param registry The registry the metrics of the pool are published in.
+     */
+    public PoolMetricsTrackerFactory(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        registry.gauge("hikari_connections_active", "Connections in use",
+                poolStats::getActiveConnections, "pool", poolName);
+        registry.gauge("hikari_connections_idle", "Idle connections",
+                poolStats::getIdleConnections, "pool", poolName);
+        registry.gauge("hikari_connections_total", "Open connections",
+                poolStats::getTotalConnections, "pool", poolName);
+        registry.gauge("hikari_connections_max", "Maximum size of the pool",
+                poolStats::getMaxConnections, "pool", poolName);
+        registry.gauge("hikari_connections_pending", "Threads waiting for a connection",
+                poolStats::getPendingThreads, "pool", poolName);
+
+        Histogram acquire = registry.histogram("hikari_connection_acquire_seconds",
+                "Time to acquire a connection from the pool", "pool", poolName);
+        Histogram usage = registry.histogram("hikari_connection_usage_seconds",
+                "Time a connection is held before it is returned to the pool", "pool", poolName);
+        LongAdder timeouts = registry.counter("hikari_connection_timeouts_total",
+                "Acquisitions that timed out", "pool", poolName);
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+}
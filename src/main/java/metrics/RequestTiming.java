@@ -0,0 +1,168 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The RequestTiming class splits the time a request is handled into phases: the DAO calls (db), the Service
+ * code around them, mostly the mapping of the models to DTOs (map), the serialization of the response (ser)
+ * and the rest of the handler (app). Every layer marks the phase it runs in with begin and end; a nested
+ * phase pauses the outer one, so every nanosecond is accounted to exactly one phase.
+ * <p>
+ * The timing is bound to the thread handling the request, which is also the thread the DAOs and the stream
+ * consumers run on, and is not thread-safe. Without a started timing begin and end only read the ThreadLocal.
+ */
+public final class RequestTiming implements AutoCloseable {
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+    private static final Phase[] PHASES = Phase.values();
+
+    private final String requestId;
+    private final RequestTiming outer;
+    private final long startNanos;
+    private final long[] nanos = new long[PHASES.length];
+    private Phase phase = Phase.OTHER;
+    private long switchedAt;
+
+    /**
+     * A phase of the request, named as in the Server-Timing header.
+     */
+    public enum Phase {
+        DB("db"), MAPPING("map"), SERIALIZATION("ser"), OTHER("app");
+
+        private final String metricName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    private RequestTiming(String requestId, RequestTiming outer) {
+        this.requestId = requestId;
+        this.outer = outer;
+        this.startNanos = System.nanoTime();
+        this.switchedAt = startNanos;
+    }
+    /**
+     * Starts the timing of a request on the current thread, in the OTHER phase.
+     *
+     * @param requestId The generated id of the request.
+     * @return the started RequestTiming, to be closed when the request has been handled.
+     */
+    public static RequestTiming start(String requestId) {
+        RequestTiming timing = new RequestTiming(requestId, CURRENT.get());
+        CURRENT.set(timing);
+        return timing;
+    }
+    /**
+     * Returns the timing of the request handled by the current thread.
+     *
+     * @return the RequestTiming, or null if no timing was started on the thread.
+     */
+    public static RequestTiming current() {
+        return CURRENT.get();
+    }
+    /**
+     * Switches the timing of the current thread to the phase.
+     *
+     * @param phase The phase the caller is entering.
+     * @return the phase to be passed to end, or null if no timing was started on the thread.
+     */
+    public static Phase begin(Phase phase) {
+        RequestTiming timing = CURRENT.get();
+        return timing == null ? null : timing.switchTo(phase);
+    }
+    /**
+     * Switches the timing of the current thread back to the phase returned by begin.
+     *
+     * @param previous The phase returned by begin, null to do nothing.
+     */
+    public static void end(Phase previous) {
+        if (previous == null) {
+            return;
+        }
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.switchTo(previous);
+        }
+    }
+
+    private Phase switchTo(Phase next) {
+        long now = System.nanoTime();
+        nanos[phase.ordinal()] += now - switchedAt;
+        switchedAt = now;
+        Phase previous = phase;
+        phase = next;
+        return previous;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+    /**
+     * Returns the time spent in the phase so far, the running phase included.
+     *
+     * @param phase The phase.
+     * @return the time in nanoseconds.
+     */
+    public long getNanos(Phase phase) {
+        long elapsed = nanos[phase.ordinal()];
+        return phase == this.phase ? elapsed + System.nanoTime() - switchedAt : elapsed;
+    }
+
+    public long getTotalNanos() {
+        return System.nanoTime() - startNanos;
+    }
+    /**
+     * Returns the value of the Server-Timing header, for example "db;dur=1.204, map;dur=0.311, ser;dur=0.520,
+     * app;dur=0.102, total;dur=2.137", the durations in milliseconds.
+     *
+     * @return the phases measured so far.
+     */
+    public String toServerTiming() {
+        StringBuilder header = new StringBuilder(96);
+        for (Phase p : PHASES) {
+            appendMillis(header.append(p.getMetricName()).append(";dur="), getNanos(p)).append(", ");
+        }
+        return appendMillis(header.append("total;dur="), getTotalNanos()).toString();
+    }
+    /**
+     * Returns the phases as key=value pairs in milliseconds, for example "db_ms=1.204 map_ms=0.311 ...".
+     *
+     * @return the phases measured so far.
+     */
+    public String toLogFields() {
+        StringBuilder fields = new StringBuilder(96);
+        for (Phase p : PHASES) {
+            appendMillis(fields.append(p.getMetricName()).append("_ms="), getNanos(p)).append(' ');
+        }
+        return appendMillis(fields.append("total_ms="), getTotalNanos()).toString();
+    }
+
+    private static StringBuilder appendMillis(StringBuilder builder, long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        long fraction = micros % 1000;
+        builder.append(micros / 1000).append('.');
+        if (fraction < 100) {
+            builder.append(fraction < 10 ? "00" : "0");
+        }
+        return builder.append(fraction);
+    }
+
+    @Override
+    public void close() {
+        if (outer == null) {
+            CURRENT.remove();
+        }
+        else {
+            CURRENT.set(outer);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RequestTiming{requestId = " + requestId + ", " + toLogFields() + '}';
+    }
+}
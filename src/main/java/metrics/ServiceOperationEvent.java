@@ -0,0 +1,50 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The ServiceOperationEvent class is the Flight Recorder event of a call of a Service method, emitted by the
+ * TimedService. The fields are set only if the event is committed, so a call costs the begin and end of the
+ * event when no recording is running.
+ */
+@Name("app.service.Operation")
+@Label("Service Operation")
+@Category({"Application", "Service"})
+@Description("A call of a Service method, including the DAO calls and the mapping it performs")
+@StackTrace(false)
+class ServiceOperationEvent extends jdk.jfr.Event {
+    @Label("Service")
+    String service;
+
+    @Label("Operation")
+    String operation;
+
+    /**
+     * Creates and begins an event.
+     *
+     * @return the begun ServiceOperationEvent.
+     */
+    static ServiceOperationEvent start() {
+        ServiceOperationEvent event = new ServiceOperationEvent();
+        event.begin();
+        return event;
+    }
+    /**
+     * Ends the event and commits it if a recording has it enabled and it exceeds its threshold.
+     *
+     * @param service The name of the service, for example UserService.
+     * @param operation The called method, for example get.
+     */
+    void finish(String service, String operation) {
+        end();
+        if (shouldCommit()) {
+            this.service = service;
+            this.operation = operation;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package metrics;
+
+import dao.DAO;
+import dao.FieldSet;
+import dao.RowVersions;
+import metrics.RequestTiming.Phase;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * The TimedDAO class is a decorator of a DAO that records the latency of every method, failed calls
+ * included, in the dao_duration_seconds histogram labelled with the name of the DAO and the method.
+ * The latency of streamAll includes the time spent in the consumer. The calls are accounted to the db
+ * phase of the RequestTiming of the request, the consumer of streamAll to the mapping phase.
+ */
+public class TimedDAO<T, K> implements DAO<T, K> {
+    private static final String METRIC = "dao_duration_seconds";
+    private static final String HELP = "Latency of the DAO methods";
+
+    private final DAO<T, K> dao;
+    private final Histogram get;
+    private final Histogram getVersions;
+    private final Histogram getAll;
+    private final Histogram getPage;
+    private final Histogram streamAll;
+    private final Histogram create;
+    private final Histogram createAll;
+    private final Histogram update;
+    private final Histogram delete;
+
+    /**
+     * Constructs a new TimedDAO.
+     *
+     * @param dao The DAO to be decorated.
+     * @param name The name of the DAO in the metrics, for example UserDAO.
+     * @param registry The registry of the histograms.
+     */
+    public TimedDAO(DAO<T, K> dao, String name, MetricsRegistry registry) {
+        this.dao = dao;
+        this.get = registry.histogram(METRIC, HELP, "dao", name, "method", "get");
+        this.getVersions = registry.histogram(METRIC, HELP, "dao", name, "method", "getVersions");
+        this.getAll = registry.histogram(METRIC, HELP, "dao", name, "method", "getAll");
+        this.getPage = registry.histogram(METRIC, HELP, "dao", name, "method", "getPage");
+        this.streamAll = registry.histogram(METRIC, HELP, "dao", name, "method", "streamAll");
+        this.create = registry.histogram(METRIC, HELP, "dao", name, "method", "create");
+        this.createAll = registry.histogram(METRIC, HELP, "dao", name, "method", "createAll");
+        this.update = registry.histogram(METRIC, HELP, "dao", name, "method", "update");
+        this.delete = registry.histogram(METRIC, HELP, "dao", name, "method", "delete");
+    }
+
+    @Override
+    public Optional<T> get(K id, FieldSet fields) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.DB);
+        try {
+            return dao.get(id, fields);
+        }
+        finally {
+            RequestTiming.end(previous);
+            get.recordSince(start);
+        }
+    }
+
+    @Override
+    public Optional<RowVersions> getVersions(K id, FieldSet fields) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.DB);
+        try {
+            return dao.getVersions(id, fields);
+        }
+        finally {
+            RequestTiming.end(previous);
+            getVersions.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<T> getAll(FieldSet fields) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.DB);
+        try {
+            return dao.getAll(fields);
+        }
+        finally {
+            RequestTiming.end(previous);
+            getAll.recordSince(start);
+        }
+    }
+
+    @Override
+    public List<T> getPage(K afterId, int limit, FieldSet fields) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.DB);
+        try {
+            return dao.getPage(afterId, limit, fields);
+        }
+        finally {
+            RequestTiming.end(previous);
+            getPage.recordSince(start);
+        }
+    }
+
+    @Override
+    public void streamAll(FieldSet fields, Consumer<? super T> consumer) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.DB);
+        try {
+            // the consumer maps the rows in the Service, it is timed as mapping
+            dao.streamAll(fields, obj -> {
+                Phase rowPhase = RequestTiming.begin(Phase.MAPPING);
+                try {
+                    consumer.accept(obj);
+                }
+                finally {
+                    RequestTiming.end(rowPhase);
+                }
+            });
+        }
+        finally {
+            RequestTiming.end(previous);
+            streamAll.recordSince(start);
+        }
+    }
+
+    @Override
+    public void create(T obj) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.DB);
+        try {
+            dao.create(obj);
+        }
+        finally {
+            RequestTiming.end(previous);
+            create.recordSince(start);
+        }
+    }
+
+    @Override
+    public void createAll(List<T> objs) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.DB);
+        try {
+            dao.createAll(objs);
+        }
+        finally {
+            RequestTiming.end(previous);
+            createAll.recordSince(start);
+        }
+    }
+
+    @Override
+    public void update(T obj) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.DB);
+        try {
+            dao.update(obj);
+        }
+        finally {
+            RequestTiming.end(previous);
+            update.recordSince(start);
+        }
+    }
+
+    @Override
+    public void delete(K id) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.DB);
+        try {
+            dao.delete(id);
+        }
+        finally {
+            RequestTiming.end(previous);
+            delete.recordSince(start);
+        }
+    }
+}
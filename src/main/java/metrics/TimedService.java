@@ -0,0 +1,207 @@
+package metrics;
+
+import dao.FieldSet;
+import dao.RowVersions;
+import metrics.RequestTiming.Phase;
+import services.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * The TimedService class is a decorator of a Service that records the latency of every method, failed calls
+ * included, in the service_duration_seconds histogram labelled with the name of the service and the method.
+ * The latency of streamAll includes the time spent in the consumer, that is writing the response.
+ * The calls are accounted to the mapping phase of the RequestTiming of the request, except the DAO
+ * calls and the serialization nested in them, and emitted as a ServiceOperationEvent for Flight Recorder.
+ */
+public class TimedService<T, K> implements Service<T, K> {
+    private static final String METRIC = "service_duration_seconds";
+    private static final String HELP = "Latency of the Service methods";
+
+    private final Service<T, K> service;
+    private final String name;
+    private final Histogram getAll;
+    private final Histogram getPage;
+    private final Histogram streamAll;
+    private final Histogram get;
+    private final Histogram getVersions;
+    private final Histogram versionsOf;
+    private final Histogram create;
+    private final Histogram createAll;
+    private final Histogram update;
+    private final Histogram delete;
+
+    /**
+     * Constructs a new TimedService.
+     *
+     * @param service The service to be decorated.
+     * @param name The name of the service in the metrics, for example UserService.
+     * @param registry The registry of the histograms.
+     */
+    public TimedService(Service<T, K> service, String name, MetricsRegistry registry) {
+        this.service = service;
+        this.name = name;
+        this.getAll = registry.histogram(METRIC, HELP, "service", name, "method", "getAll");
+        this.getPage = registry.histogram(METRIC, HELP, "service", name, "method", "getPage");
+        this.streamAll = registry.histogram(METRIC, HELP, "service", name, "method", "streamAll");
+        this.get = registry.histogram(METRIC, HELP, "service", name, "method", "get");
+        this.getVersions = registry.histogram(METRIC, HELP, "service", name, "method", "getVersions");
+        this.versionsOf = registry.histogram(METRIC, HELP, "service", name, "method", "versionsOf");
+        this.create = registry.histogram(METRIC, HELP, "service", name, "method", "create");
+        this.createAll = registry.histogram(METRIC, HELP, "service", name, "method", "createAll");
+        this.update = registry.histogram(METRIC, HELP, "service", name, "method", "update");
+        this.delete = registry.histogram(METRIC, HELP, "service", name, "method", "delete");
+    }
+
+    @Override
+    public List<T> getAll(FieldSet fields) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.MAPPING);
+        ServiceOperationEvent event = ServiceOperationEvent.start();
+        try {
+            return service.getAll(fields);
+        }
+        finally {
+            RequestTiming.end(previous);
+            getAll.recordSince(start);
+            event.finish(name, "getAll");
+        }
+    }
+
+    @Override
+    public List<T> getPage(K afterId, int limit, FieldSet fields) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.MAPPING);
+        ServiceOperationEvent event = ServiceOperationEvent.start();
+        try {
+            return service.getPage(afterId, limit, fields);
+        }
+        finally {
+            RequestTiming.end(previous);
+            getPage.recordSince(start);
+            event.finish(name, "getPage");
+        }
+    }
+
+    @Override
+    public void streamAll(FieldSet fields, Consumer<? super T> consumer) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.MAPPING);
+        ServiceOperationEvent event = ServiceOperationEvent.start();
+        try {
+            service.streamAll(fields, consumer);
+        }
+        finally {
+            RequestTiming.end(previous);
+            streamAll.recordSince(start);
+            event.finish(name, "streamAll");
+        }
+    }
+
+    @Override
+    public Optional<T> get(K id, FieldSet fields) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.MAPPING);
+        ServiceOperationEvent event = ServiceOperationEvent.start();
+        try {
+            return service.get(id, fields);
+        }
+        finally {
+            RequestTiming.end(previous);
+            get.recordSince(start);
+            event.finish(name, "get");
+        }
+    }
+
+    @Override
+    public Optional<RowVersions> getVersions(K id, FieldSet fields) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.MAPPING);
+        ServiceOperationEvent event = ServiceOperationEvent.start();
+        try {
+            return service.getVersions(id, fields);
+        }
+        finally {
+            RequestTiming.end(previous);
+            getVersions.recordSince(start);
+            event.finish(name, "getVersions");
+        }
+    }
+
+    @Override
+    public RowVersions versionsOf(T obj, FieldSet fields) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.MAPPING);
+        ServiceOperationEvent event = ServiceOperationEvent.start();
+        try {
+            return service.versionsOf(obj, fields);
+        }
+        finally {
+            RequestTiming.end(previous);
+            versionsOf.recordSince(start);
+            event.finish(name, "versionsOf");
+        }
+    }
+
+    @Override
+    public void create(T obj) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.MAPPING);
+        ServiceOperationEvent event = ServiceOperationEvent.start();
+        try {
+            service.create(obj);
+        }
+        finally {
+            RequestTiming.end(previous);
+            create.recordSince(start);
+            event.finish(name, "create");
+        }
+    }
+
+    @Override
+    public List<K> createAll(List<T> objs) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.MAPPING);
+        ServiceOperationEvent event = ServiceOperationEvent.start();
+        try {
+            return service.createAll(objs);
+        }
+        finally {
+            RequestTiming.end(previous);
+            createAll.recordSince(start);
+            event.finish(name, "createAll");
+        }
+    }
+
+    @Override
+    public void update(T obj) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.MAPPING);
+        ServiceOperationEvent event = ServiceOperationEvent.start();
+        try {
+            service.update(obj);
+        }
+        finally {
+            RequestTiming.end(previous);
+            update.recordSince(start);
+            event.finish(name, "update");
+        }
+    }
+
+    @Override
+    public void delete(K id) {
+        long start = System.nanoTime();
+        Phase previous = RequestTiming.begin(Phase.MAPPING);
+        ServiceOperationEvent event = ServiceOperationEvent.start();
+        try {
+            service.delete(id);
+        }
+        finally {
+            RequestTiming.end(previous);
+            delete.recordSince(start);
+            event.finish(name, "delete");
+        }
+    }
+}
@@ -3,17 +3,21 @@ package models;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 /**
  * Relation:
  * One To Many: Department <-> User
  * One To Many: Department <-> Task
+ * The lists not queried by the DAO are LazyLists, loaded on first access.
+ * Two Departments are equal if they have the same department_id; a Department without one is equal only to itself.
  */
 public class Department {
     private Long department_id;
     private String department_name;
     private List<User> userList;
     private List<Task> taskList;
+    private Long department_version;
 
     public Department(Long department_id, String department_name) {
         this.department_id = department_id;
@@ -38,6 +42,14 @@ public class Department {
         this.department_name = department_name;
     }
 
+    public Long getDepartment_version() {
+        return department_version;
+    }
+
+    public void setDepartment_version(Long department_version) {
+        this.department_version = department_version;
+    }
+
     public List<User> getUserList() {
         return userList;
     }
@@ -46,6 +58,10 @@ public class Department {
         this.userList = userList;
     }
 
+    public void lazyUserList(Supplier<List<User>> loader) {
+        userList = new LazyList<>(loader);
+    }
+
     public List<Task> getTaskList() {
         return taskList;
     }
@@ -54,9 +70,13 @@ public class Department {
         this.taskList = taskList;
     }
 
+    public void lazyTaskList(Supplier<List<Task>> loader) {
+        taskList = new LazyList<>(loader);
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hash(department_id, department_name, userList, taskList);
+        return Objects.hashCode(department_id);
     }
 
     @Override
@@ -64,11 +84,7 @@ public class Department {
         if (this == obj) return true;
         if (obj == null || this.getClass() != obj.getClass()) return false;
         Department department = (Department) obj;
-
-        return Objects.equals(department_id, department.department_id) &&
-                Objects.equals(department_name, department.department_name) &&
-                Objects.equals(userList, department.userList) &&
-                Objects.equals(taskList, department.taskList);
+        return department_id != null && department_id.equals(department.department_id);
     }
 
     @Override
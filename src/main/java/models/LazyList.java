@@ -0,0 +1,78 @@
+package models;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The LazyList class is a list of related entities that is queried on first access.
+ * The loader is called at most once, also when the list is read by several threads,
+ * and the loaded elements are kept for the following accesses.
+ */
+public class LazyList<E> extends AbstractList<E> {
+    private Supplier<List<E>> loader;
+    private volatile List<E> elements;
+
+    /**
+     * Constructs a new LazyList loaded by the specified loader.
+     *
+     * @param loader Returns the elements of the list, usually by querying the database.
+     */
+    public LazyList(Supplier<List<E>> loader) {
+        this.loader = loader;
+    }
+    /**
+     * Checks whether the elements have been loaded, without loading them.
+     *
+     * @return true if the loader has been called.
+     */
+    public boolean isLoaded() {
+        return elements != null;
+    }
+
+    private List<E> elements() {
+        List<E> loaded = elements;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = elements;
+                if (loaded == null) {
+                    loaded = new ArrayList<>(loader.get());
+                    elements = loaded;
+                    loader = null;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public E get(int index) {
+        return elements().get(index);
+    }
+
+    @Override
+    public int size() {
+        return elements().size();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        return elements().set(index, element);
+    }
+
+    @Override
+    public void add(int index, E element) {
+        elements().add(index, element);
+    }
+
+    @Override
+    public E remove(int index) {
+        return elements().remove(index);
+    }
+
+    @Override
+    public String toString() {
+        return isLoaded() ? elements.toString() : "[not loaded]";
+    }
+}
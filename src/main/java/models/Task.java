@@ -3,16 +3,20 @@ package models;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 /**
  * Relation:
  * Many To Many: Task <-> User
+ * The lists not queried by the DAO are LazyLists, loaded on first access.
+ * Two Tasks are equal if they have the same task_id; a Task without one is equal only to itself.
  */
 public class Task {
     private Long task_id;
     private String task_name;
     private Department department;
     private List<User> userList;
+    private Long task_version;
 
     public Task(Long task_id, String task_name, Department department) {
         this.task_id = task_id;
@@ -45,13 +49,25 @@ public class Task {
         this.task_name = task_name;
     }
 
+    public Long getTask_version() {
+        return task_version;
+    }
+
+    public void setTask_version(Long task_version) {
+        this.task_version = task_version;
+    }
+
     public List<User> getUserList() {
         return userList;
     }
 
+    public void lazyUserList(Supplier<List<User>> loader) {
+        userList = new LazyList<>(loader);
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hash(task_id, task_name, department, userList);
+        return Objects.hashCode(task_id);
     }
 
     @Override
@@ -59,10 +75,7 @@ public class Task {
         if (this == obj) return true;
         if (obj == null || this.getClass() != obj.getClass()) return false;
         Task task = (Task) obj;
-        return Objects.equals(task_id, task.task_id) &&
-                Objects.equals(task_name, task.task_name)
-                && Objects.equals(department, task.department)
-                && Objects.equals(userList, task.userList);
+        return task_id != null && task_id.equals(task.task_id);
     }
 
     @Override
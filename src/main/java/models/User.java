@@ -3,11 +3,14 @@ package models;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 /**
  * Relation:
  * Many To One: User <-> Department
  * Many to Many: User <-> Task
+ * The lists not queried by the DAO are LazyLists, loaded on first access.
+ * Two Users are equal if they have the same user_id; a User without one is equal only to itself.
  */
 public class User {
     private Long user_id;
@@ -15,6 +18,7 @@ public class User {
     private String user_lastname;
     private Department department;
     private List<Task> taskList;
+    private Long user_version;
 
     public User(Long user_id, String user_firstname, String user_lastname, Department department) {
         this.user_id = user_id;
@@ -47,6 +51,14 @@ public class User {
         this.user_lastname = user_lastname;
     }
 
+    public Long getUser_version() {
+        return user_version;
+    }
+
+    public void setUser_version(Long user_version) {
+        this.user_version = user_version;
+    }
+
     public Department getDepartment() {
         return department;
     }
@@ -59,9 +71,13 @@ public class User {
         return taskList;
     }
 
+    public void lazyTaskList(Supplier<List<Task>> loader) {
+        taskList = new LazyList<>(loader);
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hash(user_id, user_firstname, user_lastname, department, taskList);
+        return Objects.hashCode(user_id);
     }
 
     @Override
@@ -69,11 +85,7 @@ public class User {
         if (this == obj) return true;
         if (obj == null || this.getClass() != obj.getClass()) return false;
         User user = (User) obj;
-        return Objects.equals(user_id, user.user_id) &&
-                Objects.equals(user_firstname, user.user_firstname) &&
-                Objects.equals(user_lastname, user.user_lastname) &&
-                Objects.equals(department, user.department) &&
-                Objects.equals(taskList, user.taskList);
+        return user_id != null && user_id.equals(user.user_id);
     }
 
     @Override
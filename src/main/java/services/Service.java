@@ -1,7 +1,11 @@
 package services;
 
+import dao.FieldSet;
+import dao.RowVersions;
+
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * The Service interface defines the contract for services that handle operations
@@ -14,20 +18,99 @@ public interface Service<T, K> {
      *
      * @return A list of DTO objects representing all T type.
      */
-    List<T> getAll();
+    default List<T> getAll() {
+        return getAll(FieldSet.ALL);
+    }
+    /**
+     * Retrieves a list of all T objects with only the child collections of the FieldSet.
+     *
+     * @param fields The requested fields; the child collections outside of it are neither loaded nor mapped.
+     * @return A list of DTO objects representing all T type.
+     */
+    List<T> getAll(FieldSet fields);
+    /**
+     * Retrieves the next page of T objects ordered by their unique identifier.
+     *
+     * @param afterId The identifier after which the page starts, or null for the first page.
+     * @param limit The maximum number of T objects in the page.
+     * @return A list of at most limit DTO objects, or an empty list if there are no more T objects.
+     */
+    default List<T> getPage(K afterId, int limit) {
+        return getPage(afterId, limit, FieldSet.ALL);
+    }
+    /**
+     * Retrieves the next page of T objects with only the child collections of the FieldSet.
+     *
+     * @param afterId The identifier after which the page starts, or null for the first page.
+     * @param limit The maximum number of T objects in the page.
+     * @param fields The requested fields; the child collections outside of it are neither loaded nor mapped.
+     * @return A list of at most limit DTO objects, or an empty list if there are no more T objects.
+     */
+    List<T> getPage(K afterId, int limit, FieldSet fields);
+    /**
+     * Passes all T objects available in the system to the consumer one by one, as they are read
+     * from the data store.
+     *
+     * @param consumer The callback receiving every DTO object.
+     */
+    default void streamAll(Consumer<? super T> consumer) {
+        streamAll(FieldSet.ALL, consumer);
+    }
+    /**
+     * Passes all T objects to the consumer one by one with only the child collections of the FieldSet.
+     *
+     * @param fields The requested fields; the child collections outside of it are neither loaded nor mapped.
+     * @param consumer The callback receiving every DTO object.
+     */
+    void streamAll(FieldSet fields, Consumer<? super T> consumer);
     /**
      * Retrieves a T type by its unique identifier.
      *
      * @param id The unique identifier of the T type.
      * @return An Optional containing the DTO if found, or an empty Optional if not found.
      */
-    Optional<T> get(K id);
+    default Optional<T> get(K id) {
+        return get(id, FieldSet.ALL);
+    }
+    /**
+     * Retrieves a T type by its unique identifier with only the child collections of the FieldSet.
+     *
+     * @param id The unique identifier of the T type.
+     * @param fields The requested fields; the child collections outside of it are neither loaded nor mapped.
+     * @return An Optional containing the DTO if found, or an empty Optional if not found.
+     */
+    Optional<T> get(K id, FieldSet fields);
+    /**
+     * Retrieves only the versions of the rows a T type with the child collections of the FieldSet is made of,
+     * without loading the T type.
+     *
+     * @param id The unique identifier of the T type.
+     * @param fields The requested fields.
+     * @return An Optional containing the RowVersions if found, or an empty Optional if not found.
+     */
+    Optional<RowVersions> getVersions(K id, FieldSet fields);
+    /**
+     * Returns the versions of the rows a retrieved T type is made of, equal to the RowVersions returned by
+     * getVersions as long as none of these rows has changed.
+     *
+     * @param obj The DTO object retrieved with the FieldSet.
+     * @param fields The requested fields.
+     * @return The RowVersions of the DTO object.
+     */
+    RowVersions versionsOf(T obj, FieldSet fields);
     /**
      * Creates a new T type in the system.
      *
      * @param obj The DTO object representing the T type to be created.
      */
     void create(T obj);
+    /**
+     * Creates all T types in the system at once.
+     *
+     * @param objs The DTO objects representing the T types to be created.
+     * @return The unique identifiers of the created T types, in the order of objs.
+     */
+    List<K> createAll(List<T> objs);
     /**
      * Updates an existing T type in the system.
      *
@@ -1,6 +1,8 @@
 package services.impl;
 
 import dao.DAO;
+import dao.FieldSet;
+import dao.RowVersions;
 import dto.DepartmentDTO;
 import dto.TaskDTO;
 import dto.UserDTO;
@@ -13,6 +15,7 @@ import services.Service;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -44,61 +47,80 @@ public class DepartmentService implements Service<DepartmentDTO, Long> {
     /**
      * Retrieves a list of all Departments available in the system.
      *
+     * @param fields The requested fields.
      * @return A list of DepartmentDTO objects representing all Departments.
      */
     @Override
-    public List<DepartmentDTO> getAll() {
-        List<Department> departmentList = departmentDAO.getAll();
-        List<DepartmentDTO> departmentDTOList = new ArrayList<>();
-
-        for (Department department : departmentList) {
-            DepartmentDTO departmentDTO = departMapper.toDepartmentDTO(department);
-
-            List<UserDTO> userDTOList = department.getUserList().stream()
-                    .map(userMapper::toUserDTO)
-                    .collect(Collectors.toList());
-
-            List<TaskDTO> taskDTOList = department.getTaskList().stream()
-                    .map(taskMapper::toTaskDTO)
-                    .collect(Collectors.toList());
-
-            departmentDTO.setUserList(userDTOList);
-            departmentDTO.setTaskList(taskDTOList);
-
-            departmentDTOList.add(departmentDTO);
-        }
-
-        return departmentDTOList;
+    public List<DepartmentDTO> getAll(FieldSet fields) {
+        return toDTOList(departmentDAO.getAll(fields), fields);
+    }
+    /**
+     * Retrieves the next page of Departments ordered by their unique identifier.
+     *
+     * @param afterId The identifier after which the page starts, or null for the first page.
+     * @param limit The maximum number of Departments in the page.
+     * @param fields The requested fields.
+     * @return A list of at most limit DepartmentDTO objects.
+     */
+    @Override
+    public List<DepartmentDTO> getPage(Long afterId, int limit, FieldSet fields) {
+        return toDTOList(departmentDAO.getPage(afterId, limit, fields), fields);
+    }
+    /**
+     * Passes all Departments to the consumer one by one, converting each Department entity as it is read.
+     *
+     * @param fields The requested fields.
+     * @param consumer The callback receiving every DepartmentDTO.
+     */
+    @Override
+    public void streamAll(FieldSet fields, Consumer<? super DepartmentDTO> consumer) {
+        departmentDAO.streamAll(fields, department -> consumer.accept(toDTO(department, fields)));
     }
     /**
      * Retrieves a Department by its unique identifier.
      *
      * @param id The unique identifier of the Department.
+     * @param fields The requested fields.
      * @return An Optional containing the DepartmentDTO if found, or an empty Optional if not found.
      */
     @Override
-    public Optional<DepartmentDTO> get(Long id) {
-         Optional<Department> department = departmentDAO.get(id);
-        if (department.isPresent()) {
-            DepartmentDTO departmentDTO = departMapper.toDepartmentDTO(department.get());
-
-            List<UserDTO> userDTOList = department.get().getUserList().stream()
-                    .map(userMapper::toUserDTO)
-                    .collect(Collectors.toList());
-
-            List<TaskDTO> taskDTOList = department.get().getTaskList().stream()
-                    .map(taskMapper::toTaskDTO)
-                    .collect(Collectors.toList());
-
-            departmentDTO.setUserList(userDTOList);
-            departmentDTO.setTaskList(taskDTOList);
+    public Optional<DepartmentDTO> get(Long id, FieldSet fields) {
+        return departmentDAO.get(id, fields).map(department -> toDTO(department, fields));
+    }
+    /**
+     * Retrieves the versions of a Department and its users and tasks of the FieldSet.
+     *
+     * @param id The unique identifier of the Department.
+     * @param fields The requested fields.
+     * @return An Optional containing the RowVersions if found, or an empty Optional if not found.
+     */
+    @Override
+    public Optional<RowVersions> getVersions(Long id, FieldSet fields) {
+        return departmentDAO.getVersions(id, fields);
+    }
+    /**
+     * Returns the versions of a DepartmentDTO and its users and tasks of the FieldSet.
+     *
+     * @param obj The DepartmentDTO retrieved with the FieldSet.
+     * @param fields The requested fields.
+     * @return The RowVersions of the DepartmentDTO.
+     */
+    @Override
+    public RowVersions versionsOf(DepartmentDTO obj, FieldSet fields) {
+        RowVersions versions = new RowVersions(obj.getDepartment_version());
 
-            return Optional.of(departmentDTO);
+        if (fields.includes(FieldSet.TASK_LIST)) {
+            for (TaskDTO taskDTO : obj.getTaskList()) {
+                versions.add(FieldSet.TASK_LIST, taskDTO.getTask_id(), taskDTO.getTask_version());
+            }
         }
-        else {
-            return Optional.empty();
+        if (fields.includes(FieldSet.USER_LIST)) {
+            for (UserDTO userDTO : obj.getUserList()) {
+                versions.add(FieldSet.USER_LIST, userDTO.getUser_id(), userDTO.getUser_version());
+            }
         }
 
+        return versions;
     }
     /**
      * Creates a new Department in the system.
@@ -110,6 +132,22 @@ public class DepartmentService implements Service<DepartmentDTO, Long> {
         Department department = departMapper.toDepartment(obj);
         departmentDAO.create(department);
     }
+    /**
+     * Creates all Departments in the system with a single batch of the data store.
+     *
+     * @param objs The DepartmentDTO objects representing the Departments to be created.
+     * @return The unique identifiers of the created Departments, in the order of objs.
+     */
+    @Override
+    public List<Long> createAll(List<DepartmentDTO> objs) {
+        List<Department> departments = objs.stream()
+                .map(departMapper::toDepartment)
+                .collect(Collectors.toList());
+        departmentDAO.createAll(departments);
+        return departments.stream()
+                .map(Department::getDepartment_id)
+                .collect(Collectors.toList());
+    }
     /**
      * Updates an existing Department in the system.
      *
@@ -129,4 +167,51 @@ public class DepartmentService implements Service<DepartmentDTO, Long> {
     public void delete(Long id) {
         departmentDAO.delete(id);
     }
+
+    /**
+     * Converts the Department entities to DepartmentDTO objects together with their nested lists of the FieldSet.
+     *
+     * @param departmentList The Department entities to be converted.
+     * @param fields The requested fields.
+     * @return A list of the corresponding DepartmentDTO objects.
+     */
+    private List<DepartmentDTO> toDTOList(List<Department> departmentList, FieldSet fields) {
+        List<DepartmentDTO> departmentDTOList = new ArrayList<>();
+
+        for (Department department : departmentList) {
+            departmentDTOList.add(toDTO(department, fields));
+        }
+
+        return departmentDTOList;
+    }
+    /**
+     * Converts a Department entity to a DepartmentDTO object together with its nested lists of the FieldSet.
+     * The lists outside of the FieldSet are not converted and set to null.
+     *
+     * @param department The Department entity to be converted.
+     * @param fields The requested fields.
+     * @return The corresponding DepartmentDTO.
+     */
+    private DepartmentDTO toDTO(Department department, FieldSet fields) {
+        DepartmentDTO departmentDTO = departMapper.toDepartmentDTOWithoutLists(department);
+
+        List<UserDTO> userDTOList = null;
+        if (fields.includes(FieldSet.USER_LIST)) {
+            userDTOList = department.getUserList().stream()
+                    .map(userMapper::toUserDTO)
+                    .collect(Collectors.toList());
+        }
+
+        List<TaskDTO> taskDTOList = null;
+        if (fields.includes(FieldSet.TASK_LIST)) {
+            taskDTOList = department.getTaskList().stream()
+                    .map(taskMapper::toTaskDTO)
+                    .collect(Collectors.toList());
+        }
+
+        departmentDTO.setUserList(userDTOList);
+        departmentDTO.setTaskList(taskDTOList);
+
+        return departmentDTO;
+    }
 }
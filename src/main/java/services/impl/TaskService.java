@@ -1,6 +1,8 @@
 package services.impl;
 
 import dao.DAO;
+import dao.FieldSet;
+import dao.RowVersions;
 import dto.TaskDTO;
 import dto.UserDTO;
 import mappers.DepartmentMapper;
@@ -12,6 +14,7 @@ import services.Service;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -41,52 +44,78 @@ public class TaskService implements Service<TaskDTO, Long> {
     /**
      * Retrieves a list of all Tasks available in the system.
      *
+     * @param fields The requested fields.
      * @return A list of TaskDTO objects representing all Tasks.
      */
     @Override
-    public List<TaskDTO> getAll() {
-        List<Task> taskList = taskDAO.getAll();
-        List<TaskDTO> taskDTOList = new ArrayList<>();
-
-        for (Task task : taskList) {
-            TaskDTO taskDTO = taskMapper.toTaskDTO(task);
-            taskDTO.setDepartment(departmentMapper.toDepartmentDTO(task.getDepartment()));
-
-            List<UserDTO> userDTOList = task.getUserList().stream()
-                    .map(userMapper::toUserDTO)
-                    .collect(Collectors.toList());
-
-            taskDTO.setUserList(userDTOList);
-
-            taskDTOList.add(taskDTO);
-        }
-
-        return taskDTOList;
+    public List<TaskDTO> getAll(FieldSet fields) {
+        return toDTOList(taskDAO.getAll(fields), fields);
+    }
+    /**
+     * Retrieves the next page of Tasks ordered by their unique identifier.
+     *
+     * @param afterId The identifier after which the page starts, or null for the first page.
+     * @param limit The maximum number of Tasks in the page.
+     * @param fields The requested fields.
+     * @return A list of at most limit TaskDTO objects.
+     */
+    @Override
+    public List<TaskDTO> getPage(Long afterId, int limit, FieldSet fields) {
+        return toDTOList(taskDAO.getPage(afterId, limit, fields), fields);
+    }
+    /**
+     * Passes all Tasks to the consumer one by one, converting each Task entity as it is read.
+     *
+     * @param fields The requested fields.
+     * @param consumer The callback receiving every TaskDTO.
+     */
+    @Override
+    public void streamAll(FieldSet fields, Consumer<? super TaskDTO> consumer) {
+        taskDAO.streamAll(fields, task -> consumer.accept(toDTO(task, fields)));
     }
     /**
      * Retrieves a Task by its unique identifier.
      *
      * @param id The unique identifier of the Task.
+     * @param fields The requested fields.
      * @return An Optional containing the TaskDTO if found, or an empty Optional if not found.
      */
     @Override
-    public Optional<TaskDTO> get(Long id) {
-        Optional<Task> task = taskDAO.get(id);
-        if (task.isPresent()) {
-            TaskDTO taskDTO = taskMapper.toTaskDTO(task.get());
-            taskDTO.setDepartment(departmentMapper.toDepartmentDTO(task.get().getDepartment()));
-
-            List<UserDTO> userDTOList = task.get().getUserList().stream()
-                    .map(userMapper::toUserDTO)
-                    .collect(Collectors.toList());
-
-            taskDTO.setUserList(userDTOList);
+    public Optional<TaskDTO> get(Long id, FieldSet fields) {
+        return taskDAO.get(id, fields).map(task -> toDTO(task, fields));
+    }
+    /**
+     * Retrieves the versions of a Task, its department and its users of the FieldSet.
+     *
+     * @param id The unique identifier of the Task.
+     * @param fields The requested fields.
+     * @return An Optional containing the RowVersions if found, or an empty Optional if not found.
+     */
+    @Override
+    public Optional<RowVersions> getVersions(Long id, FieldSet fields) {
+        return taskDAO.getVersions(id, fields);
+    }
+    /**
+     * Returns the versions of a TaskDTO, its department and its users of the FieldSet with their departments.
+     *
+     * @param obj The TaskDTO retrieved with the FieldSet.
+     * @param fields The requested fields.
+     * @return The RowVersions of the TaskDTO.
+     */
+    @Override
+    public RowVersions versionsOf(TaskDTO obj, FieldSet fields) {
+        RowVersions versions = new RowVersions(obj.getTask_version())
+                .add(RowVersions.DEPARTMENT, obj.getDepartment().getDepartment_id(), obj.getDepartment().getDepartment_version());
 
-            return Optional.of(taskDTO);
-        }
-        else {
-            return Optional.empty();
+        if (fields.includes(FieldSet.USER_LIST)) {
+            for (UserDTO userDTO : obj.getUserList()) {
+                versions.add(FieldSet.USER_LIST, userDTO.getUser_id(), userDTO.getUser_version())
+                        .add(RowVersions.departmentOf(FieldSet.USER_LIST), userDTO.getDepartment().getDepartment_id(),
+                                userDTO.getDepartment().getDepartment_version());
+            }
         }
+
+        return versions;
     }
     /**
      * Creates a new Task in the system.
@@ -98,6 +127,22 @@ public class TaskService implements Service<TaskDTO, Long> {
         Task task = taskMapper.toTask(obj);
         taskDAO.create(task);
     }
+    /**
+     * Creates all Tasks in the system with a single batch of the data store.
+     *
+     * @param objs The TaskDTO objects representing the Tasks to be created.
+     * @return The unique identifiers of the created Tasks, in the order of objs.
+     */
+    @Override
+    public List<Long> createAll(List<TaskDTO> objs) {
+        List<Task> tasks = objs.stream()
+                .map(taskMapper::toTask)
+                .collect(Collectors.toList());
+        taskDAO.createAll(tasks);
+        return tasks.stream()
+                .map(Task::getTask_id)
+                .collect(Collectors.toList());
+    }
     /**
      * Updates an existing Task in the system.
      *
@@ -117,4 +162,44 @@ public class TaskService implements Service<TaskDTO, Long> {
     public void delete(Long id) {
         taskDAO.delete(id);
     }
+
+    /**
+     * Converts the Task entities to TaskDTO objects together with their nested lists of the FieldSet.
+     *
+     * @param taskList The Task entities to be converted.
+     * @param fields The requested fields.
+     * @return A list of the corresponding TaskDTO objects.
+     */
+    private List<TaskDTO> toDTOList(List<Task> taskList, FieldSet fields) {
+        List<TaskDTO> taskDTOList = new ArrayList<>();
+
+        for (Task task : taskList) {
+            taskDTOList.add(toDTO(task, fields));
+        }
+
+        return taskDTOList;
+    }
+    /**
+     * Converts a Task entity to a TaskDTO object together with its nested lists of the FieldSet.
+     * The lists outside of the FieldSet are not converted and set to null.
+     *
+     * @param task The Task entity to be converted.
+     * @param fields The requested fields.
+     * @return The corresponding TaskDTO.
+     */
+    private TaskDTO toDTO(Task task, FieldSet fields) {
+        TaskDTO taskDTO = taskMapper.toTaskDTOWithoutLists(task);
+        taskDTO.setDepartment(departmentMapper.toDepartmentDTO(task.getDepartment()));
+
+        List<UserDTO> userDTOList = null;
+        if (fields.includes(FieldSet.USER_LIST)) {
+            userDTOList = task.getUserList().stream()
+                    .map(userMapper::toUserDTO)
+                    .collect(Collectors.toList());
+        }
+
+        taskDTO.setUserList(userDTOList);
+
+        return taskDTO;
+    }
 }
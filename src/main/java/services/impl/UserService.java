@@ -1,6 +1,8 @@
 package services.impl;
 
 import dao.DAO;
+import dao.FieldSet;
+import dao.RowVersions;
 import dto.TaskDTO;
 import dto.UserDTO;
 import mappers.DepartmentMapper;
@@ -12,6 +14,7 @@ import services.Service;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -42,52 +45,78 @@ public class UserService implements Service<UserDTO, Long> {
     /**
      * Retrieves a list of all Users available in the system.
      *
+     * @param fields The requested fields.
      * @return A list of UserDTO objects representing all Tasks.
      */
     @Override
-    public List<UserDTO> getAll() {
-        List<User> userList = usertDAO.getAll();
-        List<UserDTO> userDTOList = new ArrayList<>();
-
-        for (User user : userList) {
-            UserDTO userDTO = userMapper.toUserDTO(user);
-            userDTO.setDepartment(departMapper.toDepartmentDTO(user.getDepartment()));
-
-            List<TaskDTO> taskDTOList = user.getTaskList().stream()
-                    .map(taskMapper::toTaskDTO)
-                    .collect(Collectors.toList());
-
-            userDTO.setTaskList(taskDTOList);
-
-            userDTOList.add(userDTO);
-        }
-
-        return userDTOList;
+    public List<UserDTO> getAll(FieldSet fields) {
+        return toDTOList(usertDAO.getAll(fields), fields);
+    }
+    /**
+     * Retrieves the next page of Users ordered by their unique identifier.
+     *
+     * @param afterId The identifier after which the page starts, or null for the first page.
+     * @param limit The maximum number of Users in the page.
+     * @param fields The requested fields.
+     * @return A list of at most limit UserDTO objects.
+     */
+    @Override
+    public List<UserDTO> getPage(Long afterId, int limit, FieldSet fields) {
+        return toDTOList(usertDAO.getPage(afterId, limit, fields), fields);
+    }
+    /**
+     * Passes all Users to the consumer one by one, converting each User entity as it is read.
+     *
+     * @param fields The requested fields.
+     * @param consumer The callback receiving every UserDTO.
+     */
+    @Override
+    public void streamAll(FieldSet fields, Consumer<? super UserDTO> consumer) {
+        usertDAO.streamAll(fields, user -> consumer.accept(toDTO(user, fields)));
     }
     /**
      * Retrieves a User by its unique identifier.
      *
      * @param id The unique identifier of the User.
+     * @param fields The requested fields.
      * @return An Optional containing the UserDTO if found, or an empty Optional if not found.
      */
     @Override
-    public Optional<UserDTO> get(Long id) {
-        Optional<User> user = usertDAO.get(id);
-        if (user.isPresent()) {
-            UserDTO userDTO = userMapper.toUserDTO(user.get());
-            userDTO.setDepartment(departMapper.toDepartmentDTO(user.get().getDepartment()));
-
-            List<TaskDTO> taskDTOList = user.get().getTaskList().stream()
-                    .map(taskMapper::toTaskDTO)
-                    .collect(Collectors.toList());
-
-            userDTO.setTaskList(taskDTOList);
+    public Optional<UserDTO> get(Long id, FieldSet fields) {
+        return usertDAO.get(id, fields).map(user -> toDTO(user, fields));
+    }
+    /**
+     * Retrieves the versions of a User, its department and its tasks of the FieldSet.
+     *
+     * @param id The unique identifier of the User.
+     * @param fields The requested fields.
+     * @return An Optional containing the RowVersions if found, or an empty Optional if not found.
+     */
+    @Override
+    public Optional<RowVersions> getVersions(Long id, FieldSet fields) {
+        return usertDAO.getVersions(id, fields);
+    }
+    /**
+     * Returns the versions of a UserDTO, its department and its tasks of the FieldSet with their departments.
+     *
+     * @param obj The UserDTO retrieved with the FieldSet.
+     * @param fields The requested fields.
+     * @return The RowVersions of the UserDTO.
+     */
+    @Override
+    public RowVersions versionsOf(UserDTO obj, FieldSet fields) {
+        RowVersions versions = new RowVersions(obj.getUser_version())
+                .add(RowVersions.DEPARTMENT, obj.getDepartment().getDepartment_id(), obj.getDepartment().getDepartment_version());
 
-            return Optional.of(userDTO);
-        }
-        else {
-            return Optional.empty();
+        if (fields.includes(FieldSet.TASK_LIST)) {
+            for (TaskDTO taskDTO : obj.getTaskList()) {
+                versions.add(FieldSet.TASK_LIST, taskDTO.getTask_id(), taskDTO.getTask_version())
+                        .add(RowVersions.departmentOf(FieldSet.TASK_LIST), taskDTO.getDepartment().getDepartment_id(),
+                                taskDTO.getDepartment().getDepartment_version());
+            }
         }
+
+        return versions;
     }
     /**
      * Creates a new User in the system.
@@ -99,6 +128,22 @@ public class UserService implements Service<UserDTO, Long> {
         User user = userMapper.toUser(obj);
         usertDAO.create(user);
     }
+    /**
+     * Creates all Users in the system with a single batch of the data store.
+     *
+     * @param objs The UserDTO objects representing the Users to be created.
+     * @return The unique identifiers of the created Users, in the order of objs.
+     */
+    @Override
+    public List<Long> createAll(List<UserDTO> objs) {
+        List<User> users = objs.stream()
+                .map(userMapper::toUser)
+                .collect(Collectors.toList());
+        usertDAO.createAll(users);
+        return users.stream()
+                .map(User::getUser_id)
+                .collect(Collectors.toList());
+    }
     /**
      * Updates an existing User in the system.
      *
@@ -118,4 +163,44 @@ public class UserService implements Service<UserDTO, Long> {
     public void delete(Long id) {
         usertDAO.delete(id);
     }
+
+    /**
+     * Converts the User entities to UserDTO objects together with their nested lists of the FieldSet.
+     *
+     * @param userList The User entities to be converted.
+     * @param fields The requested fields.
+     * @return A list of the corresponding UserDTO objects.
+     */
+    private List<UserDTO> toDTOList(List<User> userList, FieldSet fields) {
+        List<UserDTO> userDTOList = new ArrayList<>();
+
+        for (User user : userList) {
+            userDTOList.add(toDTO(user, fields));
+        }
+
+        return userDTOList;
+    }
+    /**
+     * Converts a User entity to a UserDTO object together with its nested lists of the FieldSet.
+     * The lists outside of the FieldSet are not converted and set to null.
+     *
+     * @param user The User entity to be converted.
+     * @param fields The requested fields.
+     * @return The corresponding UserDTO.
+     */
+    private UserDTO toDTO(User user, FieldSet fields) {
+        UserDTO userDTO = userMapper.toUserDTOWithoutLists(user);
+        userDTO.setDepartment(departMapper.toDepartmentDTO(user.getDepartment()));
+
+        List<TaskDTO> taskDTOList = null;
+        if (fields.includes(FieldSet.TASK_LIST)) {
+            taskDTOList = user.getTaskList().stream()
+                    .map(taskMapper::toTaskDTO)
+                    .collect(Collectors.toList());
+        }
+
+        userDTO.setTaskList(taskDTOList);
+
+        return userDTO;
+    }
 }
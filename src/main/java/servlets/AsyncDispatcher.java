@@ -0,0 +1,235 @@
+package servlets;
+
+import config.AppProperties;
+import config.DBConnection;
+import dao.jdbc.QueryScope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The AsyncDispatcher class runs the request handlers of the servlets outside of the container threads.
+ * In the async mode (servlet.async) a handler is started in an AsyncContext on a virtual thread, so the
+ * container thread is released while the handler waits for JDBC. At most servlet.async.max-concurrency
+ * handlers run at once (by default the size of the Hikari pool); the other requests wait for a permit
+ * on their virtual thread instead of holding a platform thread. A request still running after
+ * servlet.async.timeout-millis is answered with 503 Service Unavailable and its handler is interrupted; the
+ * handler writes to an ExpiringResponse, so it cannot reach the response once the container has recycled it.
+ * Every dispatched request is counted in the RequestMetrics.
+ */
+public class AsyncDispatcher {
+    private static final boolean ASYNC = AppProperties.getBoolean("servlet.async", true);
+    private static final long TIMEOUT_MILLIS = AppProperties.getInt("servlet.async.timeout-millis", 30_000);
+    private static final Semaphore permits = new Semaphore(maxConcurrency(), true);
+    private static final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private static final RequestMetrics requestMetrics = RequestMetrics.getDefault();
+    private static final Logger log = LoggerFactory.getLogger(AsyncDispatcher.class.getName());
+
+    /**
+     * A request handler of a servlet, for example the body of doGet.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * Handles the request.
+         *
+         * @param req The HttpServletRequest object.
+         * @param resp The HttpServletResponse object.
+         * @throws ServletException If the request could not be handled.
+         * @throws IOException If an input or output error is detected when the request is handled.
+         */
+        void handle(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException;
+    }
+
+    private AsyncDispatcher() {
+    }
+    /**
+     * Runs the handler for the request, asynchronously on a virtual thread in the async mode, or on the
+     * calling thread if the async mode is disabled or the servlet is not marked async-supported.
+     *
+     * @param req The HttpServletRequest object.
+     * @param resp The HttpServletResponse object.
+     * @param handler The handler of the request.
+     * @throws ServletException If the handler could not handle the request on the calling thread.
+     * @throws IOException If an input or output error is detected by the handler on the calling thread.
+     */
+    public static void dispatch(HttpServletRequest req, HttpServletResponse resp, Handler handler)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        if (!ASYNC || !req.isAsyncSupported()) {
+            boolean failed = true;
+            try {
+                handle(req, resp, handler);
+                failed = false;
+            }
+            finally {
+                requestMetrics.record(req, resp, start, failed);
+            }
+            return;
+        }
+
+        AsyncContext asyncContext = req.startAsync(req, resp);
+        asyncContext.setTimeout(TIMEOUT_MILLIS);
+        ExpiringResponse expiringResponse = new ExpiringResponse(resp);
+        String request = req.getMethod() + " " + req.getRequestURI();
+        ExpiryListener expiryListener = new ExpiryListener(asyncContext, expiringResponse, start);
+        asyncContext.addListener(expiryListener);
+
+        expiryListener.worker = executor.submit(() -> {
+            boolean failed = false;
+            try {
+                permits.acquire();
+                try {
+                    handle(req, expiringResponse, handler);
+                }
+                finally {
+                    permits.release();
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                sendError(expiringResponse, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            }
+            catch (Exception e) {
+                failed = true;
+                // the handler of an expired request fails on its next write, it has already been answered
+                if (!expiringResponse.isClosed()) {
+                    log.error("Failed to handle {}", request, e);
+                    sendError(expiringResponse, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                }
+            }
+            finally {
+                // after a timeout or an error the listener has already completed the request
+                if (expiringResponse.close()) {
+                    requestMetrics.record(req, resp, start, failed);
+                    complete(asyncContext);
+                }
+            }
+        });
+    }
+    /**
+     * Stops accepting new handlers. The handlers already started are allowed to finish.
+     */
+    public static void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Runs the handler in a QueryScope, so the statements it repeats are flagged by the InstrumentedDataSource,
+     * reports the phases of the request through ServerTiming and emits an HttpRequestEvent for Flight Recorder.
+     */
+    private static void handle(HttpServletRequest req, HttpServletResponse resp, Handler handler)
+            throws ServletException, IOException {
+        HttpRequestEvent event = new HttpRequestEvent();
+        event.begin();
+        // read before the handler, the request of an expired handler may already serve another request
+        String servlet = req.getHttpServletMapping().getServletName();
+        String method = req.getMethod();
+        String path = req.getRequestURI();
+        boolean failed = true;
+        QueryScope scope = QueryScope.open(method + " " + path);
+        try {
+            ServerTiming.handle(req, resp, handler);
+            failed = false;
+        }
+        finally {
+            scope.close();
+            event.end();
+            if (event.shouldCommit()) {
+                event.servlet = servlet;
+                event.method = method;
+                event.path = path;
+                event.status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : resp.getStatus();
+                event.requestId = resp.getHeader(ServerTiming.REQUEST_ID);
+                event.commit();
+            }
+        }
+    }
+
+    private static int maxConcurrency() {
+        int maxConcurrency = AppProperties.getInt("servlet.async.max-concurrency", 0);
+        return maxConcurrency > 0 ? maxConcurrency : DBConnection.getMaximumPoolSize();
+    }
+
+    private static void sendError(HttpServletResponse resp, int status) {
+        try {
+            if (!resp.isCommitted()) {
+                resp.sendError(status);
+            }
+        }
+        catch (IOException | IllegalStateException e) {
+            log.warn("Failed to send the error status {}", status, e);
+        }
+    }
+
+    /**
+     * Answers a request that has timed out with 503 Service Unavailable, or a request whose connection has
+     * failed without a response, interrupts its handler and completes it. A handler finishing at the same
+     * time completes the request itself, whichever closes the ExpiringResponse first.
+     */
+    private static final class ExpiryListener implements AsyncListener {
+        private final AsyncContext asyncContext;
+        private final ExpiringResponse response;
+        private final long start;
+        private volatile Future<?> worker;
+
+        ExpiryListener(AsyncContext asyncContext, ExpiringResponse response, long start) {
+            this.asyncContext = asyncContext;
+            this.response = response;
+            this.start = start;
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            expire(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            expire(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void expire(int status) {
+            HttpServletResponse resp = (HttpServletResponse) response.getResponse();
+            if (!response.expire(status)) {
+                return;
+            }
+            Future<?> handler = worker;
+            if (handler != null) {
+                handler.cancel(true);
+            }
+            sendError(resp, status);
+            requestMetrics.record((HttpServletRequest) asyncContext.getRequest(), response, start, true);
+            complete(asyncContext);
+        }
+    }
+
+    private static void complete(AsyncContext asyncContext) {
+        try {
+            asyncContext.complete();
+        }
+        catch (IllegalStateException e) {
+            // the container has already completed the request, for example after the timeout
+            log.warn("The asynchronous request was completed before its handler finished", e);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package servlets;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The CapturingResponse class is the response of a cacheable request. The body is written through to the
+ * client as usual and copied into a buffer, together with the headers set by the handler, so the
+ * ResponseCache can store it once the handler has finished.
+ */
+class CapturingResponse extends HttpServletResponseWrapper {
+    private final int maxBodySize;
+    private final List<Map.Entry<String, String>> headers = new ArrayList<>();
+    private ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private ServletOutputStream stream;
+    private int status = SC_OK;
+
+    /**
+     * Constructs a new CapturingResponse.
+     *
+     * @param response The response to be wrapped.
+     * @param maxBodySize The maximum size of the captured body; a larger body is written but not captured.
+     */
+    CapturingResponse(HttpServletResponse response, int maxBodySize) {
+        super(response);
+        this.maxBodySize = maxBodySize;
+    }
+    /**
+     * Returns the captured response.
+     *
+     * @return the body and the headers, or null if the status is not 200 OK or the body was too large.
+     */
+    ResponseCache.CachedResponse getCaptured() {
+        if (status != SC_OK || body == null) {
+            return null;
+        }
+        return new ResponseCache.CachedResponse(body.toByteArray(), List.copyOf(headers));
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (stream == null) {
+            stream = new TeeOutputStream(super.getOutputStream());
+        }
+        return stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        // the servlets write bytes only, a text body is not captured
+        body = null;
+        return super.getWriter();
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        super.setHeader(name, value);
+        headers.removeIf(header -> header.getKey().equalsIgnoreCase(name));
+        headers.add(Map.entry(name, value));
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        super.addHeader(name, value);
+        headers.add(Map.entry(name, value));
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        super.setStatus(sc);
+        status = sc;
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        status = sc;
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        status = sc;
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        status = SC_FOUND;
+        super.sendRedirect(location);
+    }
+
+    private class TeeOutputStream extends ServletOutputStream {
+        private final ServletOutputStream out;
+
+        TeeOutputStream(ServletOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            capture(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            capture(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return out.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            out.setWriteListener(writeListener);
+        }
+
+        private void capture(byte[] b, int off, int len) {
+            if (body == null) {
+                return;
+            }
+            if (body.size() + len > maxBodySize) {
+                body = null;
+                return;
+            }
+            body.write(b, off, len);
+        }
+    }
+}
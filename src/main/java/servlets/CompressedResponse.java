@@ -0,0 +1,374 @@
+package servlets;
+
+import dao.cache.EntityCache;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The CompressedResponse class is the response of the CompressionFilter. The body is buffered until it
+ * reaches the minimum size; a smaller body is sent uncompressed with its Content-Length, a larger one
+ * is compressed while it is written. The body of a cacheable response is buffered completely (up to the
+ * maximum size of a cached body) and compressed once per content: the compressed bytes are kept under
+ * the SHA-256 digest of the uncompressed ones, so an unchanged list is not recompressed.
+ * The strong ETag of a compressed body gets the content coding appended, so it stays strong.
+ * <p>
+ * A non-blocking writer (setWriteListener) writes to the stream of the container: uncompressed if the
+ * compression has not started yet, otherwise through the compressing stream. The stream may be finished
+ * by the container thread of an expired asynchronous request while its handler is writing, so the writes
+ * and the finish hold a lock.
+ * <p>
+ * An error sent before the response is committed replaces the body written so far, compressed or not,
+ * together with its Content-Encoding and ETag.
+ */
+class CompressedResponse extends HttpServletResponseWrapper {
+    private final CompressionFilter.Encoding encoding;
+    private final int minSize;
+    private final int level;
+    private final EntityCache<String, byte[]> cache;
+    private final int maxCachedSize;
+    private CompressingOutputStream stream;
+    private PrintWriter writer;
+
+    /**
+     * Constructs a new CompressedResponse.
+     *
+     * @param response The response to be wrapped.
+     * @param encoding The content coding accepted by the client.
+     * @param minSize The minimum size of a compressed body in bytes.
+     * @param level The compression level, 1 (fastest) to 9 (smallest).
+     * @param cache The cache of the compressed bodies, or null if the response is not cacheable.
+     * @param maxCachedSize The maximum size of a cached uncompressed body in bytes.
+     */
+    CompressedResponse(HttpServletResponse response, CompressionFilter.Encoding encoding, int minSize, int level,
+                       EntityCache<String, byte[]> cache, int maxCachedSize) {
+        super(response);
+        this.encoding = encoding;
+        this.minSize = minSize;
+        this.level = level;
+        this.cache = cache;
+        this.maxCachedSize = maxCachedSize;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called for this response");
+        }
+        if (stream == null) {
+            stream = new CompressingOutputStream();
+        }
+        return stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (stream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called for this response");
+            }
+            stream = new CompressingOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        // the length of the body is known only after it is compressed
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        // the length of the body is known only after it is compressed
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (!"Content-Length".equalsIgnoreCase(name)) {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (!"Content-Length".equalsIgnoreCase(name)) {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        else if (stream != null) {
+            stream.flush();
+        }
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        discardBody();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        discardBody();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (stream != null) {
+            stream.resetBuffer();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        if (stream != null) {
+            stream.resetBuffer();
+        }
+    }
+    /**
+     * Writes the rest of the body: the buffered bytes, or the end of the compressed stream.
+     * Called when the request has been handled; the following calls do nothing.
+     *
+     * @throws IOException If an output error is detected when writing the body.
+     */
+    void finish() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+        else if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void discardBody() {
+        if (stream != null) {
+            stream.discard();
+        }
+    }
+
+    private class CompressingOutputStream extends ServletOutputStream {
+        private final ReentrantLock lock = new ReentrantLock();
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.min(minSize, 8192) + 1);
+        private ServletOutputStream target;
+        private OutputStream output;
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            lock.lock();
+            try {
+                if (closed) {
+                    throw new IOException("The response output stream is closed");
+                }
+                if (output != null) {
+                    output.write(b, off, len);
+                    return;
+                }
+
+                buffer.write(b, off, len);
+                if (buffer.size() > (cache != null ? Math.max(maxCachedSize, minSize) : minSize)) {
+                    startStreaming(!isEncoded());
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            lock.lock();
+            try {
+                if (output != null && !closed) {
+                    output.flush();
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+
+                if (output != null) {
+                    output.close();
+                    return;
+                }
+
+                byte[] body = buffer.toByteArray();
+                buffer = null;
+                if (body.length == 0) {
+                    return;
+                }
+                if (body.length >= minSize && !isEncoded()) {
+                    body = cache != null ? compressCached(body) : encoding.compress(body, level);
+                    setEncodingHeaders();
+                }
+
+                HttpServletResponse response = (HttpServletResponse) getResponse();
+                response.setContentLength(body.length);
+                try (ServletOutputStream out = response.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            ServletOutputStream out = target;
+            return out == null || out.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            lock.lock();
+            try {
+                if (closed) {
+                    throw new IllegalStateException("The response output stream is closed");
+                }
+                if (target == null) {
+                    // the bytes written before the listener are still sent blocking, compressing them is not worth it
+                    startStreaming(false);
+                }
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            finally {
+                lock.unlock();
+            }
+            target.setWriteListener(writeListener);
+        }
+
+        /**
+         * Drops the body before an error page replaces it, unless the response is already committed.
+         * A compressed body also takes its Content-Encoding and ETag with it; the container can remove
+         * headers only by resetting the response, so the other headers are set again afterwards.
+         */
+        void discard() {
+            lock.lock();
+            try {
+                HttpServletResponse response = (HttpServletResponse) getResponse();
+                if (closed || response.isCommitted()) {
+                    return;
+                }
+                closed = true;
+                buffer = null;
+                output = null;
+
+                if (isEncoded()) {
+                    Map<String, List<String>> headers = new LinkedHashMap<>();
+                    for (String name : response.getHeaderNames()) {
+                        if (!"Content-Encoding".equalsIgnoreCase(name) && !ETags.ETAG.equalsIgnoreCase(name)) {
+                            headers.put(name, new ArrayList<>(response.getHeaders(name)));
+                        }
+                    }
+                    response.reset();
+                    headers.forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        void resetBuffer() {
+            lock.lock();
+            try {
+                if (buffer != null) {
+                    buffer.reset();
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        private void startStreaming(boolean compress) throws IOException {
+            target = getResponse().getOutputStream();
+            if (compress) {
+                setEncodingHeaders();
+                output = encoding.newOutputStream(target, level);
+            }
+            else {
+                output = target;
+            }
+            buffer.writeTo(output);
+            buffer = null;
+        }
+
+        private byte[] compressCached(byte[] body) {
+            String key = encoding.getName() + ':' + HexFormat.of().formatHex(sha256(body));
+            byte[] compressed = cache.get(key);
+            if (compressed == null) {
+                compressed = encoding.compress(body, level);
+                cache.put(key, compressed);
+            }
+            return compressed;
+        }
+
+        private boolean isEncoded() {
+            return containsHeader("Content-Encoding");
+        }
+
+        private void setEncodingHeaders() {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            response.setHeader("Content-Encoding", encoding.getName());
+
+            // the compressed bytes are another representation, its strong ETag names the coding
+            String etag = response.getHeader(ETags.ETAG);
+            if (etag != null && etag.startsWith("\"")) {
+                response.setHeader(ETags.ETAG, ETags.withCoding(etag, encoding.getName()));
+            }
+        }
+    }
+
+    private static byte[] sha256(byte[] body) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(body);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package servlets;
+
+import config.AppProperties;
+import dao.cache.EntityCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The CompressionFilter class compresses the response bodies with the gzip or deflate content coding
+ * negotiated from the Accept-Encoding header. Bodies smaller than compression.min-size bytes are sent
+ * uncompressed; larger ones are compressed at compression.level while they are written, so streamed
+ * lists stay streamed.
+ * <p>
+ * With compression.cache.enabled the compressed bodies of the GET list requests are kept in an LRU cache
+ * by the digest of their content, so a hot list that has not changed is served without recompressing it.
+ * The asynchronous handlers are finished when their AsyncContext is completed, or when the container
+ * completes the request after a timeout or an error.
+ */
+public class CompressionFilter extends HttpFilter {
+    private static final long serialVersionUID = 1L;
+    private static final boolean ENABLED = AppProperties.getBoolean("compression.enabled", true);
+    private static final int MIN_SIZE = AppProperties.getInt("compression.min-size", 1024);
+    private static final int LEVEL = AppProperties.getInt("compression.level", Deflater.DEFAULT_COMPRESSION);
+    private static final boolean CACHE_ENABLED = AppProperties.getBoolean("compression.cache.enabled", false);
+    private static final int CACHE_MAX_SIZE = AppProperties.getInt("compression.cache.max-size", 100);
+    private static final int CACHE_MAX_BODY_SIZE = AppProperties.getInt("compression.cache.max-body-size", 16 * 1024 * 1024);
+    private static final Logger log = LoggerFactory.getLogger(CompressionFilter.class.getName());
+
+    private final transient EntityCache<String, byte[]> cache = CACHE_ENABLED
+            ? new EntityCache<>(CACHE_MAX_SIZE, 0, TimeUnit.SECONDS)
+            : null;
+
+    /**
+     * The content codings of the compressed responses.
+     */
+    enum Encoding {
+        GZIP("gzip") {
+            @Override
+            OutputStream newOutputStream(OutputStream out, int level) throws IOException {
+                return new GZIPOutputStream(out, BUFFER_SIZE, true) {
+                    {
+                        def.setLevel(level);
+                    }
+                };
+            }
+        },
+        DEFLATE("deflate") {
+            @Override
+            OutputStream newOutputStream(OutputStream out, int level) {
+                Deflater deflater = new Deflater(level);
+                return new DeflaterOutputStream(out, deflater, BUFFER_SIZE, true) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        }
+                        finally {
+                            deflater.end();
+                        }
+                    }
+                };
+            }
+        };
+
+        private static final int BUFFER_SIZE = 8192;
+        private final String name;
+
+        Encoding(String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+        /**
+         * Creates the stream compressing the bytes written to the output stream.
+         *
+         * @param out The stream the compressed bytes are written to.
+         * @param level The compression level.
+         * @return the compressing stream; closing it finishes the compressed data and closes out.
+         * @throws IOException If an output error is detected when writing the header.
+         */
+        abstract OutputStream newOutputStream(OutputStream out, int level) throws IOException;
+        /**
+         * Compresses the bytes.
+         *
+         * @param bytes The uncompressed bytes.
+         * @param level The compression level.
+         * @return the compressed bytes.
+         */
+        byte[] compress(byte[] bytes, int level) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            try (OutputStream out = newOutputStream(compressed, level)) {
+                out.write(bytes);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return compressed.toByteArray();
+        }
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest req, HttpServletResponse resp, FilterChain chain)
+            throws IOException, ServletException {
+        if (!ENABLED) {
+            chain.doFilter(req, resp);
+            return;
+        }
+
+        resp.addHeader("Vary", "Accept-Encoding");
+        Encoding encoding = negotiate(req.getHeader("Accept-Encoding"));
+        if (encoding == null || "HEAD".equals(req.getMethod())) {
+            chain.doFilter(req, resp);
+            return;
+        }
+
+        CompressedResponse compressedResponse = new CompressedResponse(resp, encoding, MIN_SIZE, LEVEL,
+                isCacheable(req) ? cache : null, CACHE_MAX_BODY_SIZE);
+        chain.doFilter(new CompressedRequest(req, compressedResponse), compressedResponse);
+
+        if (!req.isAsyncStarted()) {
+            compressedResponse.finish();
+        }
+    }
+    /**
+     * Selects the content coding of the Accept-Encoding header, gzip before deflate of equal quality.
+     *
+     * @param acceptEncoding The value of the Accept-Encoding header.
+     * @return the accepted Encoding, or null if neither gzip nor deflate is accepted.
+     */
+    static Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+
+        Encoding selected = null;
+        double selectedQuality = 0;
+        for (Encoding encoding : Encoding.values()) {
+            double quality = -1;
+            double wildcardQuality = -1;
+
+            for (String coding : acceptEncoding.split(",")) {
+                String[] parameters = coding.split(";");
+                String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+                if (name.equals(encoding.getName())) {
+                    quality = quality(parameters);
+                }
+                else if (name.equals("*")) {
+                    wildcardQuality = quality(parameters);
+                }
+            }
+
+            double encodingQuality = quality >= 0 ? quality : wildcardQuality;
+            if (encodingQuality > selectedQuality) {
+                selected = encoding;
+                selectedQuality = encodingQuality;
+            }
+        }
+        return selected;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                }
+                catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private boolean isCacheable(HttpServletRequest req) {
+        String pathInfo = req.getPathInfo();
+        return cache != null && "GET".equals(req.getMethod()) && (pathInfo == null || pathInfo.equals("/"));
+    }
+
+    /**
+     * The request passed down the chain. Its AsyncContext finishes the compressed response before
+     * the container completes the request, and a FinishingListener finishes it when the container
+     * completes the request without the AsyncContext of the handler.
+     */
+    private static class CompressedRequest extends HttpServletRequestWrapper {
+        private final CompressedResponse response;
+
+        CompressedRequest(HttpServletRequest request, CompressedResponse response) {
+            super(request);
+            this.response = response;
+        }
+
+        @Override
+        public AsyncContext startAsync() throws IllegalStateException {
+            return finishing(super.startAsync());
+        }
+
+        @Override
+        public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse)
+                throws IllegalStateException {
+            return finishing(super.startAsync(servletRequest, servletResponse));
+        }
+
+        private AsyncContext finishing(AsyncContext asyncContext) {
+            asyncContext.addListener(new FinishingListener(response));
+            return new FinishingAsyncContext(asyncContext, response);
+        }
+    }
+
+    /**
+     * Finishes the compressed response when the request times out, fails or is completed, so a gzip body
+     * gets its trailer and a buffered body smaller than the minimum size is sent. Finishing is idempotent.
+     */
+    private record FinishingListener(CompressedResponse response) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            finish();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            finish();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            finish();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // a new asynchronous cycle drops the listeners of the previous one
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void finish() {
+            try {
+                response.finish();
+            }
+            catch (IOException e) {
+                log.warn("Failed to finish the compressed response", e);
+            }
+        }
+    }
+
+    private record FinishingAsyncContext(AsyncContext asyncContext, CompressedResponse response) implements AsyncContext {
+
+        @Override
+        public void complete() {
+            try {
+                response.finish();
+            }
+            catch (IOException e) {
+                log.warn("Failed to finish the compressed response", e);
+            }
+            asyncContext.complete();
+        }
+
+        @Override
+        public ServletRequest getRequest() {
+            return asyncContext.getRequest();
+        }
+
+        @Override
+        public ServletResponse getResponse() {
+            return asyncContext.getResponse();
+        }
+
+        @Override
+        public boolean hasOriginalRequestAndResponse() {
+            return asyncContext.hasOriginalRequestAndResponse();
+        }
+
+        @Override
+        public void dispatch() {
+            asyncContext.dispatch();
+        }
+
+        @Override
+        public void dispatch(String path) {
+            asyncContext.dispatch(path);
+        }
+
+        @Override
+        public void dispatch(ServletContext context, String path) {
+            asyncContext.dispatch(context, path);
+        }
+
+        @Override
+        public void start(Runnable run) {
+            asyncContext.start(run);
+        }
+
+        @Override
+        public void addListener(AsyncListener listener) {
+            asyncContext.addListener(listener);
+        }
+
+        @Override
+        public void addListener(AsyncListener listener, ServletRequest servletRequest, ServletResponse servletResponse) {
+            asyncContext.addListener(listener, servletRequest, servletResponse);
+        }
+
+        @Override
+        public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException {
+            return asyncContext.createListener(clazz);
+        }
+
+        @Override
+        public void setTimeout(long timeout) {
+            asyncContext.setTimeout(timeout);
+        }
+
+        @Override
+        public long getTimeout() {
+            return asyncContext.getTimeout();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package servlets;
+
+import com.fasterxml.jackson.core.util.JsonRecyclerPools;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.msgpack.jackson.dataformat.MessagePackFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The ContentNegotiation class selects the JsonCodec of a request by its media type. The response codec is
+ * selected by the Accept header and the codec of the request body by the Content-Type header, so the
+ * internal clients can exchange the DTOs as CBOR, Smile or MessagePack instead of JSON.
+ * <p>
+ * JSON stays the default: it is used without an Accept or Content-Type header, for *&#47;* and whenever
+ * neither header names one of the supported media types.
+ */
+public class ContentNegotiation {
+    public static final String JSON = "application/json";
+    public static final String CBOR = "application/cbor";
+    public static final String SMILE = "application/x-jackson-smile";
+    public static final String MSGPACK = "application/msgpack";
+    private static final ContentNegotiation DEFAULT = new ContentNegotiation(List.of(
+            JsonCodec.getDefault(),
+            new JsonCodec(JsonCodec.defaultMapper(CBORFactory.builder()
+                    .recyclerPool(JsonRecyclerPools.sharedConcurrentDequePool())
+                    .build()), CBOR),
+            new JsonCodec(JsonCodec.defaultMapper(SmileFactory.builder()
+                    .recyclerPool(JsonRecyclerPools.sharedConcurrentDequePool())
+                    .build()), SMILE),
+            // The thread-local buffers of MessagePack would never be reused by virtual threads.
+            new JsonCodec(JsonCodec.defaultMapper(new MessagePackFactory()
+                    .setReuseResourceInGenerator(false)
+                    .setReuseResourceInParser(false)), MSGPACK)));
+
+    private final List<JsonCodec> codecs;
+
+    /**
+     * Constructs a new ContentNegotiation of the specified codecs.
+     *
+     * @param codecs The codecs of the supported media types; the first one is the default.
+     */
+    public ContentNegotiation(List<JsonCodec> codecs) {
+        this.codecs = List.copyOf(codecs);
+    }
+    /**
+     * Returns the ContentNegotiation shared by the servlets, of JSON, CBOR, Smile and MessagePack.
+     *
+     * @return the default ContentNegotiation.
+     */
+    public static ContentNegotiation getDefault() {
+        return DEFAULT;
+    }
+    /**
+     * Selects the codec of the response by the Accept header of the request, for example
+     * Accept: application/cbor. The media type with the highest quality wins; of equal qualities the most
+     * specific range wins, then the first codec. Adds Accept to the Vary header of the response, so caches
+     * keep the representations apart.
+     *
+     * @param req The HttpServletRequest object.
+     * @param resp The HttpServletResponse object.
+     * @return the codec the response is written with.
+     */
+    public JsonCodec forResponse(HttpServletRequest req, HttpServletResponse resp) {
+        resp.addHeader("Vary", "Accept");
+        String accept = req.getHeader("Accept");
+        if (accept == null || accept.isBlank()) {
+            return codecs.get(0);
+        }
+
+        String[] ranges = accept.split(",");
+        JsonCodec selected = codecs.get(0);
+        double selectedQuality = 0;
+        int selectedSpecificity = -1;
+
+        for (JsonCodec codec : codecs) {
+            double quality = 0;
+            int specificity = -1;
+
+            for (String range : ranges) {
+                String[] parameters = range.split(";");
+                int rangeSpecificity = specificity(mediaType(parameters[0]), codec.getMediaType());
+                if (rangeSpecificity > specificity) {
+                    specificity = rangeSpecificity;
+                    quality = quality(parameters);
+                }
+            }
+
+            if (quality > selectedQuality || quality == selectedQuality && quality > 0 && specificity > selectedSpecificity) {
+                selected = codec;
+                selectedQuality = quality;
+                selectedSpecificity = specificity;
+            }
+        }
+
+        return selected;
+    }
+    /**
+     * Selects the codec of the request body by the Content-Type header of the request.
+     *
+     * @param req The HttpServletRequest object.
+     * @return the codec the body is read with.
+     */
+    public JsonCodec forRequest(HttpServletRequest req) {
+        String contentType = req.getContentType();
+        if (contentType != null) {
+            String mediaType = mediaType(contentType.split(";")[0]);
+            for (JsonCodec codec : codecs) {
+                if (codec.getMediaType().equals(mediaType)) {
+                    return codec;
+                }
+            }
+        }
+        return codecs.get(0);
+    }
+
+    private static String mediaType(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static int specificity(String range, String mediaType) {
+        if (range.equals(mediaType)) {
+            return 2;
+        }
+        if (range.equals("*/*")) {
+            return 0;
+        }
+        if (range.endsWith("/*") && mediaType.startsWith(range.substring(0, range.length() - 1))) {
+            return 1;
+        }
+        return -1;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                }
+                catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
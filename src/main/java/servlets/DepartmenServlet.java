@@ -1,7 +1,10 @@
 package servlets;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import config.AppProperties;
 import config.ServiceFactory;
+import dao.FieldSet;
+import dao.OptimisticLockException;
+import dao.RowVersions;
 import dto.DepartmentDTO;
 import services.Service;
 
@@ -11,40 +14,45 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * The DepartmentServlet class is a servlet that handles HTTP requests related to departments.
  * It provides endpoints for retrieving, creating, updating, and deleting departments.
  * This servlet uses the DepartmentService to interact with the business logic layer and
- * the ObjectMapper to serialize and deserialize JSON data.
+ * the shared ContentNegotiation to serialize and deserialize the DTOs as JSON or a binary format.
  */
 public class DepartmenServlet extends HttpServlet {
     private Service departmentService;
-    private ObjectMapper objectMapper;
+    private ContentNegotiation contentNegotiation;
+    private final ResponseCache responseCache = ResponseCache.getDefault();
+    private static final boolean STREAMING = AppProperties.getBoolean("servlet.streaming", true);
 
     public DepartmenServlet() {
-        this.departmentService = ServiceFactory.getDepartmentService();
-        this.objectMapper = new ObjectMapper();
+        this.departmentService = responseCache.evictOnWrite(ResponseCache.DEPARTMENTS, ServiceFactory.getDepartmentService());
+        this.contentNegotiation = ContentNegotiation.getDefault();
     }
     /**
      * Sets the DepartmentService instance to be used by this servlet.
+     * Its create, update and delete methods evict the cached list responses.
      *
      * @param departmentService The BookService to be used.
      */
     public void setDepartmentService(Service departmentService) {
-        this.departmentService = departmentService;
+        this.departmentService = responseCache.evictOnWrite(ResponseCache.DEPARTMENTS, departmentService);
     }
     /**
-     * Sets the ObjectMapper instance to be used by this servlet.
+     * Sets the ContentNegotiation instance to be used by this servlet.
      *
-     * @param objectMapper The ObjectMapper to be used.
+     * @param contentNegotiation The ContentNegotiation selecting the codecs of the requests.
      */
-    public void setObjectMapper(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+    public void setContentNegotiation(ContentNegotiation contentNegotiation) {
+        this.contentNegotiation = contentNegotiation;
     }
     /**
      * Handles GET requests. Retrieves all departments or a specific department by ID.
+     * A department is sent with its ETag, or with 304 Not Modified if it matches the If-None-Match header.
      *
      * @param req  The HttpServletRequest object.
      * @param resp The HttpServletResponse object.
@@ -53,17 +61,37 @@ public class DepartmenServlet extends HttpServlet {
      */
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        AsyncDispatcher.dispatch(req, resp, this::handleGet);
+    }
+
+    private void handleGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String pathValue = req.getPathInfo();
         resp.setCharacterEncoding("UTF-8");
+        JsonCodec jsonCodec = contentNegotiation.forResponse(req, resp);
+        FieldSet fields;
+        try {
+            fields = jsonCodec.parseFields(req, DepartmentDTO.class);
+        }
+        catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
         if (pathValue == null || pathValue.equals("/")) {
-            getAll(resp);
+            responseCache.handle(req, resp, jsonCodec, ResponseCache.DEPARTMENTS, fields, (request, response) -> {
+                if (PageRequest.isRequested(request)) {
+                    getPage(request, response, jsonCodec, fields);
+                }
+                else {
+                    getAll(response, jsonCodec, fields);
+                }
+            });
         }
         else {
-            getByID(resp, pathValue);
+            getByID(req, resp, jsonCodec, pathValue, fields);
         }
     }
     /**
-     * Handles POST requests. Creates a new department.
+     * Handles POST requests. Creates a new department, or all departments of a JSON array on the /batch path.
      *
      * @param req  The HttpServletRequest object.
      * @param resp The HttpServletResponse object.
@@ -72,13 +100,21 @@ public class DepartmenServlet extends HttpServlet {
      */
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-        req.setCharacterEncoding("UTF-8");
-        DepartmentDTO departmentDTO = objectMapper.readValue(req.getReader(), DepartmentDTO.class);
+        AsyncDispatcher.dispatch(req, resp, this::handlePost);
+    }
+
+    private void handlePost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (JsonBatchReader.BATCH_PATH.equals(req.getPathInfo())) {
+            createAll(req, resp);
+            return;
+        }
+        DepartmentDTO departmentDTO = contentNegotiation.forRequest(req).read(req, DepartmentDTO.class);
         departmentService.create(departmentDTO);
         resp.setStatus(HttpServletResponse.SC_CREATED);
     }
     /**
-     * Handles PUT requests. Updates an existing department.
+     * Handles PUT requests. Updates an existing department. With an If-Match header the department is updated only if
+     * it still has the version of the ETag, otherwise the response is 412 Precondition Failed.
      *
      * @param req  The HttpServletRequest object.
      * @param resp The HttpServletResponse object.
@@ -87,16 +123,26 @@ public class DepartmenServlet extends HttpServlet {
      */
     @Override
     protected void doPut(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        AsyncDispatcher.dispatch(req, resp, this::handlePut);
+    }
+
+    private void handlePut(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String pathValue = req.getPathInfo();
         if (pathValue == null || pathValue.equals("/")) {
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST, "Missing ID department");
             return;
         }
         Long id = Long.parseLong(pathValue.substring(1));
-        req.setCharacterEncoding("UTF-8");
-        DepartmentDTO departmentDTO = objectMapper.readValue(req.getReader(), DepartmentDTO.class);
+        DepartmentDTO departmentDTO = contentNegotiation.forRequest(req).read(req, DepartmentDTO.class);
         departmentDTO.setDepartment_id(id);
-        departmentService.update(departmentDTO);
+        departmentDTO.setDepartment_version(ETags.versionOf(req.getHeader(ETags.IF_MATCH), () -> currentVersion(id)));
+        try {
+            departmentService.update(departmentDTO);
+        }
+        catch (OptimisticLockException e) {
+            resp.sendError(HttpServletResponse.SC_PRECONDITION_FAILED, e.getMessage());
+            return;
+        }
         resp.setStatus(HttpServletResponse.SC_OK);
     }
     /**
@@ -109,6 +155,10 @@ public class DepartmenServlet extends HttpServlet {
      */
     @Override
     protected void doDelete(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        AsyncDispatcher.dispatch(req, resp, this::handleDelete);
+    }
+
+    private void handleDelete(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String pathValue = req.getPathInfo();
         if (pathValue == null || pathValue.equals("/")) {
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST, "Missing ID department");
@@ -119,16 +169,63 @@ public class DepartmenServlet extends HttpServlet {
         resp.setStatus(HttpServletResponse.SC_OK);
     }
 
-    private void getAll(HttpServletResponse resp) throws IOException {
-        resp.setContentType("application/json");
-        resp.getWriter().write(objectMapper.writeValueAsString(departmentService.getAll()));
+    private void createAll(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        JsonBatchReader.createAll(contentNegotiation, req, resp, DepartmentDTO.class, departmentService::createAll);
     }
 
-    private void getByID(HttpServletResponse resp, String pathValue) throws IOException {
-        Optional<DepartmentDTO> departmentDTO = departmentService.get(Long.valueOf(pathValue.substring(1)));
+    private void getAll(HttpServletResponse resp, JsonCodec jsonCodec, FieldSet fields) throws IOException {
+        if (STREAMING) {
+            JsonStreamWriter.writeArray(jsonCodec, resp, DepartmentDTO.class, fields,
+                    consumer -> departmentService.streamAll(fields, consumer));
+        }
+        else {
+            jsonCodec.writeList(resp, departmentService.getAll(fields), DepartmentDTO.class, fields);
+        }
+    }
+
+    private void getPage(HttpServletRequest req, HttpServletResponse resp, JsonCodec jsonCodec, FieldSet fields) throws IOException {
+        PageRequest pageRequest;
+        try {
+            pageRequest = PageRequest.of(req);
+        }
+        catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        List<DepartmentDTO> page = departmentService.getPage(pageRequest.getAfterId(), pageRequest.getLimit(), fields);
+        if (page.size() == pageRequest.getLimit()) {
+            pageRequest.writeNextLink(req, resp, page.get(page.size() - 1).getDepartment_id());
+        }
+        jsonCodec.writeList(resp, page, DepartmentDTO.class, fields);
+    }
+
+    private Optional<Long> currentVersion(Long id) {
+        Optional<RowVersions> versions = departmentService.getVersions(id, FieldSet.WITHOUT_COLLECTIONS);
+        return versions.map(RowVersions::getVersion);
+    }
+
+    private void getByID(HttpServletRequest req, HttpServletResponse resp, JsonCodec jsonCodec, String pathValue,
+                         FieldSet fields) throws IOException {
+        Long id = Long.valueOf(pathValue.substring(1));
+        String ifNoneMatch = req.getHeader(ETags.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            Optional<RowVersions> versions = departmentService.getVersions(id, fields);
+            if (versions.isPresent()) {
+                String etag = ETags.of(versions.get(), jsonCodec, fields);
+                String matched = ETags.match(ifNoneMatch, etag);
+                if (matched != null) {
+                    resp.setHeader(ETags.ETAG, matched);
+                    resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+            }
+        }
+
+        Optional<DepartmentDTO> departmentDTO = departmentService.get(id, fields);
         if (departmentDTO.isPresent()) {
-            resp.setContentType("application/json");
-            resp.getWriter().write(objectMapper.writeValueAsString(departmentDTO.get()));
+            resp.setHeader(ETags.ETAG, ETags.of(departmentService.versionsOf(departmentDTO.get(), fields), jsonCodec, fields));
+            jsonCodec.write(resp, departmentDTO.get(), DepartmentDTO.class, fields);
         }
         else {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Department not found");
@@ -0,0 +1,145 @@
+package servlets;
+
+import dao.FieldSet;
+import dao.RowVersions;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * The ETags class derives the strong entity tags of the single entity responses from the RowVersions of the
+ * rows they are made of, and evaluates the If-None-Match and If-Match preconditions of the requests.
+ * A tag starts with the version of the entity row, followed by a digest of the versions of the embedded rows,
+ * the media type and the requested fields, for example "3-qL8v0cX2p9tW1mZk4yRb7A". The CompressionFilter appends
+ * the content coding of a compressed body, for example "3-qL8v0cX2p9tW1mZk4yRb7A-gzip", so the tag stays strong.
+ */
+final class ETags {
+    static final String ETAG = "ETag";
+    static final String IF_NONE_MATCH = "If-None-Match";
+    static final String IF_MATCH = "If-Match";
+    private static final String WEAK_PREFIX = "W/";
+    private static final String ANY = "*";
+    private static final int DIGEST_LENGTH = 16;
+    private static final long NO_VERSION = -1;
+
+    private ETags() {
+    }
+    /**
+     * Returns the strong entity tag of a representation.
+     *
+     * @param versions The versions of the rows the representation is made of.
+     * @param codec The codec the representation is written with.
+     * @param fields The requested fields of the representation.
+     * @return the quoted entity tag.
+     */
+    static String of(RowVersions versions, JsonCodec codec, FieldSet fields) {
+        byte[] digest = sha256(versions + " " + codec.getMediaType() + " " + fields);
+        return "\"" + versions.getVersion() + '-'
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, DIGEST_LENGTH)) + '"';
+    }
+    /**
+     * Returns the entity tag of the representation compressed with the content coding.
+     *
+     * @param etag The strong entity tag of the uncompressed representation.
+     * @param coding The content coding, for example gzip.
+     * @return the strong entity tag of the compressed representation.
+     */
+    static String withCoding(String etag, String coding) {
+        return etag.substring(0, etag.length() - 1) + '-' + coding + '"';
+    }
+    /**
+     * Evaluates an If-None-Match header with the weak comparison, ignoring the content coding,
+     * so the tag of a compressed response matches the tag of its representation.
+     *
+     * @param ifNoneMatch The value of the If-None-Match header, * or a list of entity tags.
+     * @param etag The entity tag of the current representation.
+     * @return the listed tag matching the representation, to be sent back with 304 Not Modified,
+     *         or null if the client's copy is no longer valid.
+     */
+    static String match(String ifNoneMatch, String etag) {
+        String current = withoutCoding(opaqueTag(etag));
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.equals(ANY)) {
+                return etag;
+            }
+            if (withoutCoding(opaqueTag(trimmed)).equals(current)) {
+                return trimmed;
+            }
+        }
+        return null;
+    }
+    /**
+     * Returns the row version an If-Match header requires, the version at the start of its entity tags.
+     * The tags are compared strongly, so a weak tag never matches. If the header lists tags of different
+     * versions, the one the row has now is required, and the update still fails if it changes meanwhile.
+     *
+     * @param ifMatch The value of the If-Match header, or null.
+     * @param current The supplier of the current version of the row, read only for tags of different versions.
+     * @return the required version, null if any version is accepted, or -1 if no tag was issued by ETags.of
+     *         or none has the current version, which no row has.
+     */
+    static Long versionOf(String ifMatch, Supplier<Optional<Long>> current) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals(ANY)) {
+            return null;
+        }
+
+        Set<Long> versions = new HashSet<>();
+        for (String tag : ifMatch.split(",")) {
+            long version = versionOfTag(tag.trim());
+            if (version != NO_VERSION) {
+                versions.add(version);
+            }
+        }
+        if (versions.isEmpty()) {
+            return NO_VERSION;
+        }
+        if (versions.size() == 1) {
+            return versions.iterator().next();
+        }
+        return current.get().filter(versions::contains).orElse(NO_VERSION);
+    }
+
+    private static long versionOfTag(String tag) {
+        int separator = tag.indexOf('-');
+        if (!tag.startsWith("\"") || separator < 0) {
+            return NO_VERSION;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, separator));
+        }
+        catch (NumberFormatException e) {
+            return NO_VERSION;
+        }
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith(WEAK_PREFIX) ? etag.substring(WEAK_PREFIX.length()) : etag;
+    }
+
+    private static String withoutCoding(String etag) {
+        for (CompressionFilter.Encoding encoding : CompressionFilter.Encoding.values()) {
+            String suffix = '-' + encoding.getName() + '"';
+            if (etag.endsWith(suffix)) {
+                return etag.substring(0, etag.length() - suffix.length()) + '"';
+            }
+        }
+        return etag;
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
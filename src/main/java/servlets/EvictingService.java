@@ -0,0 +1,103 @@
+package servlets;
+
+import dao.FieldSet;
+import dao.RowVersions;
+import services.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * The EvictingService class is a decorator of a Service that evicts the cached responses embedding its
+ * entity after every create, update and delete, also when the write fails, since a failed bulk create
+ * may have created some chunks.
+ */
+class EvictingService<T, K> implements Service<T, K> {
+    private final Service<T, K> service;
+    private final ResponseCache responseCache;
+    private final String entity;
+
+    /**
+     * Constructs a new EvictingService.
+     *
+     * @param service The service to be decorated.
+     * @param responseCache The cache of the list responses.
+     * @param entity The entity of the service, for example ResponseCache.USERS.
+     */
+    EvictingService(Service<T, K> service, ResponseCache responseCache, String entity) {
+        this.service = service;
+        this.responseCache = responseCache;
+        this.entity = entity;
+    }
+
+    @Override
+    public List<T> getAll(FieldSet fields) {
+        return service.getAll(fields);
+    }
+
+    @Override
+    public List<T> getPage(K afterId, int limit, FieldSet fields) {
+        return service.getPage(afterId, limit, fields);
+    }
+
+    @Override
+    public void streamAll(FieldSet fields, Consumer<? super T> consumer) {
+        service.streamAll(fields, consumer);
+    }
+
+    @Override
+    public Optional<T> get(K id, FieldSet fields) {
+        return service.get(id, fields);
+    }
+
+    @Override
+    public Optional<RowVersions> getVersions(K id, FieldSet fields) {
+        return service.getVersions(id, fields);
+    }
+
+    @Override
+    public RowVersions versionsOf(T obj, FieldSet fields) {
+        return service.versionsOf(obj, fields);
+    }
+
+    @Override
+    public void create(T obj) {
+        try {
+            service.create(obj);
+        }
+        finally {
+            responseCache.invalidate(entity);
+        }
+    }
+
+    @Override
+    public List<K> createAll(List<T> objs) {
+        try {
+            return service.createAll(objs);
+        }
+        finally {
+            responseCache.invalidate(entity);
+        }
+    }
+
+    @Override
+    public void update(T obj) {
+        try {
+            service.update(obj);
+        }
+        finally {
+            responseCache.invalidate(entity);
+        }
+    }
+
+    @Override
+    public void delete(K id) {
+        try {
+            service.delete(id);
+        }
+        finally {
+            responseCache.invalidate(entity);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package servlets;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The ExpiringResponse class is the response an asynchronous handler writes to. When the request times out or
+ * fails, the AsyncDispatcher expires the response before it completes the request, and the container may then
+ * recycle the underlying response for another request. From then on the body cannot be written (the writes
+ * fail with an IOException, which ends the handler) and the status and headers set by the handler are ignored.
+ * Every call reaching the underlying response holds a lock, so the response cannot expire in the middle of a write.
+ */
+class ExpiringResponse extends HttpServletResponseWrapper {
+    private final ReentrantLock lock = new ReentrantLock();
+    private ServletOutputStream stream;
+    private boolean closed;
+    private int expiredStatus;
+
+    /**
+     * Constructs a new ExpiringResponse.
+     *
+     * @param response The response of the asynchronous request.
+     */
+    ExpiringResponse(HttpServletResponse response) {
+        super(response);
+    }
+    /**
+     * Closes the response when its handler has finished, so it can be completed.
+     *
+     * @return true if the response was open, false if it had already expired.
+     */
+    boolean close() {
+        return expire(0);
+    }
+    /**
+     * Closes the response when its request has timed out or failed, so the handler no longer reaches it.
+     *
+     * @param status The status the request has been answered with, reported by getStatus from now on.
+     * @return true if the response was open, false if the handler had already finished.
+     */
+    boolean expire(int status) {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            expiredStatus = status;
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+    /**
+     * Returns whether the response has been closed by its handler or expired.
+     *
+     * @return true if the response can no longer be written.
+     */
+    boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        lock.lock();
+        try {
+            checkOpen();
+            if (stream == null) {
+                stream = new ExpiringOutputStream(super.getOutputStream());
+            }
+            return stream;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        // the servlets write bytes only, a text body is checked when it is started
+        lock.lock();
+        try {
+            checkOpen();
+            return super.getWriter();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        lock.lock();
+        try {
+            checkOpen();
+            super.flushBuffer();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        lock.lock();
+        try {
+            checkOpen();
+            super.sendError(sc, msg);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        lock.lock();
+        try {
+            checkOpen();
+            super.sendError(sc);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        lock.lock();
+        try {
+            checkOpen();
+            super.sendRedirect(location);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isCommitted() {
+        lock.lock();
+        try {
+            return closed || super.isCommitted();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getStatus() {
+        lock.lock();
+        try {
+            return closed && expiredStatus != 0 ? expiredStatus : super.getStatus();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String getHeader(String name) {
+        lock.lock();
+        try {
+            return closed ? null : super.getHeader(name);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        lock.lock();
+        try {
+            if (!closed) {
+                super.setStatus(sc);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        lock.lock();
+        try {
+            if (!closed) {
+                super.setHeader(name, value);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        lock.lock();
+        try {
+            if (!closed) {
+                super.addHeader(name, value);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setContentType(String type) {
+        lock.lock();
+        try {
+            if (!closed) {
+                super.setContentType(type);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        lock.lock();
+        try {
+            if (!closed) {
+                super.setCharacterEncoding(charset);
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("The asynchronous request has timed out or failed");
+        }
+    }
+
+    private class ExpiringOutputStream extends ServletOutputStream {
+        private final ServletOutputStream out;
+
+        ExpiringOutputStream(ServletOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            lock.lock();
+            try {
+                checkOpen();
+                out.write(b);
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            lock.lock();
+            try {
+                checkOpen();
+                out.write(b, off, len);
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            lock.lock();
+            try {
+                checkOpen();
+                out.flush();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            lock.lock();
+            try {
+                // the handler closes its body in finally blocks, also after the expiry
+                if (!closed) {
+                    out.close();
+                }
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return out.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            out.setWriteListener(writeListener);
+        }
+    }
+}
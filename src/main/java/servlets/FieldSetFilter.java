@@ -0,0 +1,71 @@
+package servlets;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import dao.FieldSet;
+
+/**
+ * The FieldSetFilter class is the Jackson property filter of the DTOs. It writes only the properties of the
+ * FieldSet of the top-level objects, i.e. the response object or the elements of the response array.
+ * The nested objects, for example the department of a user, are written completely.
+ */
+class FieldSetFilter extends SimpleBeanPropertyFilter {
+    static final String ID = "fieldSet";
+    private static final FilterProvider ALL = provider(FieldSet.ALL);
+
+    private final FieldSet fields;
+
+    @JsonFilter(ID)
+    private interface Filtered {
+    }
+
+    private FieldSetFilter(FieldSet fields) {
+        this.fields = fields;
+    }
+    /**
+     * Registers the filter on the DTO types of the mapper. The mapper writes every property
+     * unless a writer is created with the provider of a FieldSet.
+     *
+     * @param objectMapper The ObjectMapper to be configured.
+     * @param types The DTO classes to be filtered.
+     * @return the configured ObjectMapper.
+     */
+    static ObjectMapper register(ObjectMapper objectMapper, Iterable<Class<?>> types) {
+        for (Class<?> type : types) {
+            objectMapper.addMixIn(type, Filtered.class);
+        }
+        return objectMapper.setFilterProvider(ALL);
+    }
+    /**
+     * Returns the FilterProvider writing the properties of the FieldSet.
+     *
+     * @param fields The requested fields.
+     * @return the FilterProvider resolving the filter of the DTOs.
+     */
+    static FilterProvider provider(FieldSet fields) {
+        return new SimpleFilterProvider().addFilter(ID, new FieldSetFilter(fields));
+    }
+
+    @Override
+    public void serializeAsField(Object pojo, JsonGenerator jgen, SerializerProvider provider,
+                                 PropertyWriter writer) throws Exception {
+        if (fields.isAll() || fields.includes(writer.getName()) || !isTopLevel(jgen)) {
+            writer.serializeAsField(pojo, jgen, provider);
+        }
+        else if (!jgen.canOmitFields()) {
+            writer.serializeAsOmittedField(pojo, jgen, provider);
+        }
+    }
+
+    private static boolean isTopLevel(JsonGenerator jgen) {
+        JsonStreamContext parent = jgen.getOutputContext().getParent();
+        return parent == null || parent.inRoot() || parent.inArray() && parent.getParent().inRoot();
+    }
+}
@@ -0,0 +1,35 @@
+package servlets;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The HttpRequestEvent class is the Flight Recorder event of a request handled by a servlet. It spans the
+ * handler on the thread running it, so the DAO statements and the socket reads recorded on that thread in
+ * the meantime belong to the request.
+ */
+@Name("app.http.Request")
+@Label("HTTP Request")
+@Category({"Application", "HTTP"})
+@Description("A request handled by UserServlet, TaskServlet or DepartmenServlet")
+@StackTrace(false)
+class HttpRequestEvent extends jdk.jfr.Event {
+    @Label("Servlet")
+    String servlet;
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    int status;
+
+    @Label("Request Id")
+    @Description("The X-Request-Id of the response, if the request was timed")
+    String requestId;
+}
@@ -0,0 +1,106 @@
+package servlets;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import config.AppProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The JsonBatchReader class reads the JSON array of a bulk create request element by element and passes
+ * the elements to the service in chunks, so neither the request body nor the whole list of DTOs is held
+ * in memory. Every chunk is created in its own transaction. If an element cannot be read or a chunk
+ * cannot be created, the response reports the identifiers of the elements created before it and the
+ * index of the first element that was not created, so the client can resume the array from there.
+ */
+public class JsonBatchReader {
+    public static final String BATCH_PATH = "/batch";
+    private static final int CHUNK_SIZE = AppProperties.getInt("servlet.batch.chunk-size", 1000);
+    private static final Logger log = LoggerFactory.getLogger(JsonBatchReader.class.getName());
+
+    /**
+     * The body of a bulk create response that failed part way.
+     *
+     * @param ids The identifiers of the created elements, in the order of the array.
+     * @param failedIndex The index of the first element that was not created; the elements from it on were not created.
+     * @param error The reason of the failure.
+     */
+    public record Failure(List<Object> ids, int failedIndex, String error) {
+    }
+
+    private JsonBatchReader() {
+    }
+    /**
+     * Reads the elements of the request body, creates them chunk by chunk and writes the response:
+     * 201 Created with the identifiers in the order of the array, 400 Bad Request with a Failure if an
+     * element is not valid in the format of the codec, or 500 Internal Server Error with a Failure if a
+     * chunk could not be created. The elements before an invalid one are created first.
+     *
+     * @param contentNegotiation The ContentNegotiation selecting the codecs of the request and the response.
+     * @param req The HttpServletRequest object with an array body.
+     * @param resp The HttpServletResponse object.
+     * @param type The DTO class of the elements.
+     * @param creator The bulk create method of the service, for example Service::createAll.
+     * @throws IOException If the body could not be read or the response could not be written.
+     */
+    public static <T> void createAll(ContentNegotiation contentNegotiation, HttpServletRequest req,
+                                     HttpServletResponse resp, Class<T> type,
+                                     Function<List<T>, List<?>> creator) throws IOException {
+        List<Object> ids = new ArrayList<>();
+        List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+        String invalid = null;
+
+        try {
+            try (MappingIterator<T> iterator = contentNegotiation.forRequest(req).readerFor(type)
+                    .readValues(req.getInputStream())) {
+                while (iterator.hasNextValue()) {
+                    chunk.add(iterator.nextValue());
+
+                    if (chunk.size() == CHUNK_SIZE) {
+                        create(chunk, ids, creator);
+                    }
+                }
+            }
+            catch (JacksonException e) {
+                invalid = "Element " + (ids.size() + chunk.size()) + " is not valid: " + e.getOriginalMessage();
+            }
+
+            create(chunk, ids, creator);
+        }
+        catch (RuntimeException e) {
+            log.error("Failed to create the elements of {} from index {}", req.getRequestURI(), ids.size(), e);
+            writeFailure(contentNegotiation, req, resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                    new Failure(ids, ids.size(), "The elements from index " + ids.size() + " could not be created"));
+            return;
+        }
+
+        if (invalid != null) {
+            writeFailure(contentNegotiation, req, resp, HttpServletResponse.SC_BAD_REQUEST,
+                    new Failure(ids, ids.size(), invalid));
+            return;
+        }
+
+        resp.setStatus(HttpServletResponse.SC_CREATED);
+        contentNegotiation.forResponse(req, resp).writeList(resp, ids, Object.class);
+    }
+
+    private static <T> void create(List<T> chunk, List<Object> ids, Function<List<T>, List<?>> creator) {
+        if (!chunk.isEmpty()) {
+            ids.addAll(creator.apply(chunk));
+            chunk.clear();
+        }
+    }
+
+    private static void writeFailure(ContentNegotiation contentNegotiation, HttpServletRequest req,
+                                     HttpServletResponse resp, int status, Failure failure) throws IOException {
+        resp.setStatus(status);
+        contentNegotiation.forResponse(req, resp).write(resp, failure, Failure.class);
+    }
+}
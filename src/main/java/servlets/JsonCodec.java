@@ -0,0 +1,285 @@
+package servlets;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.util.JsonRecyclerPools;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import config.AppProperties;
+import dao.FieldSet;
+import dto.DepartmentDTO;
+import dto.TaskDTO;
+import dto.UserDTO;
+import metrics.RequestTiming;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * The JsonCodec class is the JSON layer shared by the servlets. It resolves the ObjectReader and ObjectWriter
+ * of every DTO type and of its lists once, reads the request body from the input stream and writes UTF-8 bytes
+ * straight to the response output stream, without an intermediate String.
+ * <p>
+ * A codec is bound to the media type of its ObjectMapper: the default codec writes JSON, the codecs of
+ * ContentNegotiation write the binary formats (CBOR, Smile, MessagePack) of the same DTOs.
+ * <p>
+ * The default codec recycles its buffers through a shared pool instead of per-thread buffers, which virtual
+ * threads would never reuse, and registers the Blackbird module (json.blackbird) to replace reflection with
+ * generated accessors.
+ * <p>
+ * The properties of the DTOs can be restricted per request with a FieldSet (the fields and expand query
+ * parameters); the restriction applies to the top-level objects of the response.
+ */
+public final class JsonCodec {
+    public static final String FIELDS = "fields";
+    public static final String EXPAND = "expand";
+    private static final List<Class<?>> DTO_TYPES = List.of(UserDTO.class, TaskDTO.class, DepartmentDTO.class);
+    private static final JsonCodec DEFAULT = new JsonCodec(defaultMapper(JsonFactory.builder()
+            .recyclerPool(JsonRecyclerPools.sharedConcurrentDequePool())
+            .build()));
+
+    private final ObjectMapper objectMapper;
+    private final String mediaType;
+    private final Map<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ObjectWriter> listWriters = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Set<String>> fieldNames = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new JsonCodec of the application/json media type.
+     *
+     * @param objectMapper The ObjectMapper the readers and writers are created from.
+     */
+    public JsonCodec(ObjectMapper objectMapper) {
+        this(objectMapper, ContentNegotiation.JSON);
+    }
+    /**
+     * Constructs a new JsonCodec around a copy of the specified ObjectMapper with the FieldSetFilter
+     * registered on the DTOs, and resolves the readers and writers of the DTOs.
+     *
+     * @param objectMapper The ObjectMapper the readers and writers are created from.
+     * @param mediaType The media type of the format of the ObjectMapper, for example application/cbor.
+     */
+    public JsonCodec(ObjectMapper objectMapper, String mediaType) {
+        this.objectMapper = FieldSetFilter.register(objectMapper.copy(), DTO_TYPES);
+        this.mediaType = mediaType;
+
+        for (Class<?> type : DTO_TYPES) {
+            readerFor(type);
+            writerFor(type);
+            listWriterFor(type);
+            fieldNamesOf(type);
+        }
+    }
+    /**
+     * Returns the codec shared by the servlets.
+     *
+     * @return the default JsonCodec.
+     */
+    public static JsonCodec getDefault() {
+        return DEFAULT;
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+    /**
+     * Returns the ObjectReader of the type.
+     *
+     * @param type The class of the values to be read.
+     * @return the ObjectReader resolved for the type.
+     */
+    public ObjectReader readerFor(Class<?> type) {
+        return readers.computeIfAbsent(type, objectMapper::readerFor);
+    }
+    /**
+     * Returns the ObjectWriter of the type.
+     *
+     * @param type The class of the values to be written.
+     * @return the ObjectWriter resolved for the type.
+     */
+    public ObjectWriter writerFor(Class<?> type) {
+        return writers.computeIfAbsent(type, objectMapper::writerFor);
+    }
+    /**
+     * Returns the ObjectWriter of the type writing only the fields of the FieldSet.
+     *
+     * @param type The class of the values to be written.
+     * @param fields The requested fields.
+     * @return the ObjectWriter of the type with the filter of the FieldSet.
+     */
+    public ObjectWriter writerFor(Class<?> type, FieldSet fields) {
+        ObjectWriter writer = writerFor(type);
+        return fields.isAll() ? writer : writer.with(FieldSetFilter.provider(fields));
+    }
+    /**
+     * Returns the ObjectWriter of lists of the type.
+     *
+     * @param type The class of the list elements.
+     * @return the ObjectWriter resolved for List&lt;type&gt;.
+     */
+    public ObjectWriter listWriterFor(Class<?> type) {
+        return listWriters.computeIfAbsent(type, elementType -> {
+            JavaType listType = objectMapper.getTypeFactory().constructCollectionType(List.class, elementType);
+            return objectMapper.writerFor(listType);
+        });
+    }
+    /**
+     * Returns the ObjectWriter of lists of the type writing only the fields of the FieldSet.
+     *
+     * @param type The class of the list elements.
+     * @param fields The requested fields.
+     * @return the ObjectWriter of List&lt;type&gt; with the filter of the FieldSet.
+     */
+    public ObjectWriter listWriterFor(Class<?> type, FieldSet fields) {
+        ObjectWriter writer = listWriterFor(type);
+        return fields.isAll() ? writer : writer.with(FieldSetFilter.provider(fields));
+    }
+    /**
+     * Returns the names of the JSON properties written for the type.
+     *
+     * @param type The class of the values.
+     * @return the property names of the type.
+     */
+    public Set<String> fieldNamesOf(Class<?> type) {
+        return fieldNames.computeIfAbsent(type, beanType -> objectMapper.getSerializationConfig()
+                .introspect(objectMapper.constructType(beanType))
+                .findProperties().stream()
+                .filter(BeanPropertyDefinition::couldSerialize)
+                .map(BeanPropertyDefinition::getName)
+                .collect(Collectors.toUnmodifiableSet()));
+    }
+    /**
+     * Parses the fields and expand query parameters of the request, for example
+     * fields=user_id,user_firstname or expand=tasks. Without an expand parameter the child
+     * collections are included only if they are listed in the fields.
+     *
+     * @param req The HttpServletRequest object.
+     * @param type The DTO class of the response.
+     * @return the requested FieldSet.
+     * @throws IllegalArgumentException If a field or an expanded collection is not a property of the type.
+     */
+    public FieldSet parseFields(HttpServletRequest req, Class<?> type) {
+        FieldSet fields = FieldSet.parse(req.getParameter(FIELDS), req.getParameter(EXPAND));
+        Set<String> known = fieldNamesOf(type);
+
+        for (String field : fields.getFields()) {
+            if (!known.contains(field)) {
+                throw new IllegalArgumentException("Unknown field: " + field);
+            }
+        }
+
+        return fields;
+    }
+    /**
+     * Reads the request body as a value of the type.
+     *
+     * @param req The HttpServletRequest object.
+     * @param type The class of the value.
+     * @return the value read from the body.
+     * @throws IOException If the body could not be read or is not valid in the format of the codec.
+     */
+    public <T> T read(HttpServletRequest req, Class<T> type) throws IOException {
+        return readerFor(type).readValue(req.getInputStream());
+    }
+    /**
+     * Writes the value to the response in the format of the codec.
+     *
+     * @param resp The HttpServletResponse object.
+     * @param value The value to be written.
+     * @param type The class of the value.
+     * @throws IOException If an output error is detected when writing the response.
+     */
+    public <T> void write(HttpServletResponse resp, T value, Class<T> type) throws IOException {
+        write(resp, value, type, FieldSet.ALL);
+    }
+    /**
+     * Writes the value to the response in the format of the codec with only the fields of the FieldSet.
+     *
+     * @param resp The HttpServletResponse object.
+     * @param value The value to be written.
+     * @param type The class of the value.
+     * @param fields The requested fields.
+     * @throws IOException If an output error is detected when writing the response.
+     */
+    public <T> void write(HttpServletResponse resp, T value, Class<T> type, FieldSet fields) throws IOException {
+        setContentType(resp);
+        RequestTiming.Phase previous = RequestTiming.begin(RequestTiming.Phase.SERIALIZATION);
+        try {
+            writerFor(type, fields).writeValue(resp.getOutputStream(), value);
+        }
+        finally {
+            RequestTiming.end(previous);
+        }
+    }
+    /**
+     * Writes the list to the response as an array in the format of the codec.
+     *
+     * @param resp The HttpServletResponse object.
+     * @param values The list to be written.
+     * @param type The class of the list elements.
+     * @throws IOException If an output error is detected when writing the response.
+     */
+    public <T> void writeList(HttpServletResponse resp, List<? extends T> values, Class<T> type) throws IOException {
+        writeList(resp, values, type, FieldSet.ALL);
+    }
+    /**
+     * Writes the list to the response as an array of elements with only the fields of the FieldSet.
+     *
+     * @param resp The HttpServletResponse object.
+     * @param values The list to be written.
+     * @param type The class of the list elements.
+     * @param fields The requested fields.
+     * @throws IOException If an output error is detected when writing the response.
+     */
+    public <T> void writeList(HttpServletResponse resp, List<? extends T> values, Class<T> type,
+                              FieldSet fields) throws IOException {
+        setContentType(resp);
+        RequestTiming.Phase previous = RequestTiming.begin(RequestTiming.Phase.SERIALIZATION);
+        try {
+            listWriterFor(type, fields).writeValue(resp.getOutputStream(), values);
+        }
+        finally {
+            RequestTiming.end(previous);
+        }
+    }
+    /**
+     * Sets the media type of the codec as the content type, with the UTF-8 encoding of the written bytes for JSON.
+     *
+     * @param resp The HttpServletResponse object.
+     */
+    public void setContentType(HttpServletResponse resp) {
+        resp.setContentType(mediaType);
+        if (ContentNegotiation.JSON.equals(mediaType)) {
+            resp.setCharacterEncoding("UTF-8");
+        }
+    }
+    /**
+     * Creates the ObjectMapper of the default codecs for the format of the factory.
+     *
+     * @param factory The JsonFactory of the format, for example a CBORFactory.
+     * @return the ObjectMapper with the Blackbird module registered (json.blackbird).
+     */
+    static ObjectMapper defaultMapper(JsonFactory factory) {
+        ObjectMapper objectMapper = new ObjectMapper(factory);
+
+        if (AppProperties.getBoolean("json.blackbird", true)) {
+            objectMapper.registerModule(new BlackbirdModule());
+        }
+
+        return objectMapper;
+    }
+}
@@ -0,0 +1,69 @@
+package servlets;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dao.FieldSet;
+import metrics.RequestTiming;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * The JsonStreamWriter class writes a JSON array to the response element by element while the elements
+ * are produced, instead of serializing the whole list into a String first. The response is committed as
+ * soon as the first buffer is full, so the client receives the first bytes before the query has finished.
+ * The binary codecs are written the same way, except MessagePack, whose generator holds the array until
+ * it is closed because the array header carries the number of elements.
+ */
+public class JsonStreamWriter {
+
+    private JsonStreamWriter() {
+    }
+    /**
+     * Writes the elements passed by the source to the response output stream as an array in the format of the codec.
+     *
+     * @param codec The JsonCodec providing the writer of the elements.
+     * @param resp The HttpServletResponse object.
+     * @param type The class of the elements.
+     * @param fields The requested fields of the elements.
+     * @param source The producer of the elements, for example Service::streamAll.
+     * @throws IOException If an output error is detected when writing the response.
+     */
+    public static void writeArray(JsonCodec codec, HttpServletResponse resp, Class<?> type, FieldSet fields,
+                                  Consumer<Consumer<Object>> source) throws IOException {
+        ObjectWriter writer = codec.writerFor(type, fields).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        codec.setContentType(resp);
+
+        // The generator is closed only after the whole array has been written: closing it after a failure would
+        // end the array, or write the partial array held by MessagePack, and hide the truncation from the client.
+        // A failure before the first buffer is flushed leaves the response uncommitted, so it is still answered with
+        // an error status; after that the body stays an incomplete array.
+        JsonGenerator generator = codec.getObjectMapper().getFactory().createGenerator(resp.getOutputStream(), JsonEncoding.UTF8);
+        generator.writeStartArray();
+
+        try {
+            source.accept(element -> {
+                RequestTiming.Phase previous = RequestTiming.begin(RequestTiming.Phase.SERIALIZATION);
+                try {
+                    writer.writeValue(generator, element);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                finally {
+                    RequestTiming.end(previous);
+                }
+            });
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        generator.writeEndArray();
+        generator.close();
+    }
+}
@@ -0,0 +1,51 @@
+package servlets;
+
+import metrics.MetricsRegistry;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * The MetricsServlet class exposes the MetricsRegistry in the Prometheus text format for scraping:
+ * the requests per servlet and method, the latency of the Service and DAO methods and the state of the
+ * Hikari pool. The metrics are written on the container thread, they are read without a database call.
+ */
+public class MetricsServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private transient MetricsRegistry registry;
+
+    public MetricsServlet() {
+        registry = MetricsRegistry.getDefault();
+    }
+    /**
+     * Sets the MetricsRegistry to be written by this servlet.
+     *
+     * @param registry The registry of the metrics.
+     */
+    public void setRegistry(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+    /**
+     * Handles GET requests. Writes all metrics of the registry.
+     *
+     * @param req  The HttpServletRequest object.
+     * @param resp The HttpServletResponse object.
+     * @throws ServletException If the request for the GET could not be handled.
+     * @throws IOException      If an input or output error is detected when the servlet handles the GET request.
+     */
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        resp.setContentType(CONTENT_TYPE);
+        StringBuilder text = new StringBuilder(8192);
+        registry.writeTo(text);
+        try (PrintWriter writer = resp.getWriter()) {
+            writer.write(text.toString());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package servlets;
+
+import config.AppProperties;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * The PageRequest class holds the keyset pagination parameters of a list request.
+ * after_id is the identifier of the last object of the previous page and limit is the page size,
+ * capped at the server-enforced maximum configured with pagination.max-limit.
+ */
+public class PageRequest {
+    public static final String AFTER_ID = "after_id";
+    public static final String LIMIT = "limit";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_LIMIT = AppProperties.getInt("pagination.default-limit", 50);
+    private static final int MAX_LIMIT = AppProperties.getInt("pagination.max-limit", 500);
+
+    private final Long afterId;
+    private final int limit;
+
+    private PageRequest(Long afterId, int limit) {
+        this.afterId = afterId;
+        this.limit = limit;
+    }
+    /**
+     * Checks whether the request asks for a page, i.e. has an after_id or a limit parameter.
+     *
+     * @param req The HttpServletRequest object.
+     * @return true if the request has a pagination parameter.
+     */
+    public static boolean isRequested(HttpServletRequest req) {
+        return req.getParameter(AFTER_ID) != null || req.getParameter(LIMIT) != null;
+    }
+    /**
+     * Parses the pagination parameters of the request.
+     *
+     * @param req The HttpServletRequest object.
+     * @return the PageRequest with the limit capped at the maximum page size.
+     * @throws IllegalArgumentException If after_id or limit is not a valid number.
+     */
+    public static PageRequest of(HttpServletRequest req) {
+        String afterParam = req.getParameter(AFTER_ID);
+        String limitParam = req.getParameter(LIMIT);
+
+        Long afterId;
+        int limit;
+        try {
+            afterId = afterParam == null ? null : Long.valueOf(afterParam);
+            limit = limitParam == null ? DEFAULT_LIMIT : Integer.parseInt(limitParam);
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("after_id and limit must be numbers");
+        }
+
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+
+        return new PageRequest(afterId, Math.min(limit, MAX_LIMIT));
+    }
+
+    public Long getAfterId() {
+        return afterId;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+    /**
+     * Writes the Link (rel="next") and X-Next-Cursor headers pointing at the page after the given identifier.
+     * The other query parameters of the request are kept in the link.
+     *
+     * @param req The HttpServletRequest object.
+     * @param resp The HttpServletResponse object.
+     * @param nextAfterId The identifier of the last object of the current page.
+     */
+    public void writeNextLink(HttpServletRequest req, HttpServletResponse resp, Object nextAfterId) {
+        StringBuilder link = new StringBuilder(req.getRequestURL()).append('?');
+
+        for (Map.Entry<String, String[]> param : req.getParameterMap().entrySet()) {
+            if (param.getKey().equals(AFTER_ID) || param.getKey().equals(LIMIT)) {
+                continue;
+            }
+            for (String value : param.getValue()) {
+                link.append(URLEncoder.encode(param.getKey(), StandardCharsets.UTF_8))
+                        .append('=')
+                        .append(URLEncoder.encode(value, StandardCharsets.UTF_8))
+                        .append('&');
+            }
+        }
+
+        link.append(AFTER_ID).append('=').append(nextAfterId)
+                .append('&').append(LIMIT).append('=').append(limit);
+
+        resp.setHeader("Link", "<" + link + ">; rel=\"next\"");
+        resp.setHeader(NEXT_CURSOR_HEADER, String.valueOf(nextAfterId));
+    }
+}
@@ -0,0 +1,71 @@
+package servlets;
+
+import config.AppProperties;
+import metrics.Histogram;
+import metrics.MetricsRegistry;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The RequestMetrics class counts the requests handled through the AsyncDispatcher per servlet and HTTP method:
+ * the requests, the errors (a 5xx status or an exception thrown by the handler) and the latency from the
+ * dispatch to the end of the handler, the wait for a permit included. The series of an endpoint are resolved
+ * once and kept, so recording a request only increments striped counters.
+ */
+final class RequestMetrics {
+    private static final RequestMetrics DEFAULT = new RequestMetrics(
+            AppProperties.getBoolean("metrics.enabled", true) ? MetricsRegistry.getDefault() : null);
+
+    private final MetricsRegistry registry;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    private record Endpoint(LongAdder requests, LongAdder errors, Histogram latency) {
+    }
+    /**
+     * Constructs a new RequestMetrics.
+     *
+     * @param registry The registry of the metrics, or null to record nothing.
+     */
+    RequestMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    static RequestMetrics getDefault() {
+        return DEFAULT;
+    }
+    /**
+     * Records a handled request.
+     *
+     * @param req The HttpServletRequest object.
+     * @param resp The HttpServletResponse object, whose status is read.
+     * @param startNanos The System.nanoTime() at the dispatch of the request.
+     * @param failed Whether the handler has thrown an exception.
+     */
+    void record(HttpServletRequest req, HttpServletResponse resp, long startNanos, boolean failed) {
+        if (registry == null) {
+            return;
+        }
+        String servlet = req.getHttpServletMapping().getServletName();
+        String method = req.getMethod();
+        Endpoint endpoint = endpoints.get(servlet + ' ' + method);
+        if (endpoint == null) {
+            endpoint = endpoints.computeIfAbsent(servlet + ' ' + method, key -> new Endpoint(
+                    registry.counter("http_requests_total", "Handled requests",
+                            "servlet", servlet, "method", method),
+                    registry.counter("http_request_errors_total", "Requests failed with a 5xx status or an exception",
+                            "servlet", servlet, "method", method),
+                    registry.histogram("http_request_duration_seconds", "Latency of the requests",
+                            "servlet", servlet, "method", method)
+            ));
+        }
+        endpoint.latency().recordSince(startNanos);
+        endpoint.requests().increment();
+        if (failed || resp.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR) {
+            endpoint.errors().increment();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package servlets;
+
+import config.AppProperties;
+import dao.FieldSet;
+import dao.cache.EntityCache;
+import services.Service;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ResponseCache class keeps the encoded bodies of the list responses (GET /users, /tasks, /departments),
+ * keyed by the media type, the path and the query string, and serves a hit with a single write instead of
+ * querying, mapping and serializing the list again.
+ * <p>
+ * The responses are grouped by the entities they embed: a user list embeds the departments of the users,
+ * an expanded list the users or tasks as well. A write through a Service wrapped by evictOnWrite evicts
+ * every group embedding the written entity; a list read before the write and completed after it is not
+ * stored. Writes of other nodes are not seen, they expire after servlet.response-cache.ttl-seconds.
+ */
+public class ResponseCache {
+    public static final String USERS = "users";
+    public static final String TASKS = "tasks";
+    public static final String DEPARTMENTS = "departments";
+    private static final ResponseCache DEFAULT = new ResponseCache(
+            AppProperties.getInt("servlet.response-cache.max-size", 1000),
+            AppProperties.getInt("servlet.response-cache.ttl-seconds", 10),
+            TimeUnit.SECONDS,
+            AppProperties.getInt("servlet.response-cache.max-body-size", 16 * 1024 * 1024)
+    );
+
+    private final int maxSize;
+    private final long ttl;
+    private final TimeUnit unit;
+    private final int maxBodySize;
+    private final Map<Set<String>, EntityCache<String, CachedResponse>> groups = new ConcurrentHashMap<>();
+
+    /**
+     * The encoded body of a response with the headers set by its handler, for example the Link of a page.
+     */
+    record CachedResponse(byte[] body, List<Map.Entry<String, String>> headers) {
+    }
+    /**
+     * Constructs a new ResponseCache.
+     *
+     * @param maxSize The maximum number of responses kept per group of embedded entities, 0 to disable the cache.
+     * @param ttl The time a response stays valid after it was stored, 0 to keep it until it is evicted.
+     * @param unit The unit of the ttl.
+     * @param maxBodySize The maximum size of a stored body in bytes; larger responses are not stored.
+     */
+    public ResponseCache(int maxSize, long ttl, TimeUnit unit, int maxBodySize) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.unit = unit;
+        this.maxBodySize = maxBodySize;
+    }
+    /**
+     * Returns the cache shared by the servlets.
+     *
+     * @return the default ResponseCache.
+     */
+    public static ResponseCache getDefault() {
+        return DEFAULT;
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+    /**
+     * Writes the cached response of the request, or runs the handler and stores the response it writes
+     * if it succeeds with 200 OK.
+     *
+     * @param req The HttpServletRequest object.
+     * @param resp The HttpServletResponse object.
+     * @param codec The codec the response is written with.
+     * @param entity The entity of the endpoint, for example ResponseCache.USERS.
+     * @param fields The requested fields of the response.
+     * @param handler The handler writing the list response.
+     * @throws ServletException If the handler could not handle the request.
+     * @throws IOException If an input or output error is detected when the response is written.
+     */
+    public void handle(HttpServletRequest req, HttpServletResponse resp, JsonCodec codec, String entity,
+                       FieldSet fields, AsyncDispatcher.Handler handler) throws ServletException, IOException {
+        if (!isEnabled()) {
+            handler.handle(req, resp);
+            return;
+        }
+
+        EntityCache<String, CachedResponse> cache = groups.computeIfAbsent(embeddedEntities(entity, fields),
+                entities -> new EntityCache<>(maxSize, ttl, unit));
+        String key = codec.getMediaType() + ' ' + req.getRequestURI() + '?' + req.getQueryString();
+
+        CachedResponse cached = cache.get(key);
+        if (cached != null) {
+            for (Map.Entry<String, String> header : cached.headers()) {
+                resp.addHeader(header.getKey(), header.getValue());
+            }
+            codec.setContentType(resp);
+            resp.setContentLength(cached.body().length);
+            try (ServletOutputStream out = resp.getOutputStream()) {
+                out.write(cached.body());
+            }
+            return;
+        }
+
+        long epoch = cache.currentEpoch();
+        CapturingResponse capturingResponse = new CapturingResponse(resp, maxBodySize);
+        handler.handle(req, capturingResponse);
+
+        CachedResponse captured = capturingResponse.getCaptured();
+        if (captured != null) {
+            cache.putIfEpoch(key, captured, epoch);
+        }
+    }
+    /**
+     * Evicts every response embedding the entity.
+     *
+     * @param entity The written entity, for example ResponseCache.USERS.
+     */
+    public void invalidate(String entity) {
+        groups.forEach((entities, cache) -> {
+            if (entities.contains(entity)) {
+                cache.invalidateAll();
+            }
+        });
+    }
+    /**
+     * Wraps the service so that its create, update and delete methods evict the responses embedding the entity.
+     *
+     * @param entity The entity of the service, for example ResponseCache.USERS.
+     * @param service The service to be wrapped.
+     * @return the evicting Service, or the service itself if the cache is disabled.
+     */
+    public <T, K> Service<T, K> evictOnWrite(String entity, Service<T, K> service) {
+        return isEnabled() ? new EvictingService<>(service, this, entity) : service;
+    }
+
+    private static Set<String> embeddedEntities(String entity, FieldSet fields) {
+        Set<String> entities = new TreeSet<>();
+        entities.add(entity);
+        if (!entity.equals(DEPARTMENTS)) {
+            entities.add(DEPARTMENTS);
+        }
+        if (fields.includes(FieldSet.USER_LIST)) {
+            entities.add(USERS);
+        }
+        if (fields.includes(FieldSet.TASK_LIST)) {
+            entities.add(TASKS);
+        }
+        return Set.copyOf(entities);
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCache{groups = " + groups + '}';
+    }
+}
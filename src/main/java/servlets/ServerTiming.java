@@ -0,0 +1,76 @@
+package servlets;
+
+import config.AppProperties;
+import metrics.RequestTiming;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ServerTiming class times the phases of a request (db, map, ser, app) with a RequestTiming and reports
+ * them in the Server-Timing response header (servlet.server-timing) and in a key=value line of the "access"
+ * logger (servlet.access-log). Every timed request gets a generated id, sent back in the X-Request-Id header
+ * and written in its access log line.
+ */
+final class ServerTiming {
+    static final String REQUEST_ID = "X-Request-Id";
+    private static final boolean HEADER = AppProperties.getBoolean("servlet.server-timing", true);
+    private static final boolean ACCESS_LOG = AppProperties.getBoolean("servlet.access-log", false);
+    // the ids are unique per node: a random prefix chosen at startup and a counter
+    private static final String ID_PREFIX = String.format("%08x-", ThreadLocalRandom.current().nextInt());
+    private static final AtomicLong nextId = new AtomicLong();
+    private static final Logger accessLog = LoggerFactory.getLogger("access");
+
+    private ServerTiming() {
+    }
+
+    static boolean isEnabled() {
+        return HEADER || ACCESS_LOG;
+    }
+    /**
+     * Runs the handler in a RequestTiming, reporting its phases in the header and the access log.
+     *
+     * @param req The HttpServletRequest object.
+     * @param resp The HttpServletResponse object.
+     * @param handler The handler of the request.
+     * @throws ServletException If the handler could not handle the request.
+     * @throws IOException If an input or output error is detected when the request is handled.
+     */
+    static void handle(HttpServletRequest req, HttpServletResponse resp, AsyncDispatcher.Handler handler)
+            throws ServletException, IOException {
+        if (!isEnabled()) {
+            handler.handle(req, resp);
+            return;
+        }
+
+        String requestId = ID_PREFIX + Long.toHexString(nextId.incrementAndGet());
+        resp.setHeader(REQUEST_ID, requestId);
+        // read before the handler, the request of an expired asynchronous handler may already serve another request
+        String method = req.getMethod();
+        String path = req.getRequestURI();
+        try (RequestTiming timing = RequestTiming.start(requestId)) {
+            ServerTimingResponse timedResponse = HEADER ? new ServerTimingResponse(resp, timing) : null;
+            boolean failed = true;
+            try {
+                handler.handle(req, timedResponse != null ? timedResponse : resp);
+                failed = false;
+            }
+            finally {
+                if (timedResponse != null) {
+                    timedResponse.setTimingHeader();
+                }
+                if (ACCESS_LOG) {
+                    int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : resp.getStatus();
+                    accessLog.info("request_id={} method={} path={} status={} {}",
+                            requestId, method, path, status, timing.toLogFields());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package servlets;
+
+import metrics.RequestTiming;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * The ServerTimingResponse class sets the Server-Timing header of a timed request as late as possible: just
+ * before the response can be committed, that is when the body is flushed or closed, when it grows beyond half
+ * of the response buffer, or when the handler has finished. A body that fits in the buffer is therefore
+ * reported with its whole serialization; a streamed body with the phases up to its first flush.
+ */
+class ServerTimingResponse extends HttpServletResponseWrapper {
+    static final String SERVER_TIMING = "Server-Timing";
+
+    private final RequestTiming timing;
+    private ServletOutputStream stream;
+    private long written;
+    private boolean headerSet;
+
+    /**
+     * Constructs a new ServerTimingResponse.
+     *
+     * @param response The response to be wrapped.
+     * @param timing The timing of the request.
+     */
+    ServerTimingResponse(HttpServletResponse response, RequestTiming timing) {
+        super(response);
+        this.timing = timing;
+    }
+    /**
+     * Sets the Server-Timing header unless it has been set or the response has been committed.
+     */
+    void setTimingHeader() {
+        if (headerSet) {
+            return;
+        }
+        headerSet = true;
+        if (!isCommitted()) {
+            setHeader(SERVER_TIMING, timing.toServerTiming());
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (stream == null) {
+            stream = new TimingOutputStream(super.getOutputStream());
+        }
+        return stream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        // the servlets write bytes only, a text body is reported from the moment it is started
+        setTimingHeader();
+        return super.getWriter();
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        setTimingHeader();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        setTimingHeader();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        setTimingHeader();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        setTimingHeader();
+        super.sendRedirect(location);
+    }
+
+    private class TimingOutputStream extends ServletOutputStream {
+        private final ServletOutputStream out;
+
+        TimingOutputStream(ServletOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            beforeWrite(1);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            beforeWrite(len);
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            setTimingHeader();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            setTimingHeader();
+            out.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return out.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            out.setWriteListener(writeListener);
+        }
+
+        // a wrapping CompressedResponse may emit a little more than it is given, so half of the buffer is kept free
+        private void beforeWrite(int len) {
+            written += len;
+            if (!headerSet && written > getBufferSize() / 2) {
+                setTimingHeader();
+            }
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package servlets;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import config.AppProperties;
 import config.ServiceFactory;
+import dao.FieldSet;
+import dao.OptimisticLockException;
+import dao.RowVersions;
 import dto.TaskDTO;
 import services.Service;
 
@@ -10,40 +13,45 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * The TaskServlet class is a servlet that handles HTTP requests related to tasks.
  * It provides endpoints for retrieving, creating, updating, and deleting tasks.
  * This servlet uses the TaskService to interact with the business logic layer and
- * the ObjectMapper to serialize and deserialize JSON data.
+ * the shared ContentNegotiation to serialize and deserialize the DTOs as JSON or a binary format.
  */
 public class TaskServlet extends HttpServlet {
     private Service taskService;
-    private ObjectMapper objectMapper;
+    private ContentNegotiation contentNegotiation;
+    private final ResponseCache responseCache = ResponseCache.getDefault();
+    private static final boolean STREAMING = AppProperties.getBoolean("servlet.streaming", true);
 
     public TaskServlet() {
-        taskService = ServiceFactory.getTaskService();
-        objectMapper = new ObjectMapper();
+        taskService = responseCache.evictOnWrite(ResponseCache.TASKS, ServiceFactory.getTaskService());
+        contentNegotiation = ContentNegotiation.getDefault();
     }
     /**
      * Sets the TaskService instance to be used by this servlet.
+     * Its create, update and delete methods evict the cached list responses.
      *
      * @param taskService The BookService to be used.
      */
     public void setTaskService(Service taskService) {
-        this.taskService = taskService;
+        this.taskService = responseCache.evictOnWrite(ResponseCache.TASKS, taskService);
     }
     /**
-     * Sets the ObjectMapper instance to be used by this servlet.
+     * Sets the ContentNegotiation instance to be used by this servlet.
      *
-     * @param objectMapper The ObjectMapper to be used.
+     * @param contentNegotiation The ContentNegotiation selecting the codecs of the requests.
      */
-    public void setObjectMapper(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+    public void setContentNegotiation(ContentNegotiation contentNegotiation) {
+        this.contentNegotiation = contentNegotiation;
     }
     /**
      * Handles GET requests. Retrieves all tasks or a specific task by ID.
+     * A task is sent with its ETag, or with 304 Not Modified if it matches the If-None-Match header.
      *
      * @param req  The HttpServletRequest object.
      * @param resp The HttpServletResponse object.
@@ -52,17 +60,37 @@ public class TaskServlet extends HttpServlet {
      */
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        AsyncDispatcher.dispatch(req, resp, this::handleGet);
+    }
+
+    private void handleGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String pathValue = req.getPathInfo();
         resp.setCharacterEncoding("UTF-8");
+        JsonCodec jsonCodec = contentNegotiation.forResponse(req, resp);
+        FieldSet fields;
+        try {
+            fields = jsonCodec.parseFields(req, TaskDTO.class);
+        }
+        catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
         if (pathValue == null || pathValue.equals("/")) {
-            getAll(resp);
+            responseCache.handle(req, resp, jsonCodec, ResponseCache.TASKS, fields, (request, response) -> {
+                if (PageRequest.isRequested(request)) {
+                    getPage(request, response, jsonCodec, fields);
+                }
+                else {
+                    getAll(response, jsonCodec, fields);
+                }
+            });
         }
         else {
-            getByID(resp, pathValue);
+            getByID(req, resp, jsonCodec, pathValue, fields);
         }
     }
     /**
-     * Handles POST requests. Creates a new task.
+     * Handles POST requests. Creates a new task, or all tasks of a JSON array on the /batch path.
      *
      * @param req  The HttpServletRequest object.
      * @param resp The HttpServletResponse object.
@@ -71,13 +99,21 @@ public class TaskServlet extends HttpServlet {
      */
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-        req.setCharacterEncoding("UTF-8");
-        TaskDTO taskDTO = objectMapper.readValue(req.getReader(), TaskDTO.class);
+        AsyncDispatcher.dispatch(req, resp, this::handlePost);
+    }
+
+    private void handlePost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (JsonBatchReader.BATCH_PATH.equals(req.getPathInfo())) {
+            createAll(req, resp);
+            return;
+        }
+        TaskDTO taskDTO = contentNegotiation.forRequest(req).read(req, TaskDTO.class);
         taskService.create(taskDTO);
         resp.setStatus(HttpServletResponse.SC_CREATED);
     }
     /**
-     * Handles PUT requests. Updates an existing task.
+     * Handles PUT requests. Updates an existing task. With an If-Match header the task is updated only if
+     * it still has the version of the ETag, otherwise the response is 412 Precondition Failed.
      *
      * @param req  The HttpServletRequest object.
      * @param resp The HttpServletResponse object.
@@ -86,16 +122,26 @@ public class TaskServlet extends HttpServlet {
      */
     @Override
     protected void doPut(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        AsyncDispatcher.dispatch(req, resp, this::handlePut);
+    }
+
+    private void handlePut(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String pathValue = req.getPathInfo();
         if (pathValue == null || pathValue.equals("/")) {
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST, "Missing ID task");
             return;
         }
         Long id = Long.parseLong(pathValue.substring(1));
-        req.setCharacterEncoding("UTF-8");
-        TaskDTO taskDTO = objectMapper.readValue(req.getReader(), TaskDTO.class);
+        TaskDTO taskDTO = contentNegotiation.forRequest(req).read(req, TaskDTO.class);
         taskDTO.setTask_id(id);
-        taskService.update(taskDTO);
+        taskDTO.setTask_version(ETags.versionOf(req.getHeader(ETags.IF_MATCH), () -> currentVersion(id)));
+        try {
+            taskService.update(taskDTO);
+        }
+        catch (OptimisticLockException e) {
+            resp.sendError(HttpServletResponse.SC_PRECONDITION_FAILED, e.getMessage());
+            return;
+        }
         resp.setStatus(HttpServletResponse.SC_OK);
     }
     /**
@@ -108,6 +154,10 @@ public class TaskServlet extends HttpServlet {
      */
     @Override
     protected void doDelete(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        AsyncDispatcher.dispatch(req, resp, this::handleDelete);
+    }
+
+    private void handleDelete(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String pathValue = req.getPathInfo();
         if (pathValue == null || pathValue.equals("/")) {
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST, "Missing ID task");
@@ -118,16 +168,63 @@ public class TaskServlet extends HttpServlet {
         resp.setStatus(HttpServletResponse.SC_OK);
     }
 
-    private void getAll(HttpServletResponse resp) throws IOException {
-        resp.setContentType("application/json");
-        resp.getWriter().write(objectMapper.writeValueAsString(taskService.getAll()));
+    private void createAll(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        JsonBatchReader.createAll(contentNegotiation, req, resp, TaskDTO.class, taskService::createAll);
     }
 
-    private void getByID(HttpServletResponse resp, String pathValue) throws IOException {
-        Optional<TaskDTO> taskDTO = taskService.get(Long.valueOf(pathValue.substring(1)));
+    private void getAll(HttpServletResponse resp, JsonCodec jsonCodec, FieldSet fields) throws IOException {
+        if (STREAMING) {
+            JsonStreamWriter.writeArray(jsonCodec, resp, TaskDTO.class, fields,
+                    consumer -> taskService.streamAll(fields, consumer));
+        }
+        else {
+            jsonCodec.writeList(resp, taskService.getAll(fields), TaskDTO.class, fields);
+        }
+    }
+
+    private void getPage(HttpServletRequest req, HttpServletResponse resp, JsonCodec jsonCodec, FieldSet fields) throws IOException {
+        PageRequest pageRequest;
+        try {
+            pageRequest = PageRequest.of(req);
+        }
+        catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        List<TaskDTO> page = taskService.getPage(pageRequest.getAfterId(), pageRequest.getLimit(), fields);
+        if (page.size() == pageRequest.getLimit()) {
+            pageRequest.writeNextLink(req, resp, page.get(page.size() - 1).getTask_id());
+        }
+        jsonCodec.writeList(resp, page, TaskDTO.class, fields);
+    }
+
+    private Optional<Long> currentVersion(Long id) {
+        Optional<RowVersions> versions = taskService.getVersions(id, FieldSet.WITHOUT_COLLECTIONS);
+        return versions.map(RowVersions::getVersion);
+    }
+
+    private void getByID(HttpServletRequest req, HttpServletResponse resp, JsonCodec jsonCodec, String pathValue,
+                         FieldSet fields) throws IOException {
+        Long id = Long.valueOf(pathValue.substring(1));
+        String ifNoneMatch = req.getHeader(ETags.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            Optional<RowVersions> versions = taskService.getVersions(id, fields);
+            if (versions.isPresent()) {
+                String etag = ETags.of(versions.get(), jsonCodec, fields);
+                String matched = ETags.match(ifNoneMatch, etag);
+                if (matched != null) {
+                    resp.setHeader(ETags.ETAG, matched);
+                    resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+            }
+        }
+
+        Optional<TaskDTO> taskDTO = taskService.get(id, fields);
         if (taskDTO.isPresent()) {
-            resp.setContentType("application/json");
-            resp.getWriter().write(objectMapper.writeValueAsString(taskDTO.get()));
+            resp.setHeader(ETags.ETAG, ETags.of(taskService.versionsOf(taskDTO.get(), fields), jsonCodec, fields));
+            jsonCodec.write(resp, taskDTO.get(), TaskDTO.class, fields);
         }
         else {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Task not found");
@@ -1,7 +1,10 @@
 package servlets;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import config.AppProperties;
 import config.ServiceFactory;
+import dao.FieldSet;
+import dao.OptimisticLockException;
+import dao.RowVersions;
 import dto.TaskDTO;
 import dto.UserDTO;
 import services.Service;
@@ -12,40 +15,45 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * The UserServlet class is a servlet that handles HTTP requests related to users.
  * It provides endpoints for retrieving, creating, updating, and deleting users.
  * This servlet uses the UserService to interact with the business logic layer and
- * the ObjectMapper to serialize and deserialize JSON data.
+ * the shared ContentNegotiation to serialize and deserialize the DTOs as JSON or a binary format.
  */
 public class UserServlet extends HttpServlet {
     private Service userService;
-    private ObjectMapper objectMapper;
+    private ContentNegotiation contentNegotiation;
+    private final ResponseCache responseCache = ResponseCache.getDefault();
+    private static final boolean STREAMING = AppProperties.getBoolean("servlet.streaming", true);
 
     public UserServlet() {
-        userService = ServiceFactory.getUserService();
-        objectMapper = new ObjectMapper();
+        userService = responseCache.evictOnWrite(ResponseCache.USERS, ServiceFactory.getUserService());
+        contentNegotiation = ContentNegotiation.getDefault();
     }
     /**
      * Sets the UserService instance to be used by this servlet.
+     * Its create, update and delete methods evict the cached list responses.
      *
      * @param userService The BookService to be used.
      */
     public void setUserService(Service userService) {
-        this.userService = userService;
+        this.userService = responseCache.evictOnWrite(ResponseCache.USERS, userService);
     }
     /**
-     * Sets the ObjectMapper instance to be used by this servlet.
+     * Sets the ContentNegotiation instance to be used by this servlet.
      *
-     * @param objectMapper The ObjectMapper to be used.
+     * @param contentNegotiation The ContentNegotiation selecting the codecs of the requests.
      */
-    public void setObjectMapper(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+    public void setContentNegotiation(ContentNegotiation contentNegotiation) {
+        this.contentNegotiation = contentNegotiation;
     }
     /**
      * Handles GET requests. Retrieves all users or a specific user by ID.
+     * A user is sent with its ETag, or with 304 Not Modified if it matches the If-None-Match header.
      *
      * @param req  The HttpServletRequest object.
      * @param resp The HttpServletResponse object.
@@ -54,17 +62,37 @@ public class UserServlet extends HttpServlet {
      */
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        AsyncDispatcher.dispatch(req, resp, this::handleGet);
+    }
+
+    private void handleGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String pathValue = req.getPathInfo();
         resp.setCharacterEncoding("UTF-8");
+        JsonCodec jsonCodec = contentNegotiation.forResponse(req, resp);
+        FieldSet fields;
+        try {
+            fields = jsonCodec.parseFields(req, UserDTO.class);
+        }
+        catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
         if (pathValue == null || pathValue.equals("/")) {
-            getAll(resp);
+            responseCache.handle(req, resp, jsonCodec, ResponseCache.USERS, fields, (request, response) -> {
+                if (PageRequest.isRequested(request)) {
+                    getPage(request, response, jsonCodec, fields);
+                }
+                else {
+                    getAll(response, jsonCodec, fields);
+                }
+            });
         }
         else {
-            getByID(resp, pathValue);
+            getByID(req, resp, jsonCodec, pathValue, fields);
         }
     }
     /**
-     * Handles POST requests. Creates a new user.
+     * Handles POST requests. Creates a new user, or all users of a JSON array on the /batch path.
      *
      * @param req  The HttpServletRequest object.
      * @param resp The HttpServletResponse object.
@@ -73,13 +101,21 @@ public class UserServlet extends HttpServlet {
      */
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-        req.setCharacterEncoding("UTF-8");
-        UserDTO userDTO = objectMapper.readValue(req.getReader(), UserDTO.class);
+        AsyncDispatcher.dispatch(req, resp, this::handlePost);
+    }
+
+    private void handlePost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        if (JsonBatchReader.BATCH_PATH.equals(req.getPathInfo())) {
+            createAll(req, resp);
+            return;
+        }
+        UserDTO userDTO = contentNegotiation.forRequest(req).read(req, UserDTO.class);
         userService.create(userDTO);
         resp.setStatus(HttpServletResponse.SC_CREATED);
     }
     /**
-     * Handles PUT requests. Updates an existing user.
+     * Handles PUT requests. Updates an existing user. With an If-Match header the user is updated only if
+     * it still has the version of the ETag, otherwise the response is 412 Precondition Failed.
      *
      * @param req  The HttpServletRequest object.
      * @param resp The HttpServletResponse object.
@@ -88,16 +124,26 @@ public class UserServlet extends HttpServlet {
      */
     @Override
     protected void doPut(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        AsyncDispatcher.dispatch(req, resp, this::handlePut);
+    }
+
+    private void handlePut(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String pathValue = req.getPathInfo();
         if (pathValue == null || pathValue.equals("/")) {
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST, "Missing ID user");
             return;
         }
         Long id = Long.parseLong(pathValue.substring(1));
-        req.setCharacterEncoding("UTF-8");
-        UserDTO userDTO = objectMapper.readValue(req.getReader(), UserDTO.class);
+        UserDTO userDTO = contentNegotiation.forRequest(req).read(req, UserDTO.class);
         userDTO.setUser_id(id);
-        userService.update(userDTO);
+        userDTO.setUser_version(ETags.versionOf(req.getHeader(ETags.IF_MATCH), () -> currentVersion(id)));
+        try {
+            userService.update(userDTO);
+        }
+        catch (OptimisticLockException e) {
+            resp.sendError(HttpServletResponse.SC_PRECONDITION_FAILED, e.getMessage());
+            return;
+        }
         resp.setStatus(HttpServletResponse.SC_OK);
     }
     /**
@@ -110,6 +156,10 @@ public class UserServlet extends HttpServlet {
      */
     @Override
     protected void doDelete(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        AsyncDispatcher.dispatch(req, resp, this::handleDelete);
+    }
+
+    private void handleDelete(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String pathValue = req.getPathInfo();
         if (pathValue == null || pathValue.equals("/")) {
             resp.setStatus(HttpServletResponse.SC_BAD_REQUEST, "Missing ID user");
@@ -120,16 +170,63 @@ public class UserServlet extends HttpServlet {
         resp.setStatus(HttpServletResponse.SC_OK);
     }
 
-    private void getAll(HttpServletResponse resp) throws IOException {
-        resp.setContentType("application/json");
-        resp.getWriter().write(objectMapper.writeValueAsString(userService.getAll()));
+    private void createAll(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        JsonBatchReader.createAll(contentNegotiation, req, resp, UserDTO.class, userService::createAll);
     }
 
-    private void getByID(HttpServletResponse resp, String pathValue) throws IOException {
-        Optional<UserDTO> userDTO = userService.get(Long.valueOf(pathValue.substring(1)));
+    private void getAll(HttpServletResponse resp, JsonCodec jsonCodec, FieldSet fields) throws IOException {
+        if (STREAMING) {
+            JsonStreamWriter.writeArray(jsonCodec, resp, UserDTO.class, fields,
+                    consumer -> userService.streamAll(fields, consumer));
+        }
+        else {
+            jsonCodec.writeList(resp, userService.getAll(fields), UserDTO.class, fields);
+        }
+    }
+
+    private void getPage(HttpServletRequest req, HttpServletResponse resp, JsonCodec jsonCodec, FieldSet fields) throws IOException {
+        PageRequest pageRequest;
+        try {
+            pageRequest = PageRequest.of(req);
+        }
+        catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        List<UserDTO> page = userService.getPage(pageRequest.getAfterId(), pageRequest.getLimit(), fields);
+        if (page.size() == pageRequest.getLimit()) {
+            pageRequest.writeNextLink(req, resp, page.get(page.size() - 1).getUser_id());
+        }
+        jsonCodec.writeList(resp, page, UserDTO.class, fields);
+    }
+
+    private Optional<Long> currentVersion(Long id) {
+        Optional<RowVersions> versions = userService.getVersions(id, FieldSet.WITHOUT_COLLECTIONS);
+        return versions.map(RowVersions::getVersion);
+    }
+
+    private void getByID(HttpServletRequest req, HttpServletResponse resp, JsonCodec jsonCodec, String pathValue,
+                         FieldSet fields) throws IOException {
+        Long id = Long.valueOf(pathValue.substring(1));
+        String ifNoneMatch = req.getHeader(ETags.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            Optional<RowVersions> versions = userService.getVersions(id, fields);
+            if (versions.isPresent()) {
+                String etag = ETags.of(versions.get(), jsonCodec, fields);
+                String matched = ETags.match(ifNoneMatch, etag);
+                if (matched != null) {
+                    resp.setHeader(ETags.ETAG, matched);
+                    resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+            }
+        }
+
+        Optional<UserDTO> userDTO = userService.get(id, fields);
         if (userDTO.isPresent()) {
-            resp.setContentType("application/json");
-            resp.getWriter().write(objectMapper.writeValueAsString(userDTO.get()));
+            resp.setHeader(ETags.ETAG, ETags.of(userService.versionsOf(userDTO.get(), fields), jsonCodec, fields));
+            jsonCodec.write(resp, userDTO.get(), UserDTO.class, fields);
         }
         else {
             resp.sendError(HttpServletResponse.SC_NOT_FOUND, "User not found");
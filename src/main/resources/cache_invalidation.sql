@@ -0,0 +1,106 @@
+-- Publishes the ids of changed entities on the cache_invalidation channel.
+-- Every node running the InvalidationListener evicts the received keys from its entity caches.
+-- Payload format: '<entity>:<id>', where entity is users, tasks or departments.
+
+CREATE OR REPLACE FUNCTION notify_cache_invalidation(entity TEXT, id BIGINT) RETURNS VOID AS
+$$
+BEGIN
+    IF id IS NOT NULL THEN
+        PERFORM pg_notify('cache_invalidation', entity || ':' || id);
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+-- A user is embedded in its department and in its tasks
+CREATE OR REPLACE FUNCTION users_cache_invalidation() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        PERFORM notify_cache_invalidation('users', OLD.user_id);
+        PERFORM notify_cache_invalidation('departments', OLD.department_id);
+        PERFORM notify_cache_invalidation('tasks', ut.task_id)
+        FROM users_tasks ut
+        WHERE ut.user_id = OLD.user_id;
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        PERFORM notify_cache_invalidation('users', NEW.user_id);
+        PERFORM notify_cache_invalidation('departments', NEW.department_id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- A task is embedded in its department and in its users
+CREATE OR REPLACE FUNCTION tasks_cache_invalidation() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        PERFORM notify_cache_invalidation('tasks', OLD.task_id);
+        PERFORM notify_cache_invalidation('departments', OLD.departments_id);
+        PERFORM notify_cache_invalidation('users', ut.user_id)
+        FROM users_tasks ut
+        WHERE ut.task_id = OLD.task_id;
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        PERFORM notify_cache_invalidation('tasks', NEW.task_id);
+        PERFORM notify_cache_invalidation('departments', NEW.departments_id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- A department is embedded in its users and in its tasks
+CREATE OR REPLACE FUNCTION departments_cache_invalidation() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        PERFORM notify_cache_invalidation('departments', OLD.department_id);
+        PERFORM notify_cache_invalidation('users', u.user_id)
+        FROM users u
+        WHERE u.department_id = OLD.department_id;
+        PERFORM notify_cache_invalidation('tasks', t.task_id)
+        FROM tasks t
+        WHERE t.departments_id = OLD.department_id;
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        PERFORM notify_cache_invalidation('departments', NEW.department_id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- A link changes the task list of the user and the user list of the task
+CREATE OR REPLACE FUNCTION users_tasks_cache_invalidation() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        PERFORM notify_cache_invalidation('users', OLD.user_id);
+        PERFORM notify_cache_invalidation('tasks', OLD.task_id);
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        PERFORM notify_cache_invalidation('users', NEW.user_id);
+        PERFORM notify_cache_invalidation('tasks', NEW.task_id);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS users_cache_invalidation ON users;
+CREATE TRIGGER users_cache_invalidation
+    AFTER INSERT OR UPDATE OR DELETE ON users
+    FOR EACH ROW EXECUTE FUNCTION users_cache_invalidation();
+
+DROP TRIGGER IF EXISTS tasks_cache_invalidation ON tasks;
+CREATE TRIGGER tasks_cache_invalidation
+    AFTER INSERT OR UPDATE OR DELETE ON tasks
+    FOR EACH ROW EXECUTE FUNCTION tasks_cache_invalidation();
+
+DROP TRIGGER IF EXISTS departments_cache_invalidation ON departments;
+CREATE TRIGGER departments_cache_invalidation
+    AFTER INSERT OR UPDATE OR DELETE ON departments
+    FOR EACH ROW EXECUTE FUNCTION departments_cache_invalidation();
+
+DROP TRIGGER IF EXISTS users_tasks_cache_invalidation ON users_tasks;
+CREATE TRIGGER users_tasks_cache_invalidation
+    AFTER INSERT OR UPDATE OR DELETE ON users_tasks
+    FOR EACH ROW EXECUTE FUNCTION users_tasks_cache_invalidation();
@@ -0,0 +1,7 @@
+-- Adds the row versions to a database created before they were part of sql.txt.
+-- Every UPDATE through the DAOs increments the version of the row; the servlets derive
+-- the ETag of a response from the versions of the rows it embeds.
+
+ALTER TABLE departments ADD COLUMN IF NOT EXISTS department_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS user_version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE tasks ADD COLUMN IF NOT EXISTS task_version BIGINT NOT NULL DEFAULT 0;
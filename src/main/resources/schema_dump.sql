@@ -27,7 +27,8 @@ SET default_table_access_method = heap;
 
 CREATE TABLE public.departments (
     department_id bigint NOT NULL,
-    department_name character varying(255) NOT NULL
+    department_name character varying(255) NOT NULL,
+    department_version bigint DEFAULT 0 NOT NULL
 );
 
 
@@ -54,7 +55,8 @@ ALTER TABLE public.departments ALTER COLUMN department_id ADD GENERATED ALWAYS A
 CREATE TABLE public.tasks (
     task_id bigint NOT NULL,
     task_name character varying(255) NOT NULL,
-    departments_id bigint
+    departments_id bigint,
+    task_version bigint DEFAULT 0 NOT NULL
 );
 
 
@@ -82,7 +84,8 @@ CREATE TABLE public.users (
     user_id bigint NOT NULL,
     user_firstname character varying(255) NOT NULL,
     user_lastname character varying(255) NOT NULL,
-    department_id bigint
+    department_id bigint,
+    user_version bigint DEFAULT 0 NOT NULL
 );
 
 
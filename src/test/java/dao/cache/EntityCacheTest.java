@@ -0,0 +1,61 @@
+package dao.cache;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+public class EntityCacheTest extends TestCase {
+
+    public void testEvictsLeastRecentlyUsedEntry() {
+        EntityCache<Long, String> cache = new EntityCache<>(2, 0, TimeUnit.SECONDS);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        assertEquals("one", cache.get(1L));
+
+        cache.put(3L, "three");
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get(2L));
+        assertEquals("one", cache.get(1L));
+        assertEquals("three", cache.get(3L));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    public void testExpiresEntryAfterTimeToLive() throws InterruptedException {
+        EntityCache<Long, String> cache = new EntityCache<>(10, 50, TimeUnit.MILLISECONDS);
+        cache.put(1L, "one");
+        assertEquals("one", cache.get(1L));
+
+        Thread.sleep(100);
+
+        assertNull(cache.get(1L));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    public void testRejectsPutIfEpochAfterInvalidate() {
+        EntityCache<Long, String> cache = new EntityCache<>(10, 0, TimeUnit.SECONDS);
+        cache.put(1L, "one");
+        long epoch = cache.currentEpoch();
+
+        cache.invalidate(1L);
+
+        assertFalse(cache.putIfEpoch(1L, "stale", epoch));
+        assertNull(cache.peek(1L));
+        assertEquals(1, cache.getInvalidationCount());
+        assertTrue(cache.putIfEpoch(1L, "fresh", cache.currentEpoch()));
+        assertEquals("fresh", cache.peek(1L));
+    }
+
+    public void testRejectsPutIfEpochAfterInvalidateAll() {
+        EntityCache<Long, String> cache = new EntityCache<>(10, 0, TimeUnit.SECONDS);
+        long epoch = cache.currentEpoch();
+
+        cache.invalidateAll();
+
+        assertFalse(cache.putIfEpoch(1L, "stale", epoch));
+        assertEquals(0, cache.size());
+    }
+}
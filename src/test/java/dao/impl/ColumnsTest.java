@@ -0,0 +1,36 @@
+package dao.impl;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+public class ColumnsTest extends TestCase {
+    private final Columns columns = new Columns("u.user_id", "u.user_firstname", "ut.user_id AS link_id",
+            "d.department_name as name");
+
+    public void testResolvesLabelsWithoutTableAlias() {
+        assertEquals(1, columns.indexOf("user_id"));
+        assertEquals(2, columns.indexOf("USER_FIRSTNAME"));
+    }
+
+    public void testResolvesColumnAliases() {
+        assertEquals(3, columns.indexOf("link_id"));
+        assertEquals(4, columns.indexOf("name"));
+        assertTrue(Arrays.equals(new int[]{4, 3, 1}, columns.indexesOf("name", "link_id", "user_id")));
+    }
+
+    public void testRejectsMissingLabel() {
+        try {
+            columns.indexesOf("user_id", "user_version");
+            fail("user_version is not selected");
+        }
+        catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("user_version"));
+        }
+    }
+
+    public void testFormatsSelectList() {
+        assertEquals("u.user_id, u.user_firstname, ut.user_id AS link_id, d.department_name as name",
+                columns.toString());
+    }
+}
@@ -0,0 +1,20 @@
+package dao.impl;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Map;
+
+public class SqlIdsTest extends TestCase {
+
+    public void testNamesEveryStatementOfTheDaos() {
+        for (Map<String, String> ids : List.of(DepartmentDAO.SQL_IDS, TaskDAO.SQL_IDS, UserDAO.SQL_IDS)) {
+            ids.forEach((sql, id) -> assertEquals(id, SqlIds.of(sql)));
+        }
+    }
+
+    public void testHashesUnknownStatement() {
+        String sql = "SELECT 1";
+        assertEquals("sql@" + Integer.toHexString(sql.hashCode()), SqlIds.of(sql));
+    }
+}
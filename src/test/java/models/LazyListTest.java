@@ -0,0 +1,67 @@
+package models;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LazyListTest extends TestCase {
+    private static final int THREADS = 8;
+
+    public void testLoadsOnFirstAccess() {
+        AtomicInteger loads = new AtomicInteger();
+        LazyList<String> list = new LazyList<>(() -> {
+            loads.incrementAndGet();
+            return List.of("a", "b");
+        });
+        assertFalse(list.isLoaded());
+        assertEquals(0, loads.get());
+
+        assertEquals(2, list.size());
+        assertEquals("b", list.get(1));
+        assertTrue(list.isLoaded());
+        assertEquals(1, loads.get());
+    }
+
+    public void testLoadsOnceWhenReadConcurrently() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        LazyList<Integer> list = new LazyList<>(() -> {
+            loads.incrementAndGet();
+            try {
+                // keeps the other threads waiting on the list while it loads
+                Thread.sleep(50);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(1, 2, 3);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> sizes = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                sizes.add(executor.submit(() -> {
+                    start.await();
+                    return list.size();
+                }));
+            }
+            start.countDown();
+
+            for (Future<Integer> size : sizes) {
+                assertEquals(3, size.get(10, TimeUnit.SECONDS).intValue());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+}